@@ -0,0 +1,87 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One archive run of a service with a day of closed hourly logs per status type: the files are zipped,
+ * moved into place and deleted. The logs are rewritten before every invocation, outside the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArchiveBenchmark {
+    private static final String SERVICE_NAME = "Archive Service";
+    private static final String[] TYPES = {"application", "server"};
+    private static final int HOURS = 24;
+
+    private Path directory;
+    private Path loggingDirectory;
+    private Path archiveDirectory;
+    private RotationState rotationState;
+    private LogArchiver archiver;
+    private byte[][] logs;
+    private long start;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("bench-archive");
+        loggingDirectory = directory.resolve("logging");
+        archiveDirectory = directory.resolve("logs");
+        rotationState = new RotationState(directory.resolve("last_logging_time"));
+        archiver = new LogArchiver(loggingDirectory, archiveDirectory, rotationState, 1, TimeUnit.DAYS.toMillis(30), Long.MAX_VALUE);
+        start = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(HOURS + 1);
+        Random random = new Random(22);
+        logs = new byte[HOURS * TYPES.length][];
+        for (int i = 0; i < logs.length; i++) {
+            logs[i] = BenchmarkData.hourOfLog(start + (i / TYPES.length) * 3_600_000L, TYPES[i % TYPES.length], random);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void writeLogs() throws IOException {
+        BenchmarkData.deleteRecursively(archiveDirectory);
+        Path serviceDirectory = loggingDirectory.resolve(SERVICE_NAME.replaceAll("\\s+", "_"));
+        FileTime closed = FileTime.fromMillis(start);
+        for (int i = 0; i < logs.length; i++) {
+            String type = TYPES[i % TYPES.length];
+            Path statusDirectory = Files.createDirectories(serviceDirectory.resolve(type + "_status"));
+            Path file = statusDirectory.resolve(BenchmarkData.logFileName(start + (i / TYPES.length) * 3_600_000L, type));
+            Files.write(file, logs[i]);
+            Files.setLastModifiedTime(file, closed);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        archiver.close();
+        rotationState.close();
+        BenchmarkData.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public long archive() {
+        archiver.archive(SERVICE_NAME);
+        return archiver.getFilesArchived();
+    }
+}
@@ -0,0 +1,211 @@
+package org.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Synthetic catalogs and status logs for the benchmarks. Everything is generated from fixed seeds so that
+ * runs on different machines work on the same data.
+ */
+final class BenchmarkData {
+    static final String[] FORMATS = {"json", "xml", "csv", "yaml", "ini"};
+    private static final String[] TIME_UNITS = {"Seconds", "Minutes", "Hours"};
+    private static final String[] EXPECTED_RESPONSES = {"Service is healthy", "OK", "Status UP", "pong"};
+    private static final String[] LOGGING_INTERVALS = {"Hourly", "Daily", "Weekly", "Monthly"};
+    private static final DateTimeFormatter FILE_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmm").withZone(ZoneId.systemDefault());
+    private static final DateTimeFormatter ENTRY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss").withZone(ZoneId.systemDefault());
+
+    private BenchmarkData() {
+    }
+
+    static ServiceMonitorApplication.Service service(int id, int hosts) {
+        String host = "host-" + (id % hosts) + ".example.com";
+        return new ServiceMonitorApplication.Service(id, "Service " + id, host, 443, "/health/" + id, "GET",
+                "Connected to " + host + ".", EXPECTED_RESPONSES[id % EXPECTED_RESPONSES.length],
+                1 + id % 60, TIME_UNITS[id % TIME_UNITS.length], id % 2 == 0 ? "Yes" : "No",
+                LOGGING_INTERVALS[id % LOGGING_INTERVALS.length], id % 3 == 0 ? "Yes" : "No", "Weekly");
+    }
+
+    /**
+     * Writes a catalog of count services in the given format, in the layout of the sample files.
+     */
+    static Path writeCatalog(Path directory, String format, int count) throws IOException {
+        Path file = directory.resolve("services-" + count + "." + format);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            switch (format) {
+                case "json":
+                    out.write("[\n");
+                    for (int id = 1; id <= count; id++) {
+                        ServiceMonitorApplication.Service s = service(id, count);
+                        out.write("  {\"id\": " + id + ", \"serviceName\": \"" + s.getServiceName() + "\", \"serviceHost\": \""
+                                + s.getServiceHost() + "\", \"servicePort\": " + s.getServicePort() + ", \"serviceResourceURI\": \""
+                                + s.getServiceResourceURI() + "\", \"serviceMethod\": \"" + s.getServiceMethod()
+                                + "\", \"expectedTelnetResponse\": \"" + s.getExpectedTelnetResponse()
+                                + "\", \"expectedRequestResponse\": \"" + s.getExpectedRequestResponse()
+                                + "\", \"monitoringInterval\": " + s.getMonitoringInterval() + ", \"monitoringIntervalTimeUnit\": \""
+                                + s.getMonitoringIntervalTimeUnit() + "\", \"enableFileLogging\": \"" + s.getEnableFileLogging()
+                                + "\", \"fileLoggingInterval\": \"" + s.getFileLoggingInterval() + "\", \"enableLogsArchiving\": \""
+                                + s.getEnableLogsArchiving() + "\", \"logArchivingIntervals\": \"" + s.getLogArchivingIntervals()
+                                + "\"}" + (id < count ? "," : "") + "\n");
+                    }
+                    out.write("]\n");
+                    break;
+                case "xml":
+                    out.write("<services>\n");
+                    for (int id = 1; id <= count; id++) {
+                        ServiceMonitorApplication.Service s = service(id, count);
+                        out.write("    <service>\n");
+                        for (String[] field : fields(s)) {
+                            out.write("        <" + field[0] + ">" + field[1] + "</" + field[0] + ">\n");
+                        }
+                        out.write("    </service>\n");
+                    }
+                    out.write("</services>\n");
+                    break;
+                case "csv":
+                    out.write("ID,Service Name,Service Host,Service Port,Service Resource URI,Service Method,Expected Telnet Response,"
+                            + "Expected Request Response,Monitoring Intervals,Monitoring Intervals TimeUnit,Enable File Logging,"
+                            + "File Logging Interval,Enable Logs Archiving,Log Archiving Intervals\n");
+                    for (int id = 1; id <= count; id++) {
+                        StringBuilder line = new StringBuilder();
+                        for (String[] field : fields(service(id, count))) {
+                            line.append(line.length() == 0 ? "" : ",").append(field[1]);
+                        }
+                        out.write(line.append('\n').toString());
+                    }
+                    break;
+                case "yaml":
+                    out.write("services:\n");
+                    for (int id = 1; id <= count; id++) {
+                        String prefix = "  - ";
+                        for (String[] field : fields(service(id, count))) {
+                            boolean number = field[0].equals("id") || field[0].equals("servicePort") || field[0].equals("monitoringInterval");
+                            out.write(prefix + field[0] + ": " + (number ? field[1] : "\"" + field[1] + "\"") + "\n");
+                            prefix = "    ";
+                        }
+                    }
+                    break;
+                case "ini":
+                    for (int id = 1; id <= count; id++) {
+                        out.write("[Service" + id + "]\n");
+                        for (String[] field : fields(service(id, count))) {
+                            out.write(field[0] + " = " + field[1] + "\n");
+                        }
+                        out.write("\n");
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown format " + format);
+            }
+        }
+        return file;
+    }
+
+    private static String[][] fields(ServiceMonitorApplication.Service s) {
+        return new String[][]{
+                {"id", String.valueOf(s.getid())},
+                {"serviceName", s.getServiceName()},
+                {"serviceHost", s.getServiceHost()},
+                {"servicePort", String.valueOf(s.getServicePort())},
+                {"serviceResourceURI", s.getServiceResourceURI()},
+                {"serviceMethod", s.getServiceMethod()},
+                {"expectedTelnetResponse", s.getExpectedTelnetResponse()},
+                {"expectedRequestResponse", s.getExpectedRequestResponse()},
+                {"monitoringInterval", String.valueOf(s.getMonitoringInterval())},
+                {"monitoringIntervalTimeUnit", s.getMonitoringIntervalTimeUnit()},
+                {"enableFileLogging", s.getEnableFileLogging()},
+                {"fileLoggingInterval", s.getFileLoggingInterval()},
+                {"enableLogsArchiving", s.getEnableLogsArchiving()},
+                {"logArchivingIntervals", s.getLogArchivingIntervals()},
+        };
+    }
+
+    /**
+     * One hour of per-second status entries of the given type, in the status log format.
+     */
+    static byte[] hourOfLog(long hourStart, String type, Random random) {
+        StringBuilder log = new StringBuilder(3600 * 40);
+        String suffix = " - " + type.toUpperCase() + " is ";
+        for (int second = 0; second < 3600; second++) {
+            log.append(ENTRY_FORMAT.format(Instant.ofEpochMilli(hourStart + second * 1000L))).append(suffix)
+                    .append(random.nextInt(1000) == 0 ? "DOWN" : "UP").append('\n');
+        }
+        return log.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String logFileName(long hourStart, String type) {
+        return FILE_NAME_FORMAT.format(Instant.ofEpochMilli(hourStart)) + "_" + type + ".log";
+    }
+
+    /**
+     * Writes days of hourly application logs for one service: the older half into weekly archives under
+     * archiveDirectory, the rest under loggingDirectory, as the archiver would have left them.
+     */
+    static void writeHistory(Path loggingDirectory, Path archiveDirectory, String serviceName, long start, int days)
+            throws IOException {
+        Path statusDirectory = loggingDirectory.resolve(serviceName.replaceAll("\\s+", "_")).resolve("application_status");
+        Files.createDirectories(statusDirectory);
+        Files.createDirectories(archiveDirectory);
+        Random random = new Random(21);
+        int hours = days * 24;
+        int archivedHours = hours / 2;
+        ZipOutputStream zip = null;
+        try {
+            for (int hour = 0; hour < hours; hour++) {
+                long hourStart = start + hour * 3_600_000L;
+                byte[] log = hourOfLog(hourStart, "application", random);
+                String name = logFileName(hourStart, "application");
+                if (hour < archivedHours) {
+                    if (hour % (24 * 7) == 0) {
+                        if (zip != null) {
+                            zip.close();
+                        }
+                        OutputStream file = Files.newOutputStream(archiveDirectory.resolve(serviceName + "_logs_" + hourStart + ".zip"));
+                        zip = new ZipOutputStream(file);
+                    }
+                    zip.putNextEntry(new ZipEntry("application_status/" + name));
+                    zip.write(log);
+                    zip.closeEntry();
+                } else {
+                    Files.write(statusDirectory.resolve(name), log);
+                }
+            }
+        } finally {
+            if (zip != null) {
+                zip.close();
+            }
+        }
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,151 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Entry point of the benchmark jar. "baseline" runs the benchmarks and keeps the JSON results as the
+ * baseline, "compare" runs them again and fails when a score got worse than the baseline by more than
+ * the threshold and the error margins, and "diff" compares two result files without running anything.
+ * Both runs also record the peak heap of every benchmark through {@link PeakHeapProfiler}, which is
+ * compared the same way. Anything else is handed to JMH as is.
+ */
+public final class BenchmarkMain {
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path baseline = Paths.get(System.getProperty("bench.baseline", "bench/baseline.json"));
+        double threshold = Double.parseDouble(System.getProperty("bench.threshold", "0.10"));
+        String command = args.length > 0 ? args[0] : "";
+        switch (command) {
+            case "baseline":
+                run(Arrays.copyOfRange(args, 1, args.length), baseline);
+                System.out.println("Baseline written to " + baseline);
+                break;
+            case "compare":
+                Path latest = Paths.get(System.getProperty("bench.latest", "bench/latest.json"));
+                run(Arrays.copyOfRange(args, 1, args.length), latest);
+                System.exit(compare(baseline, latest, threshold) > 0 ? 1 : 0);
+                break;
+            case "diff":
+                if (args.length != 3) {
+                    System.out.println("Usage: diff <baseline.json> <latest.json>");
+                    System.exit(2);
+                }
+                System.exit(compare(Paths.get(args[1]), Paths.get(args[2]), threshold) > 0 ? 1 : 0);
+                break;
+            default:
+                org.openjdk.jmh.Main.main(args);
+        }
+    }
+
+    private static void run(String[] jmhArgs, Path result) throws IOException, RunnerException {
+        CommandLineOptions options;
+        try {
+            options = new CommandLineOptions(jmhArgs);
+        } catch (CommandLineOptionException e) {
+            System.out.println("Invalid JMH options: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        Path parent = result.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        new Runner(new OptionsBuilder()
+                .parent(options)
+                .addProfiler(PeakHeapProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString())
+                .build()).run();
+    }
+
+    /**
+     * Prints every benchmark found in both files and returns how many scores regressed. Throughput scores
+     * are better when higher, all other modes and the peak heap when lower.
+     */
+    static int compare(Path baselineFile, Path latestFile, double threshold) throws IOException {
+        Map<String, JsonNode> baseline = readResults(baselineFile);
+        Map<String, JsonNode> latest = readResults(latestFile);
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %9s%n", "Benchmark", "baseline", "latest", "change");
+        for (Map.Entry<String, JsonNode> entry : latest.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            JsonNode after = entry.getValue();
+            boolean higherIsBetter = "thrpt".equals(after.path("mode").asText());
+            if (compare(entry.getKey(), before == null ? null : before.path("primaryMetric"), after.path("primaryMetric"),
+                    higherIsBetter, threshold)) {
+                regressions++;
+            }
+            JsonNode peakHeap = after.path("secondaryMetrics").path(PeakHeapProfiler.LABEL);
+            if (!peakHeap.isMissingNode() && compare(entry.getKey() + " " + PeakHeapProfiler.LABEL,
+                    before == null ? null : before.path("secondaryMetrics").get(PeakHeapProfiler.LABEL), peakHeap, false, threshold)) {
+                regressions++;
+            }
+        }
+        System.out.println(regressions == 0 ? "No regressions beyond " + Math.round(threshold * 100) + "%."
+                : regressions + " regression(s) beyond " + Math.round(threshold * 100) + "%.");
+        return regressions;
+    }
+
+    private static boolean compare(String name, JsonNode before, JsonNode after, boolean higherIsBetter, double threshold) {
+        if (before == null) {
+            System.out.printf("%-70s %14s %14.3f %9s%n", name, "-", score(after), "new");
+            return false;
+        }
+        double oldScore = score(before);
+        double newScore = score(after);
+        double worse = higherIsBetter ? oldScore - newScore : newScore - oldScore;
+        double margin = error(before) + error(after);
+        boolean regressed = worse > Math.abs(oldScore) * threshold && worse > margin;
+        double change = oldScore == 0 ? 0 : (newScore - oldScore) / Math.abs(oldScore) * 100;
+        System.out.printf("%-70s %14.3f %14.3f %+8.1f%%%s%n", name, oldScore, newScore, change,
+                regressed ? "  REGRESSION" : "");
+        return regressed;
+    }
+
+    private static Map<String, JsonNode> readResults(Path file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : JSON_MAPPER.readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText().replace("org.example.", ""));
+            key.append(" [").append(result.path("mode").asText());
+            Map<String, String> params = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = result.path("params").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                params.put(field.getKey(), field.getValue().asText());
+            }
+            params.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            results.put(key.append(']').toString(), result);
+        }
+        return results;
+    }
+
+    private static double score(JsonNode metric) {
+        return metric.path("score").asDouble();
+    }
+
+    private static double error(JsonNode metric) {
+        double error = metric.path("scoreError").asDouble(0);
+        return Double.isNaN(error) ? 0 : error;
+    }
+}
@@ -0,0 +1,70 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a service catalog of each supported format at 1k, 10k and 100k services, both parsed from the
+ * source file and decoded from an up-to-date catalog snapshot. Each fork has the same fixed heap, so the peak
+ * heap that {@link PeakHeapProfiler} records next to the load time can be compared between runs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class CatalogLoadBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int count;
+
+    @Param({"json", "xml", "csv", "yaml", "ini"})
+    public String format;
+
+    private Path directory;
+    private String file;
+    private CatalogSnapshot snapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("bench-catalog");
+        file = BenchmarkData.writeCatalog(directory, format, count).toString();
+        snapshot = new CatalogSnapshot(directory.resolve("snapshots"));
+        List<ServiceMonitorApplication.Service> services = snapshot.load(file);
+        if (services == null || services.size() != count) {
+            throw new IllegalStateException("Expected " + count + " services in " + file + ", read "
+                    + (services == null ? "none" : services.size()));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public List<ServiceMonitorApplication.Service> parse() {
+        return ServiceFileReader.readAll(file);
+    }
+
+    @Benchmark
+    public List<ServiceMonitorApplication.Service> snapshot() {
+        return snapshot.load(file);
+    }
+}
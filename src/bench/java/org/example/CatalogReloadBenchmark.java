@@ -0,0 +1,61 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A catalog reload where one service changed between loads, with parsing taken out of the picture: the
+ * loader hands back prepared lists, so this measures compiling the registry and computing the diff.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogReloadBenchmark {
+    @Param({"50000"})
+    public int size;
+
+    private final List<List<ServiceMonitorApplication.Service>> versions = new ArrayList<>();
+    private ServiceCatalog catalog;
+    private int version;
+
+    @Setup
+    public void setUp() {
+        List<ServiceMonitorApplication.Service> original = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            original.add(BenchmarkData.service(id, size));
+        }
+        List<ServiceMonitorApplication.Service> edited = new ArrayList<>(original);
+        ServiceMonitorApplication.Service changed = BenchmarkData.service(size / 2, 1);
+        edited.set(size / 2 - 1, changed);
+        versions.add(original);
+        versions.add(edited);
+        catalog = new ServiceCatalog(Paths.get("services.json"), file -> versions.get(version++ & 1));
+        catalog.reload();
+    }
+
+    @Benchmark
+    public ServiceCatalog.Diff reloadOneChanged() {
+        ServiceCatalog.Diff diff = catalog.reload();
+        if (diff.getChanged().size() != 1) {
+            throw new IllegalStateException("Expected one changed service, got " + diff.getChanged().size());
+        }
+        return diff;
+    }
+}
@@ -0,0 +1,127 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A one-hour history query over days of per-second status logs, half of them in archives: through the
+ * history index, and as a full scan of every log file and archive entry.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryBenchmark {
+    private static final String SERVICE_NAME = "History Service";
+
+    @Param({"30", "365"})
+    public int days;
+
+    private Path directory;
+    private Path loggingDirectory;
+    private Path archiveDirectory;
+    private LogHistory history;
+    private long fromKey;
+    private long toKey;
+    private String fromText;
+    private String toText;
+    private long expected;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("bench-history");
+        loggingDirectory = directory.resolve("logging");
+        archiveDirectory = directory.resolve("logs");
+        long start = (System.currentTimeMillis() / 3_600_000L - days * 24L) * 3_600_000L;
+        BenchmarkData.writeHistory(loggingDirectory, archiveDirectory, SERVICE_NAME, start, days);
+        history = new LogHistory(loggingDirectory, archiveDirectory, directory.resolve("index"));
+        // An hour a third of the way in, so it sits inside an archive.
+        long from = start + (days * 24L / 3) * 3_600_000L;
+        fromKey = LogHistory.toKey(from);
+        toKey = LogHistory.toKey(from + 3_599_000L);
+        fromText = StatusLogWriter.formatEntry(from, "application", true).substring(0, 15);
+        toText = StatusLogWriter.formatEntry(from + 3_599_000L, "application", true).substring(0, 15);
+        expected = history.query(SERVICE_NAME, "application", fromKey, toKey, LogHistory.STATUS_ANY, OutputStream.nullOutputStream());
+        long scanned = fullScan();
+        if (expected != 3600 || scanned != expected) {
+            throw new IllegalStateException("Expected 3600 lines, index found " + expected + ", scan found " + scanned);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public long indexed() throws IOException {
+        return history.query(SERVICE_NAME, "application", fromKey, toKey, LogHistory.STATUS_ANY, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public long fullScan() throws IOException {
+        long found = 0;
+        Path statusDirectory = loggingDirectory.resolve(SERVICE_NAME.replaceAll("\\s+", "_")).resolve("application_status");
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(statusDirectory, "*.log")) {
+            for (Path file : files) {
+                try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    found += scan(reader);
+                }
+            }
+        }
+        try (DirectoryStream<Path> archives = Files.newDirectoryStream(archiveDirectory, SERVICE_NAME + "_logs_*.zip")) {
+            for (Path archive : archives) {
+                try (ZipFile zip = new ZipFile(archive.toFile())) {
+                    Enumeration<? extends ZipEntry> entries = zip.entries();
+                    while (entries.hasMoreElements()) {
+                        ZipEntry entry = entries.nextElement();
+                        if (!entry.getName().startsWith("application_status/")) {
+                            continue;
+                        }
+                        try (BufferedReader reader = new BufferedReader(new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8))) {
+                            found += scan(reader);
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private long scan(BufferedReader reader) throws IOException {
+        long found = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String time = line.substring(0, Math.min(15, line.length()));
+            if (time.compareTo(fromText) >= 0 && time.compareTo(toText) <= 0) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,475 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many services one instance can monitor at a given interval, without any network. Local
+ * HTTPS stubs with configurable latency, errors and slow bodies, a TCP port that accepts and hangs up and
+ * a port whose full accept queue makes Linux drop every SYN stand in for the services; a matching catalog
+ * is written to a work directory and the monitor is started against it in a child JVM. Schedule lag,
+ * probe latency, CPU, heap and file descriptors are read from the monitor's metrics endpoint.
+ *
+ * <pre>java -cp target/benchmarks.jar org.example.LoadHarness --services 10000 --interval 30s --duration 5m</pre>
+ */
+public final class LoadHarness {
+    private static final String EXPECTED_TEXT = "Service is healthy";
+    private static final String BODY = "<html><body><h1>Status</h1><p>" + EXPECTED_TEXT + "</p>"
+            + "<p>" + "x".repeat(2048) + "</p></body></html>";
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        if (options == null) {
+            printUsage();
+            System.exit(2);
+            return;
+        }
+        int services = Integer.parseInt(options.getOrDefault("services", "10000"));
+        long intervalMillis = parseMillis(options.getOrDefault("interval", "30s"));
+        long durationMillis = parseMillis(options.getOrDefault("duration", "5m"));
+        long warmupMillis = parseMillis(options.getOrDefault("warmup", Math.min(intervalMillis, durationMillis / 4) + "ms"));
+        long sampleMillis = parseMillis(options.getOrDefault("sample", "5s"));
+        int hosts = Integer.parseInt(options.getOrDefault("hosts", "20"));
+        StubHttpsServer.Faults faults = new StubHttpsServer.Faults(
+                parseMillis(options.getOrDefault("latency", "20ms")),
+                parseMillis(options.getOrDefault("jitter", "30ms")),
+                Double.parseDouble(options.getOrDefault("errorRate", "0.01")),
+                Double.parseDouble(options.getOrDefault("slowRate", "0.01")),
+                parseMillis(options.getOrDefault("slowBody", "3s")));
+        double dropRate = Double.parseDouble(options.getOrDefault("dropRate", "0.005"));
+        double tcpOnlyRate = Double.parseDouble(options.getOrDefault("tcpOnlyRate", "0.005"));
+        String jvmOptions = options.getOrDefault("jvm", "-Xmx1g");
+        Path workDirectory = options.containsKey("workDir")
+                ? Files.createDirectories(Paths.get(options.get("workDir")))
+                : Files.createTempDirectory("sky-monitor-load");
+
+        List<AutoCloseable> resources = new ArrayList<>();
+        ExecutorService stubExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        Process monitor = null;
+        try {
+            List<StubHttpsServer> stubs = new ArrayList<>();
+            for (int i = 0; i < hosts; i++) {
+                // Every stub gets its own loopback address, so each one is a separate route and DNS name.
+                StubHttpsServer stub = new StubHttpsServer(InetAddress.getByName("127.0.0." + (i + 1)), stubExecutor, BODY, faults);
+                stubs.add(stub);
+                resources.add(stub);
+            }
+            ServerSocket tcpOnly = startTcpOnlyStub(stubExecutor);
+            resources.add(tcpOnly);
+            ServerSocket dropping = new ServerSocket();
+            resources.add(dropping);
+            List<Socket> backlog = startDroppingStub(dropping);
+            resources.addAll(backlog);
+
+            Path catalog = workDirectory.resolve("services.json");
+            writeCatalog(catalog, services, intervalMillis, stubs, tcpOnly, dropping, dropRate, tcpOnlyRate);
+            int metricsPort;
+            try (ServerSocket probe = new ServerSocket(0)) {
+                metricsPort = probe.getLocalPort();
+            }
+            System.out.printf("%d services every %s against %d HTTPS stubs (latency %d+%d ms, %.1f%% errors, %.1f%% slow bodies),"
+                            + " %.1f%% dropped SYNs, %.1f%% TCP only%nWork directory: %s%n",
+                    services, formatMillis(intervalMillis), hosts, faults.latencyMillis, faults.jitterMillis,
+                    faults.errorRate * 100, faults.slowRate * 100, dropRate * 100, tcpOnlyRate * 100, workDirectory);
+
+            monitor = startMonitor(workDirectory, catalog, metricsPort, jvmOptions);
+            Writer commands = new OutputStreamWriter(monitor.getOutputStream(), StandardCharsets.UTF_8);
+            commands.write("sky-monitor start\n");
+            commands.flush();
+            String metricsUrl = "http://127.0.0.1:" + metricsPort + "/metrics";
+            Scrape start = waitForMetrics(metricsUrl, monitor);
+            long startedAt = System.nanoTime();
+
+            Scrape warm = null;
+            Scrape previous = start;
+            Peaks peaks = new Peaks();
+            System.out.printf("%8s %10s %12s %12s %10s %10s %8s %8s%n", "elapsed", "probes/s", "lag p99", "probe p99",
+                    "cpu cores", "heap MB", "fds", "threads");
+            while (System.nanoTime() - startedAt < TimeUnit.MILLISECONDS.toNanos(durationMillis)) {
+                Thread.sleep(sampleMillis);
+                if (!monitor.isAlive()) {
+                    throw new IOException("The monitor exited with status " + monitor.exitValue() + ", see " + workDirectory.resolve("monitor.out"));
+                }
+                Scrape current = Scrape.fetch(metricsUrl);
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+                if (warm == null && elapsedMillis >= warmupMillis) {
+                    warm = current;
+                }
+                if (warm != null) {
+                    peaks.update(current);
+                }
+                printSample(elapsedMillis, previous, current);
+                previous = current;
+            }
+            Scrape end = Scrape.fetch(metricsUrl);
+            if (warm == null) {
+                warm = start;
+            }
+            peaks.update(end);
+            printReport(services, intervalMillis, warm, end, peaks, stubs);
+
+            commands.write("exit\n");
+            commands.flush();
+        } finally {
+            if (monitor != null && !monitor.waitFor(30, TimeUnit.SECONDS)) {
+                monitor.destroyForcibly();
+            }
+            for (AutoCloseable resource : resources) {
+                try {
+                    resource.close();
+                } catch (Exception e) {
+                    // Shutting down anyway.
+                }
+            }
+            stubExecutor.shutdownNow();
+            if (!options.containsKey("workDir")) {
+                BenchmarkData.deleteRecursively(workDirectory);
+            }
+        }
+    }
+
+    private static ServerSocket startTcpOnlyStub(ExecutorService executor) throws IOException {
+        ServerSocket server = new ServerSocket();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        executor.execute(() -> {
+            while (!server.isClosed()) {
+                try {
+                    server.accept().close();
+                } catch (IOException e) {
+                    // Closed when the harness ends.
+                }
+            }
+        });
+        return server;
+    }
+
+    /**
+     * Fills the accept queue of a socket that is never accepted from. Linux then drops further SYNs, so
+     * connects to it time out the way they do against a filtering firewall.
+     */
+    private static List<Socket> startDroppingStub(ServerSocket server) throws IOException {
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1);
+        List<Socket> backlog = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(server.getLocalSocketAddress(), 500);
+                backlog.add(socket);
+            } catch (SocketTimeoutException e) {
+                socket.close();
+                return backlog;
+            }
+        }
+        System.out.println("Warning: the accept queue did not fill up, SYNs to the dropping stub are not dropped.");
+        return backlog;
+    }
+
+    private static void writeCatalog(Path file, int services, long intervalMillis, List<StubHttpsServer> stubs,
+                                     ServerSocket tcpOnly, ServerSocket dropping, double dropRate, double tcpOnlyRate)
+            throws IOException {
+        boolean seconds = intervalMillis % 60_000 != 0;
+        long interval = seconds ? Math.max(1, intervalMillis / 1000) : intervalMillis / 60_000;
+        Random random = new Random(23);
+        List<Map<String, Object>> catalog = new ArrayList<>(services);
+        for (int id = 1; id <= services; id++) {
+            String host;
+            int port;
+            double fault = random.nextDouble();
+            if (fault < dropRate) {
+                host = dropping.getInetAddress().getHostAddress();
+                port = dropping.getLocalPort();
+            } else if (fault < dropRate + tcpOnlyRate) {
+                host = tcpOnly.getInetAddress().getHostAddress();
+                port = tcpOnly.getLocalPort();
+            } else {
+                StubHttpsServer stub = stubs.get(id % stubs.size());
+                host = stub.getHost();
+                port = stub.getPort();
+            }
+            Map<String, Object> service = new LinkedHashMap<>();
+            service.put("id", id);
+            service.put("serviceName", "Load Service " + id);
+            service.put("serviceHost", host);
+            service.put("servicePort", port);
+            service.put("serviceResourceURI", "/health/" + id);
+            service.put("serviceMethod", "GET");
+            service.put("expectedTelnetResponse", "Connected to " + host + ".");
+            service.put("expectedRequestResponse", EXPECTED_TEXT);
+            service.put("monitoringInterval", interval);
+            service.put("monitoringIntervalTimeUnit", seconds ? "Seconds" : "Minutes");
+            service.put("enableFileLogging", "Yes");
+            service.put("fileLoggingInterval", "Hourly");
+            service.put("enableLogsArchiving", "No");
+            service.put("logArchivingIntervals", "Weekly");
+            catalog.add(service);
+        }
+        JSON_MAPPER.writeValue(file.toFile(), catalog);
+    }
+
+    private static Process startMonitor(Path workDirectory, Path catalog, int metricsPort, String jvmOptions) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String option : jvmOptions.trim().split("\\s+")) {
+            if (!option.isEmpty()) {
+                command.add(option);
+            }
+        }
+        command.add("-Dsky.monitor.metrics.port=" + metricsPort);
+        command.add("-cp");
+        // The monitor runs in the work directory, so relative class path entries have to be resolved here.
+        StringBuilder classPath = new StringBuilder();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            classPath.append(classPath.length() == 0 ? "" : File.pathSeparator).append(Paths.get(entry).toAbsolutePath());
+        }
+        command.add(classPath.toString());
+        command.add(ServiceMonitorApplication.class.getName());
+        command.add(catalog.toString());
+        return new ProcessBuilder(command)
+                .directory(workDirectory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(workDirectory.resolve("monitor.out").toFile())
+                .start();
+    }
+
+    private static Scrape waitForMetrics(String url, Process monitor) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+        while (System.nanoTime() < deadline) {
+            if (!monitor.isAlive()) {
+                throw new IOException("The monitor exited with status " + monitor.exitValue() + " before starting");
+            }
+            try {
+                return Scrape.fetch(url);
+            } catch (IOException e) {
+                Thread.sleep(200);
+            }
+        }
+        throw new IOException("The monitor's metrics endpoint did not come up at " + url);
+    }
+
+    private static void printSample(long elapsedMillis, Scrape previous, Scrape current) {
+        double seconds = (current.takenAtNanos - previous.takenAtNanos) / 1e9;
+        System.out.printf("%8s %10.1f %12s %12s %10.2f %10.1f %8.0f %8.0f%n", formatMillis(elapsedMillis),
+                (current.sum("sky_monitor_probes_total") - previous.sum("sky_monitor_probes_total")) / seconds,
+                formatQuantile(current.histogram("sky_monitor_schedule_lag_seconds"), previous.histogram("sky_monitor_schedule_lag_seconds"), 0.99),
+                formatQuantile(current.histogram("sky_monitor_probe_duration_seconds"), previous.histogram("sky_monitor_probe_duration_seconds"), 0.99),
+                (current.sum("process_cpu_seconds_total") - previous.sum("process_cpu_seconds_total")) / seconds,
+                current.sum("jvm_memory_heap_used_bytes") / (1024.0 * 1024.0),
+                current.sum("process_open_fds"),
+                current.sum("jvm_threads_live"));
+    }
+
+    private static void printReport(int services, long intervalMillis, Scrape from, Scrape to, Peaks peaks,
+                                    List<StubHttpsServer> stubs) {
+        double seconds = (to.takenAtNanos - from.takenAtNanos) / 1e9;
+        double probes = to.sum("sky_monitor_probes_total") - from.sum("sky_monitor_probes_total");
+        double expected = services * seconds * 1000 / intervalMillis;
+        TreeMap<Double, Double> lagTo = to.histogram("sky_monitor_schedule_lag_seconds");
+        TreeMap<Double, Double> lagFrom = from.histogram("sky_monitor_schedule_lag_seconds");
+        TreeMap<Double, Double> durationTo = to.histogram("sky_monitor_probe_duration_seconds");
+        TreeMap<Double, Double> durationFrom = from.histogram("sky_monitor_probe_duration_seconds");
+        long requests = 0;
+        long errors = 0;
+        long slowBodies = 0;
+        for (StubHttpsServer stub : stubs) {
+            requests += stub.getRequests();
+            errors += stub.getErrors();
+            slowBodies += stub.getSlowBodies();
+        }
+
+        System.out.println();
+        System.out.printf("Measured over %s after warm-up%n", formatMillis((long) (seconds * 1000)));
+        System.out.printf("  probes             %.0f of %.0f due (%.1f%%), %.1f/s%n", probes, expected,
+                expected > 0 ? probes * 100 / expected : 0, probes / seconds);
+        System.out.printf("  schedule lag       p50 %s  p90 %s  p99 %s  p99.9 %s%n",
+                formatQuantile(lagTo, lagFrom, 0.5), formatQuantile(lagTo, lagFrom, 0.9),
+                formatQuantile(lagTo, lagFrom, 0.99), formatQuantile(lagTo, lagFrom, 0.999));
+        System.out.printf("  probe latency      p50 %s  p90 %s  p99 %s  p99.9 %s%n",
+                formatQuantile(durationTo, durationFrom, 0.5), formatQuantile(durationTo, durationFrom, 0.9),
+                formatQuantile(durationTo, durationFrom, 0.99), formatQuantile(durationTo, durationFrom, 0.999));
+        System.out.printf("  results            %.0f server down, %.0f application down, %.0f content mismatches%n",
+                to.sum("sky_monitor_server_down_total") - from.sum("sky_monitor_server_down_total"),
+                to.sum("sky_monitor_application_down_total") - from.sum("sky_monitor_application_down_total"),
+                to.sum("sky_monitor_content_mismatch_total") - from.sum("sky_monitor_content_mismatch_total"));
+        System.out.printf("  cpu                %.2f cores on average, %d available%n",
+                (to.sum("process_cpu_seconds_total") - from.sum("process_cpu_seconds_total")) / seconds,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("  heap               %.1f MB peak used, %.1f MB committed%n",
+                peaks.heapUsed / (1024.0 * 1024.0), to.sum("jvm_memory_heap_committed_bytes") / (1024.0 * 1024.0));
+        System.out.printf("  file descriptors   %.0f peak of %.0f%n", peaks.openFds, to.sum("process_max_fds"));
+        System.out.printf("  threads            %.0f peak%n", peaks.threads);
+        System.out.printf("  stubs              %d requests, %d answered 503, %d slow bodies%n", requests, errors, slowBodies);
+        // Histogram buckets are powers of two, so quantiles are upper bounds; a tenth of the interval is
+        // the point where probes start drifting visibly.
+        double lagP99 = quantile(lagTo, lagFrom, 0.99);
+        boolean keepsUp = probes >= expected * 0.95 && lagP99 <= intervalMillis / 10_000.0;
+        System.out.println(keepsUp
+                ? "The instance keeps up with this load."
+                : "The instance does NOT keep up with this load: probes are late or missing.");
+    }
+
+    /**
+     * The upper bound of the bucket holding the quantile of the observations between the two scrapes.
+     */
+    private static double quantile(TreeMap<Double, Double> to, TreeMap<Double, Double> from, double quantile) {
+        double total = to.getOrDefault(Double.POSITIVE_INFINITY, 0.0) - from.getOrDefault(Double.POSITIVE_INFINITY, 0.0);
+        if (total <= 0) {
+            return Double.NaN;
+        }
+        for (Map.Entry<Double, Double> bucket : to.entrySet()) {
+            double count = bucket.getValue() - from.getOrDefault(bucket.getKey(), 0.0);
+            if (count >= total * quantile) {
+                return bucket.getKey();
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private static String formatQuantile(TreeMap<Double, Double> to, TreeMap<Double, Double> from, double quantile) {
+        double seconds = quantile(to, from, quantile);
+        if (Double.isNaN(seconds)) {
+            return "-";
+        }
+        if (Double.isInfinite(seconds)) {
+            return ">67s";
+        }
+        return "<" + (seconds < 1 ? Math.round(seconds * 1000) + "ms" : Math.round(seconds) + "s");
+    }
+
+    static long parseMillis(String value) {
+        String trimmed = value.trim().toLowerCase();
+        if (trimmed.endsWith("ms")) {
+            return Long.parseLong(trimmed.substring(0, trimmed.length() - 2));
+        }
+        long amount = Long.parseLong(trimmed.substring(0, trimmed.length() - 1));
+        switch (trimmed.charAt(trimmed.length() - 1)) {
+            case 's':
+                return TimeUnit.SECONDS.toMillis(amount);
+            case 'm':
+                return TimeUnit.MINUTES.toMillis(amount);
+            case 'h':
+                return TimeUnit.HOURS.toMillis(amount);
+            default:
+                throw new IllegalArgumentException("Unknown duration " + value + ", use e.g. 500ms, 30s, 5m or 1h");
+        }
+    }
+
+    private static String formatMillis(long millis) {
+        if (millis % 60_000 == 0 && millis > 0) {
+            return millis / 60_000 + "m";
+        }
+        return millis % 1000 == 0 ? millis / 1000 + "s" : millis + "ms";
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                return null;
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: LoadHarness [--services 10000] [--interval 30s] [--duration 5m] [--warmup <interval>]"
+                + " [--sample 5s] [--hosts 20] [--latency 20ms] [--jitter 30ms] [--errorRate 0.01] [--slowRate 0.01]"
+                + " [--slowBody 3s] [--dropRate 0.005] [--tcpOnlyRate 0.005] [--jvm \"-Xmx1g\"] [--workDir <dir>]");
+    }
+
+    private static final class Peaks {
+        private double heapUsed;
+        private double openFds;
+        private double threads;
+
+        void update(Scrape scrape) {
+            heapUsed = Math.max(heapUsed, scrape.sum("jvm_memory_heap_used_bytes"));
+            openFds = Math.max(openFds, scrape.sum("process_open_fds"));
+            threads = Math.max(threads, scrape.sum("jvm_threads_live"));
+        }
+    }
+
+    /**
+     * One read of the metrics endpoint: every sample summed over its label sets, and histogram buckets
+     * summed per upper bound.
+     */
+    private static final class Scrape {
+        private final long takenAtNanos = System.nanoTime();
+        private final Map<String, Double> sums = new HashMap<>();
+        private final Map<String, TreeMap<Double, Double>> histograms = new HashMap<>();
+
+        static Scrape fetch(String url) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
+            connection.setConnectTimeout(2000);
+            connection.setReadTimeout(30_000);
+            Scrape scrape = new Scrape();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    scrape.add(line);
+                }
+            } finally {
+                connection.disconnect();
+            }
+            return scrape;
+        }
+
+        private void add(String line) {
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                return;
+            }
+            int space = line.lastIndexOf(' ');
+            int brace = line.indexOf('{');
+            String name = line.substring(0, brace >= 0 && brace < space ? brace : space);
+            double value = Double.parseDouble(line.substring(space + 1));
+            sums.merge(name, value, Double::sum);
+            if (name.endsWith("_bucket")) {
+                int le = line.indexOf("le=\"");
+                String bound = line.substring(le + 4, line.indexOf('"', le + 4));
+                double upper = bound.equals("+Inf") ? Double.POSITIVE_INFINITY : Double.parseDouble(bound);
+                histograms.computeIfAbsent(name.substring(0, name.length() - "_bucket".length()), key -> new TreeMap<>())
+                        .merge(upper, value, Double::sum);
+            }
+        }
+
+        double sum(String name) {
+            return sums.getOrDefault(name, 0.0);
+        }
+
+        TreeMap<Double, Double> histogram(String name) {
+            return histograms.getOrDefault(name, new TreeMap<>());
+        }
+    }
+}
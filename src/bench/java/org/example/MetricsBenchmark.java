@@ -0,0 +1,61 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the metrics add to every probe: recording a probe into its service's instruments and a latency
+ * into a shared histogram from several threads, next to a baseline that only consumes the same values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+    private MonitorMetrics.ServiceMetrics serviceMetrics;
+    private LatencyHistogram histogram;
+    private ProbeResult up;
+    private ProbeResult down;
+
+    @Setup
+    public void setUp() {
+        MonitorMetrics metrics = new MonitorMetrics(new HostResolver(30, 10), new ReachabilityCoalescer(1000));
+        serviceMetrics = metrics.register(1, "Service 1");
+        histogram = new LatencyHistogram();
+        up = new ProbeResult(1, System.currentTimeMillis(), true, 200, ProbeTimings.NONE);
+        down = new ProbeResult(1, System.currentTimeMillis(), false, ProbeResult.NO_HTTP_STATUS, ProbeTimings.NONE);
+    }
+
+    @Benchmark
+    public void baseline(Blackhole blackhole) {
+        long nanos = System.nanoTime();
+        blackhole.consume(nanos);
+        blackhole.consume((nanos & 15) == 0 ? down : up);
+    }
+
+    @Benchmark
+    public void recordProbe() {
+        long nanos = System.nanoTime();
+        serviceMetrics.record(nanos & 0xFFFFFF, (nanos & 15) == 0 ? down : up);
+    }
+
+    @Benchmark
+    public void recordLatency() {
+        histogram.recordNanos(System.nanoTime() & 0xFFFFFFF);
+    }
+}
@@ -0,0 +1,53 @@
+package org.example;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Reports the peak heap of each iteration as the secondary metric "peak.heap", in MB, and the highest one
+ * over all iterations for the benchmark. The heap is collected and the pool peaks reset before every
+ * iteration; the peaks of the heap pools are then added up, which may overstate the heap in use at any
+ * one moment but never understates it. Runs in the forked JVM, so other benchmarks do not count.
+ */
+public class PeakHeapProfiler implements InternalProfiler {
+    public static final String LABEL = "peak.heap";
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes") // InternalProfiler declares the raw Result, so the override has to match it.
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                       IterationResult result) {
+        long peakBytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                peakBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+        return Collections.singletonList(new ScalarResult(LABEL, peakBytes / (1024.0 * 1024.0), "MB", AggregationPolicy.MAX));
+    }
+
+    @Override
+    public String getDescription() {
+        return "Peak heap usage per iteration";
+    }
+}
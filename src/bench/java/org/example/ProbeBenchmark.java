@@ -0,0 +1,104 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probe throughput against an in-process HTTPS server: single probes over pooled keep-alive connections on
+ * the shared event loop, with and without a body match, and a sweep of 10k services through the probe
+ * engine's concurrency cap.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProbeBenchmark {
+    private static final int SWEEP_SERVICES = 10_000;
+    private static final String BODY = "{\"status\":\"ok\",\"checks\":[" + "{\"name\":\"dependency\",\"ok\":true},".repeat(40)
+            + "{\"name\":\"database\",\"ok\":true}],\"message\":\"Service is healthy\"}";
+
+    private StubHttpsServer server;
+    private Probes probes;
+    private Probe probe;
+    private ProbeEngine engine;
+    private BodyMatcher matcher;
+    private ServiceMonitorApplication.Service service;
+    private ServiceMonitorApplication.Service[] sweepServices;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new StubHttpsServer(16, BODY, 0);
+        ProbeContext context = new ProbeContext(new ProbeEventLoop(ProbeEventLoop.DEFAULT_MAX_CONNECTIONS),
+                new HostResolver(30, 10), new ReachabilityCoalescer(1000), null, ProbeContext.createTrustAllSslContext(),
+                ProbeContext.DEFAULT_TIMEOUT_MILLIS, ProbeContext.DEFAULT_MAX_BODY_BYTES);
+        probes = new Probes(context);
+        probe = probes.get(Probes.HTTPS);
+        engine = new ProbeEngine(ProbeEngine.DEFAULT_SCHEDULER_THREADS, 256);
+        matcher = BodyMatcher.forExpectedText("Service is healthy");
+        service = service(0, "/health");
+        sweepServices = new ServiceMonitorApplication.Service[SWEEP_SERVICES];
+        for (int i = 0; i < SWEEP_SERVICES; i++) {
+            sweepServices[i] = service(i, "/health/" + i);
+        }
+    }
+
+    private ServiceMonitorApplication.Service service(int id, String resourceUri) {
+        return new ServiceMonitorApplication.Service(id, "bench-" + id, server.getHost(), server.getPort(), resourceUri,
+                "GET", null, null, 1, "MINUTES", "No", null, "No", null, Probes.HTTPS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdownNow();
+        probes.close();
+        server.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int probe() {
+        return probe.probe(service, null).join().getHttpStatus();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean probeWithMatcher() {
+        return probe.probe(service, matcher).join().isContentMatched();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SWEEP_SERVICES)
+    public int sweep() {
+        List<CompletableFuture<ProbeResult>> results = new ArrayList<>(SWEEP_SERVICES);
+        for (int i = 0; i < SWEEP_SERVICES; i++) {
+            ServiceMonitorApplication.Service sweepService = sweepServices[i];
+            results.add(engine.submit(() -> probe.probe(sweepService, matcher)));
+        }
+        int ok = 0;
+        for (CompletableFuture<ProbeResult> result : results) {
+            if (result.join().getHttpStatus() == 200) {
+                ok++;
+            }
+        }
+        return ok;
+    }
+}
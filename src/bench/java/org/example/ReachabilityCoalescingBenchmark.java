@@ -0,0 +1,150 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A burst of reachability checks for 10k services spread over 50 host names, the way the probes issue
+ * them when their schedules line up, with and without the per-host:port coalescing and DNS cache. The
+ * connects and lookups actually made per sweep are reported as secondary results.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReachabilityCoalescingBenchmark {
+    private static final int SERVICES = 10_000;
+    private static final int HOSTS = 50;
+
+    @Param({"direct", "coalesced"})
+    public String mode;
+
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+    private ExecutorService executor;
+    private HostResolver hostResolver;
+    private ReachabilityCoalescer coalescer;
+    private String[] hosts;
+    private int port;
+    private final LongAdder connects = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(0), 4096);
+        port = serverSocket.getLocalPort();
+        acceptor = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    serverSocket.accept().close();
+                } catch (IOException e) {
+                    // Closed by tearDown.
+                }
+            }
+        }, "bench-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        hostResolver = new HostResolver(30, 10);
+        coalescer = new ReachabilityCoalescer(100);
+        hosts = new String[HOSTS];
+        for (int i = 0; i < HOSTS; i++) {
+            // Loopback addresses stand in for host names; each is still a distinct cache key and route.
+            hosts[i] = "127.0.0." + (i + 1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SERVICES)
+    public int sweep(Counters counters) throws Exception {
+        long connectsBefore = connects.sum();
+        long lookupsBefore = mode.equals("direct") ? lookups.sum() : hostResolver.getLookups();
+        // Every sweep starts cold for the coalescer, as if the previous burst was longer ago than the window.
+        coalescer.clear();
+        List<Future<Boolean>> checks = new ArrayList<>(SERVICES);
+        for (int i = 0; i < SERVICES; i++) {
+            String host = hosts[i % HOSTS];
+            if (mode.equals("direct")) {
+                checks.add(executor.submit(() -> connect(InetAddress.getByName(host), true)));
+            } else {
+                checks.add(executor.submit(() -> coalescer.check(host, port, () -> {
+                    try {
+                        return connect(hostResolver.resolve(host), false);
+                    } catch (IOException e) {
+                        return false;
+                    }
+                })));
+            }
+        }
+        int reachable = 0;
+        for (Future<Boolean> check : checks) {
+            if (check.get()) {
+                reachable++;
+            }
+        }
+        counters.connects += connects.sum() - connectsBefore;
+        counters.lookups += (mode.equals("direct") ? lookups.sum() : hostResolver.getLookups()) - lookupsBefore;
+        return reachable;
+    }
+
+    private boolean connect(InetAddress address, boolean countLookup) {
+        if (countLookup) {
+            lookups.increment();
+        }
+        connects.increment();
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(address, port), 5000);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long connects;
+        public long lookups;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            connects = 0;
+            lookups = 0;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interval conversion and service lookup on the probe path: the string-switch conversions the probes used
+ * to do on every run against the values the registry compiles once, and the registry's id lookup against
+ * a HashMap and the list scan it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegistryBenchmark {
+    @Param({"10000"})
+    public int size;
+
+    private List<ServiceMonitorApplication.Service> services;
+    private ServiceRegistry registry;
+    private Map<Integer, ServiceMonitorApplication.Service> byId;
+    private int[] lookups;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        services = new ArrayList<>(size);
+        byId = new HashMap<>();
+        for (int id = 1; id <= size; id++) {
+            ServiceMonitorApplication.Service service = BenchmarkData.service(id, size);
+            services.add(service);
+            byId.put(id, service);
+        }
+        registry = ServiceRegistry.compile(services);
+        lookups = new int[4096];
+        java.util.Random random = new java.util.Random(14);
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = 1 + random.nextInt(size);
+        }
+    }
+
+    private int nextId() {
+        return lookups[cursor++ & (lookups.length - 1)];
+    }
+
+    @Benchmark
+    public long convertIntervalsFromStrings() {
+        ServiceMonitorApplication.Service service = services.get(nextId() - 1);
+        return ServiceRegistry.monitoringIntervalMillis(service.getMonitoringInterval(), service.getMonitoringIntervalTimeUnit())
+                + ServiceRegistry.fileLoggingIntervalMillis(service.getFileLoggingInterval());
+    }
+
+    @Benchmark
+    public long convertIntervalsCompiled() {
+        int index = nextId() - 1;
+        return registry.monitoringIntervalMillisAt(index) + registry.fileLoggingIntervalMillisAt(index);
+    }
+
+    @Benchmark
+    public ServiceMonitorApplication.Service lookupRegistry() {
+        return registry.get(nextId());
+    }
+
+    @Benchmark
+    public ServiceMonitorApplication.Service lookupHashMap() {
+        return byId.get(nextId());
+    }
+
+    @Benchmark
+    public ServiceMonitorApplication.Service lookupListScan() {
+        int id = nextId();
+        for (ServiceMonitorApplication.Service service : services) {
+            if (service.getid() == id) {
+                return service;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,104 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A discrete-event comparison of the fixed-rate schedule with the adaptive one, without any real probes:
+ * services with the catalog's interval mix are probed over simulated time while a tenth of them go down
+ * for a while. Reports the peak number of concurrent probes and how long it took to see and to confirm
+ * each outage.
+ *
+ * <pre>java -cp target/benchmarks.jar org.example.ScheduleSimulation [services] [minutes]</pre>
+ */
+public final class ScheduleSimulation {
+    private static final long PROBE_MILLIS_MIN = 50;
+    private static final long PROBE_MILLIS_MAX = 800;
+    private static final int DOWN_AFTER = 3;
+
+    private ScheduleSimulation() {
+    }
+
+    public static void main(String[] args) {
+        int services = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        long horizon = TimeUnit.MINUTES.toMillis(args.length > 1 ? Long.parseLong(args[1]) : 60);
+        // Off the minute, so the outage does not start exactly on a fixed-rate tick.
+        long outageStart = horizon / 3 + 12_345;
+        long outageEnd = outageStart + horizon / 3;
+        long[] intervals = new long[services];
+        for (int i = 0; i < services; i++) {
+            ServiceMonitorApplication.Service service = BenchmarkData.service(i + 1, services);
+            long interval = ServiceRegistry.monitoringIntervalMillis(service.getMonitoringInterval(), service.getMonitoringIntervalTimeUnit());
+            // Longer intervals would see only a handful of probes inside the simulated window.
+            intervals[i] = Math.min(interval, TimeUnit.MINUTES.toMillis(5));
+        }
+        System.out.printf("%d services over %d simulated minutes, %d of them down from minute %d to %d%n",
+                services, TimeUnit.MILLISECONDS.toMinutes(horizon), services / 10,
+                TimeUnit.MILLISECONDS.toMinutes(outageStart), TimeUnit.MILLISECONDS.toMinutes(outageEnd));
+        System.out.printf("%-9s %10s %12s %14s %14s %14s %14s%n", "schedule", "probes", "peak active",
+                "detect p50 s", "detect max s", "confirm p50 s", "confirm max s");
+        run("fixed", null, intervals, horizon, outageStart, outageEnd);
+        run("adaptive", AdaptiveSchedule.fromSystemProperties(), intervals, horizon, outageStart, outageEnd);
+    }
+
+    private static void run(String name, AdaptiveSchedule schedule, long[] intervals, long horizon,
+                            long outageStart, long outageEnd) {
+        int services = intervals.length;
+        Random random = new Random(10);
+        AdaptiveSchedule.State[] states = new AdaptiveSchedule.State[services];
+        int[] downStreak = new int[services];
+        long[] detected = new long[services];
+        long[] confirmed = new long[services];
+        Arrays.fill(detected, -1);
+        Arrays.fill(confirmed, -1);
+        // Each probe is an event (due time, service); its end goes to a second queue to track concurrency.
+        PriorityQueue<long[]> due = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        PriorityQueue<Long> running = new PriorityQueue<>();
+        for (int i = 0; i < services; i++) {
+            states[i] = new AdaptiveSchedule.State();
+            long first = schedule == null ? 0 : schedule.initialDelayMillis(i + 1, intervals[i]);
+            due.add(new long[]{first, i});
+        }
+        long probes = 0;
+        int peak = 0;
+        while (!due.isEmpty() && due.peek()[0] < horizon) {
+            long[] event = due.poll();
+            long now = event[0];
+            int i = (int) event[1];
+            while (!running.isEmpty() && running.peek() <= now) {
+                running.poll();
+            }
+            running.add(now + PROBE_MILLIS_MIN + (long) (random.nextDouble() * (PROBE_MILLIS_MAX - PROBE_MILLIS_MIN)));
+            peak = Math.max(peak, running.size());
+            probes++;
+
+            boolean affected = i % 10 == 0;
+            boolean up = !(affected && now >= outageStart && now < outageEnd);
+            if (!up) {
+                if (detected[i] < 0) {
+                    detected[i] = now - outageStart;
+                }
+                if (++downStreak[i] == DOWN_AFTER && confirmed[i] < 0) {
+                    confirmed[i] = now - outageStart;
+                }
+            } else {
+                downStreak[i] = 0;
+            }
+            long next = schedule == null ? now + intervals[i] : now + schedule.nextDelayMillis(intervals[i], states[i], up);
+            due.add(new long[]{next, i});
+        }
+        System.out.printf("%-9s %10d %12d %14.1f %14.1f %14.1f %14.1f%n", name, probes, peak,
+                percentile(detected, 0.5), percentile(detected, 1.0), percentile(confirmed, 0.5), percentile(confirmed, 1.0));
+    }
+
+    private static double percentile(long[] values, double percentile) {
+        long[] seen = Arrays.stream(values).filter(value -> value >= 0).sorted().toArray();
+        if (seen.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.min(seen.length - 1, Math.ceil(percentile * seen.length) - 1);
+        return seen[Math.max(0, index)] / 1000.0;
+    }
+}
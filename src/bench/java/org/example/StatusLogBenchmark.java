@@ -0,0 +1,81 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Status log formatting and the writer path behind logStatus: one entry formatted, and a batch of entries
+ * from many services submitted and written to disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatusLogBenchmark {
+    private static final int SERVICES = 1000;
+    private static final int ENTRIES = 10_000;
+
+    private Path directory;
+    private Path[] statusDirectories;
+    private RotationState rotationState;
+    private StatusLogWriter writer;
+    private long timestamp;
+    private boolean status;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("bench-status-log");
+        statusDirectories = new Path[SERVICES];
+        for (int i = 0; i < SERVICES; i++) {
+            statusDirectories[i] = Files.createDirectories(directory.resolve("logging").resolve("Service_" + i).resolve("application_status"));
+        }
+        rotationState = new RotationState(directory.resolve("last_logging_time"));
+        writer = new StatusLogWriter(rotationState, StatusLogWriter.DEFAULT_QUEUE_CAPACITY, false);
+        timestamp = System.currentTimeMillis();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        writer.close();
+        rotationState.close();
+        BenchmarkData.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public String formatEntry() {
+        status = !status;
+        return StatusLogWriter.formatEntry(timestamp++, "application", status);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTRIES)
+    public long submitAndWrite() throws InterruptedException {
+        long target = writer.getEntriesWritten() + ENTRIES;
+        for (int i = 0; i < ENTRIES; i++) {
+            writer.submit(statusDirectories[i % SERVICES], "application", (i & 7) != 0, TimeUnit.HOURS.toMillis(1), timestamp + i);
+        }
+        while (writer.getEntriesWritten() < target) {
+            Thread.onSpinWait();
+        }
+        timestamp += ENTRIES;
+        return target;
+    }
+}
@@ -0,0 +1,204 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in-process HTTPS server that answers every request with a fixed body, for probing without a network.
+ * Optional faults add latency, answer with 503 or trickle the body out slowly. The self-signed certificate
+ * is generated once per JVM with the JDK's keytool into a temporary directory, so nothing secret is
+ * checked in.
+ */
+final class StubHttpsServer implements Closeable {
+    private static final char[] PASSWORD = "changeit".toCharArray();
+    private static final int SLOW_BODY_CHUNKS = 10;
+    private static SSLContext sslContext;
+
+    static {
+        // Headers and body go out in separate writes; with Nagle on, each response waits for a delayed ACK.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpsServer server;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final byte[] body;
+    private final Faults faults;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder slowBodies = new LongAdder();
+
+    StubHttpsServer(int threads, String body, long delayMillis) throws IOException {
+        this(InetAddress.getLoopbackAddress(), threads > 0 ? Executors.newFixedThreadPool(threads) : Executors.newVirtualThreadPerTaskExecutor(),
+                true, body, new Faults(delayMillis, 0, 0, 0, 0));
+    }
+
+    StubHttpsServer(InetAddress address, ExecutorService executor, String body, Faults faults) throws IOException {
+        this(address, executor, false, body, faults);
+    }
+
+    private StubHttpsServer(InetAddress address, ExecutorService executor, boolean ownsExecutor, String body, Faults faults)
+            throws IOException {
+        this.body = body.getBytes(StandardCharsets.UTF_8);
+        this.faults = faults;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        server = HttpsServer.create(new InetSocketAddress(address, 0), 1024);
+        server.setHttpsConfigurator(new HttpsConfigurator(sharedSslContext()));
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        try (InputStream in = exchange.getRequestBody()) {
+            in.readAllBytes();
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long latency = faults.latencyMillis + (faults.jitterMillis > 0 ? random.nextLong(faults.jitterMillis + 1) : 0);
+        sleep(latency);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain");
+        if (random.nextDouble() < faults.errorRate) {
+            errors.increment();
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+        boolean slow = random.nextDouble() < faults.slowRate;
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (!slow) {
+                out.write(body);
+                return;
+            }
+            slowBodies.increment();
+            int chunk = Math.max(1, (body.length + SLOW_BODY_CHUNKS - 1) / SLOW_BODY_CHUNKS);
+            for (int offset = 0; offset < body.length; offset += chunk) {
+                out.write(body, offset, Math.min(chunk, body.length - offset));
+                out.flush();
+                sleep(faults.slowBodyMillis / SLOW_BODY_CHUNKS);
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    String getHost() {
+        return server.getAddress().getHostString();
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    long getRequests() {
+        return requests.sum();
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    long getSlowBodies() {
+        return slowBodies.sum();
+    }
+
+    private static synchronized SSLContext sharedSslContext() throws IOException {
+        if (sslContext == null) {
+            sslContext = createSslContext();
+        }
+        return sslContext;
+    }
+
+    private static SSLContext createSslContext() throws IOException {
+        Path directory = Files.createTempDirectory("stub-https");
+        Path keyStoreFile = directory.resolve("stub.p12");
+        try {
+            String keytool = Paths.get(System.getProperty("java.home"), "bin", "keytool").toString();
+            Process process = new ProcessBuilder(keytool, "-genkeypair", "-alias", "stub", "-keyalg", "EC",
+                    "-dname", "CN=localhost", "-validity", "2", "-storetype", "PKCS12",
+                    "-keystore", keyStoreFile.toString(), "-storepass", new String(PASSWORD))
+                    .redirectErrorStream(true)
+                    .start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            if (!process.waitFor(60, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                throw new IOException("keytool failed: " + output);
+            }
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            try (InputStream in = Files.newInputStream(keyStoreFile)) {
+                keyStore.load(in, PASSWORD);
+            }
+            KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagers.init(keyStore, PASSWORD);
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(keyManagers.getKeyManagers(), null, null);
+            return context;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not set up the stub certificate", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating the stub certificate", e);
+        } finally {
+            BenchmarkData.deleteRecursively(directory);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        if (ownsExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Latency added to every response, and the fractions of responses that fail with 503 or send their
+     * body in chunks spread over slowBodyMillis.
+     */
+    static final class Faults {
+        final long latencyMillis;
+        final long jitterMillis;
+        final double errorRate;
+        final double slowRate;
+        final long slowBodyMillis;
+
+        Faults(long latencyMillis, long jitterMillis, double errorRate, double slowRate, long slowBodyMillis) {
+            this.latencyMillis = latencyMillis;
+            this.jitterMillis = jitterMillis;
+            this.errorRate = errorRate;
+            this.slowRate = slowRate;
+            this.slowBodyMillis = slowBodyMillis;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.example;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when a service is probed next. First probes are spread over the interval by service id, every
+ * delay gets random jitter, a state change is confirmed sooner than the normal interval, and a service
+ * that stays down is probed exponentially less often up to a ceiling.
+ */
+public class AdaptiveSchedule {
+    private final double jitterFraction;
+    private final double confirmFactor;
+    private final double backoffMultiplier;
+    private final double maxBackoffFactor;
+    private final long minDelayMillis;
+
+    public AdaptiveSchedule(double jitterFraction, double confirmFactor, double backoffMultiplier,
+                            double maxBackoffFactor, long minDelayMillis) {
+        this.jitterFraction = jitterFraction;
+        this.confirmFactor = confirmFactor;
+        this.backoffMultiplier = backoffMultiplier;
+        this.maxBackoffFactor = maxBackoffFactor;
+        this.minDelayMillis = minDelayMillis;
+    }
+
+    public static AdaptiveSchedule fromSystemProperties() {
+        return new AdaptiveSchedule(
+                Double.parseDouble(System.getProperty("sky.monitor.schedule.jitter", "0.1")),
+                Double.parseDouble(System.getProperty("sky.monitor.schedule.confirmFactor", "0.25")),
+                Double.parseDouble(System.getProperty("sky.monitor.schedule.backoffMultiplier", "2")),
+                Double.parseDouble(System.getProperty("sky.monitor.schedule.maxBackoffFactor", "8")),
+                Long.getLong("sky.monitor.schedule.minDelayMillis", TimeUnit.SECONDS.toMillis(1)));
+    }
+
+    public long initialDelayMillis(int serviceId, long intervalMillis) {
+        // A stable hash keeps a service's phase the same across restarts while spreading neighbours apart.
+        long mixed = (serviceId * 0x9E3779B97F4A7C15L) >>> 11;
+        return intervalMillis <= 0 ? 0 : mixed % intervalMillis;
+    }
+
+    public long nextDelayMillis(long intervalMillis, State state, boolean up) {
+        long delay;
+        if (state.lastUp != null && state.lastUp != up && !state.confirming) {
+            state.confirming = true;
+            delay = (long) (intervalMillis * confirmFactor);
+        } else {
+            state.confirming = false;
+            if (up) {
+                state.consecutiveDown = 0;
+                delay = intervalMillis;
+            } else {
+                state.consecutiveDown++;
+                double factor = Math.min(maxBackoffFactor, Math.pow(backoffMultiplier, Math.max(0, state.consecutiveDown - 1)));
+                delay = (long) (intervalMillis * factor);
+            }
+        }
+        state.lastUp = up;
+        return jitter(Math.max(minDelayMillis, delay));
+    }
+
+    private long jitter(long delayMillis) {
+        if (jitterFraction <= 0) {
+            return delayMillis;
+        }
+        double offset = (ThreadLocalRandom.current().nextDouble() * 2 - 1) * jitterFraction;
+        return Math.max(minDelayMillis, (long) (delayMillis * (1 + offset)));
+    }
+
+    public static class State {
+        private Boolean lastUp;
+        private boolean confirming;
+        private int consecutiveDown;
+    }
+}
@@ -0,0 +1,138 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers state-change events to the alert sinks on a thread of its own. Probes only ever offer to a
+ * bounded queue, so a slow webhook or a burst of outages cannot hold them up; when the queue is full the
+ * event is dropped and counted. The dispatcher waits briefly after the first event so that a burst is
+ * delivered as one batch.
+ */
+public class AlertDispatcher implements Closeable {
+    private final BlockingQueue<StateChangeEvent> queue;
+    private final List<AlertSink> sinks;
+    private final int maxBatch;
+    private final long lingerMillis;
+    private final Thread dispatcherThread;
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile boolean running = true;
+
+    public AlertDispatcher(List<AlertSink> sinks, int queueCapacity, int maxBatch, long lingerMillis) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.sinks = sinks;
+        this.maxBatch = maxBatch;
+        this.lingerMillis = lingerMillis;
+        this.dispatcherThread = new Thread(this::runLoop, "alert-dispatcher");
+        this.dispatcherThread.setDaemon(true);
+        this.dispatcherThread.start();
+    }
+
+    /**
+     * Builds the sinks configured by sky.monitor.alerts.webhook, .file and .command, or returns null when
+     * none is configured.
+     */
+    public static AlertDispatcher fromSystemProperties() {
+        List<AlertSink> sinks = new ArrayList<>();
+        String webhook = System.getProperty("sky.monitor.alerts.webhook");
+        if (webhook != null && !webhook.isBlank()) {
+            sinks.add(new WebhookAlertSink(URI.create(webhook)));
+        }
+        String file = System.getProperty("sky.monitor.alerts.file");
+        if (file != null && !file.isBlank()) {
+            sinks.add(new FileAlertSink(Paths.get(file)));
+        }
+        String command = System.getProperty("sky.monitor.alerts.command");
+        if (command != null && !command.isBlank()) {
+            sinks.add(new CommandAlertSink(command));
+        }
+        if (sinks.isEmpty()) {
+            return null;
+        }
+        return new AlertDispatcher(sinks,
+                Integer.getInteger("sky.monitor.alerts.queueCapacity", 10000),
+                Integer.getInteger("sky.monitor.alerts.batchSize", 500),
+                Long.getLong("sky.monitor.alerts.lingerMillis", 1000));
+    }
+
+    public void submit(StateChangeEvent event) {
+        if (!running || !queue.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    private void runLoop() {
+        List<StateChangeEvent> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                StateChangeEvent first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                while (batch.size() < maxBatch && running) {
+                    StateChangeEvent next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                queue.drainTo(batch, maxBatch - batch.size());
+                deliver(batch);
+            } catch (InterruptedException e) {
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void deliver(List<StateChangeEvent> batch) {
+        for (AlertSink sink : sinks) {
+            try {
+                sink.send(batch);
+                delivered.add(batch.size());
+            } catch (IOException | RuntimeException e) {
+                failures.increment();
+                System.out.println("Alert delivery to " + sink + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            dispatcherThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination for state-change alerts. Sinks are called from the dispatcher thread only, with batches in
+ * the order the events were detected.
+ */
+public interface AlertSink {
+    void send(List<StateChangeEvent> events) throws IOException;
+}
@@ -0,0 +1,144 @@
+package org.example;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raw TCP banner check for servers that speak first, such as SSH, SMTP or FTP. The probe connects and
+ * reads what the server sends until expectedTelnetResponse appears in it; without an expected text the
+ * first byte is enough. Reading gives up at the body size limit, at end of stream or at the timeout.
+ */
+class BannerProbe implements Probe {
+    private final ProbeContext context;
+    // Only used on the event loop thread.
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+
+    BannerProbe(ProbeContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public CompletableFuture<ProbeResult> probe(ServiceMonitorApplication.Service service, BodyMatcher matcher) {
+        long timestamp = System.currentTimeMillis();
+        InetSocketAddress address;
+        try {
+            address = context.resolve(service.getServiceHost(), service.getServicePort());
+        } catch (UnknownHostException e) {
+            return CompletableFuture.completedFuture(down(service, timestamp, false));
+        }
+        return context.checkServer(address).thenCompose(up -> {
+            if (!up) {
+                return CompletableFuture.completedFuture(down(service, timestamp, false));
+            }
+            BannerRead read = new BannerRead(service, matcher, address, timestamp);
+            context.getEventLoop().open(read);
+            return read.future;
+        });
+    }
+
+    private static ProbeResult down(ServiceMonitorApplication.Service service, long timestamp, boolean serverUp) {
+        return new ProbeResult(service.getid(), timestamp, serverUp, false, ProbeResult.NO_HTTP_STATUS, ProbeTimings.NONE, true);
+    }
+
+    private final class BannerRead extends ProbeEventLoop.Handler {
+        private final ServiceMonitorApplication.Service service;
+        private final BodyMatcher matcher;
+        private final InetSocketAddress address;
+        private final long timestamp;
+        private final CompletableFuture<ProbeResult> future = new CompletableFuture<>();
+        private SocketChannel channel;
+        private long startNanos;
+        private long connectNanos;
+        private long firstByteNanos;
+        private long consumed;
+        private int matchState = BodyMatcher.START;
+
+        BannerRead(ServiceMonitorApplication.Service service, BodyMatcher matcher, InetSocketAddress address, long timestamp) {
+            this.service = service;
+            this.matcher = matcher;
+            this.address = address;
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        protected void start() throws IOException {
+            startNanos = System.nanoTime();
+            channel = SocketChannel.open();
+            register(channel, 0);
+            deadline(context.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            if (channel.connect(address)) {
+                connected();
+            } else {
+                interestOps(SelectionKey.OP_CONNECT);
+            }
+        }
+
+        @Override
+        protected void connectable() throws IOException {
+            if (channel.finishConnect()) {
+                connected();
+            }
+        }
+
+        private void connected() {
+            connectNanos = System.nanoTime() - startNanos;
+            interestOps(SelectionKey.OP_READ);
+        }
+
+        @Override
+        protected void readable() throws IOException {
+            while (true) {
+                readBuffer.clear();
+                int read = channel.read(readBuffer);
+                if (read == 0) {
+                    return;
+                }
+                if (read < 0) {
+                    finish(false, false);
+                    return;
+                }
+                if (firstByteNanos == 0) {
+                    firstByteNanos = System.nanoTime() - startNanos;
+                }
+                int count = (int) Math.min(read, context.getMaxBodyBytes() - consumed);
+                consumed += count;
+                if (matcher == null) {
+                    finish(true, true);
+                    return;
+                }
+                matchState = matcher.advance(matchState, readBuffer.array(), 0, count);
+                if (matchState == BodyMatcher.MATCHED) {
+                    finish(true, true);
+                    return;
+                }
+                if (consumed >= context.getMaxBodyBytes()) {
+                    finish(false, false);
+                    return;
+                }
+            }
+        }
+
+        private void finish(boolean up, boolean matched) {
+            close();
+            ProbeTimings timings = new ProbeTimings(connectNanos, 0, firstByteNanos, System.nanoTime() - startNanos, false, false);
+            future.complete(new ProbeResult(service.getid(), timestamp, true, up, ProbeResult.NO_HTTP_STATUS, timings,
+                    matched || matcher == null));
+        }
+
+        @Override
+        protected void failed(Exception cause) {
+            if (consumed > 0) {
+                // Something arrived, just not the expected text.
+                finish(false, false);
+            } else {
+                future.complete(down(service, timestamp, true));
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Aho-Corasick automaton over the UTF-8 bytes of one or more patterns. The matcher itself is immutable;
+ * the only state of a running match is the int returned by {@link #advance}, so a response body can be
+ * fed through it chunk by chunk and a pattern split across two reads is still found.
+ */
+public final class BodyMatcher {
+    public static final int MATCHED = -1;
+    public static final int START = 0;
+
+    private final byte[][] labels;
+    private final int[][] targets;
+    private final int[] fail;
+    private final boolean[] terminal;
+
+    private BodyMatcher(byte[][] labels, int[][] targets, int[] fail, boolean[] terminal) {
+        this.labels = labels;
+        this.targets = targets;
+        this.fail = fail;
+        this.terminal = terminal;
+    }
+
+    /**
+     * Matcher for the expectedRequestResponse of a service, or null when there is nothing to match. Besides
+     * the literal text it also accepts the common HTML-escaped spellings of quotes and ampersands, since
+     * pages rarely contain an apostrophe verbatim.
+     */
+    public static BodyMatcher forExpectedText(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        Set<String> variants = new LinkedHashSet<>();
+        variants.add(text);
+        for (String apostrophe : new String[]{"&#39;", "&#039;", "&apos;", "&#x27;"}) {
+            variants.add(text.replace("&", "&amp;").replace("\"", "&quot;").replace("'", apostrophe)
+                    .replace("<", "&lt;").replace(">", "&gt;"));
+        }
+        return of(new ArrayList<>(variants));
+    }
+
+    public static BodyMatcher of(List<String> patterns) {
+        List<Map<Byte, Integer>> children = new ArrayList<>();
+        List<Boolean> terminals = new ArrayList<>();
+        children.add(new TreeMap<>());
+        terminals.add(false);
+        for (String pattern : patterns) {
+            int state = START;
+            for (byte b : pattern.getBytes(StandardCharsets.UTF_8)) {
+                Integer next = children.get(state).get(b);
+                if (next == null) {
+                    next = children.size();
+                    children.add(new TreeMap<>());
+                    terminals.add(false);
+                    children.get(state).put(b, next);
+                }
+                state = next;
+            }
+            terminals.set(state, true);
+        }
+
+        int size = children.size();
+        byte[][] labels = new byte[size][];
+        int[][] targets = new int[size][];
+        boolean[] terminal = new boolean[size];
+        for (int state = 0; state < size; state++) {
+            Map<Byte, Integer> edges = children.get(state);
+            labels[state] = new byte[edges.size()];
+            targets[state] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Byte, Integer> edge : edges.entrySet()) {
+                labels[state][i] = edge.getKey();
+                targets[state][i] = edge.getValue();
+                i++;
+            }
+            terminal[state] = terminals.get(state);
+        }
+
+        // Failure links in breadth-first order, so a state's fallback is final before its children need it.
+        int[] fail = new int[size];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[START]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < labels[state].length; i++) {
+                int child = targets[state][i];
+                int fallback = fail[state];
+                int next;
+                while ((next = child(labels, targets, fallback, labels[state][i])) < 0 && fallback != START) {
+                    fallback = fail[fallback];
+                }
+                fail[child] = next < 0 ? START : next;
+                terminal[child] |= terminal[fail[child]];
+                queue.add(child);
+            }
+        }
+        return new BodyMatcher(labels, targets, fail, terminal);
+    }
+
+    private static int child(byte[][] labels, int[][] targets, int state, byte b) {
+        byte[] edges = labels[state];
+        for (int i = 0; i < edges.length; i++) {
+            if (edges[i] == b) {
+                return targets[state][i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Feeds the bytes to the automaton starting in the given state. Returns {@link #MATCHED} as soon as a
+     * pattern has been seen, otherwise the state to continue with on the next chunk.
+     */
+    public int advance(int state, byte[] buffer, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            byte b = buffer[i];
+            int next;
+            while ((next = child(labels, targets, state, b)) < 0 && state != START) {
+                state = fail[state];
+            }
+            state = next < 0 ? START : next;
+            if (terminal[state]) {
+                return MATCHED;
+            }
+        }
+        return state;
+    }
+}
@@ -0,0 +1,162 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary copy of a parsed service file, keyed by the SHA-256 of the file's contents. As long as the
+ * source is unchanged the services are decoded straight from the memory-mapped snapshot, which skips
+ * JAXB, SnakeYAML and Jackson initialisation entirely; otherwise the file is parsed and the snapshot
+ * rewritten.
+ */
+public class CatalogSnapshot {
+    private static final int MAGIC = 0x534B5943;
+    private static final int VERSION = 2;
+    private static final int HASH_SIZE = 32;
+
+    private final Path directory;
+
+    public CatalogSnapshot(Path directory) {
+        this.directory = directory;
+    }
+
+    public static CatalogSnapshot fromSystemProperties() {
+        return new CatalogSnapshot(Paths.get(System.getProperty("sky.monitor.catalog.snapshotDir", "snapshots")));
+    }
+
+    public List<ServiceMonitorApplication.Service> load(String file) {
+        Path source = Paths.get(file);
+        Path snapshot = directory.resolve(source.getFileName() + ".snapshot");
+        byte[] hash;
+        try {
+            hash = hash(source);
+        } catch (IOException e) {
+            System.out.println("Could not read " + source.getFileName() + ": " + e.getMessage());
+            return null;
+        }
+        List<ServiceMonitorApplication.Service> services = read(snapshot, hash);
+        if (services != null) {
+            return services;
+        }
+        services = ServiceFileReader.readAll(file);
+        if (services != null) {
+            try {
+                write(snapshot, hash, services);
+            } catch (IOException e) {
+                System.out.println("Could not write catalog snapshot " + snapshot + ": " + e.getMessage());
+            }
+        }
+        return services;
+    }
+
+    static byte[] hash(Path source) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(source)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    static List<ServiceMonitorApplication.Service> read(Path snapshot, byte[] expectedHash) {
+        if (!Files.isRegularFile(snapshot)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            byte[] hash = new byte[HASH_SIZE];
+            buffer.get(hash);
+            if (!Arrays.equals(hash, expectedHash)) {
+                return null;
+            }
+            int count = buffer.getInt();
+            List<ServiceMonitorApplication.Service> services = new ArrayList<>(count);
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < count; i++) {
+                int id = buffer.getInt();
+                int port = buffer.getInt();
+                int interval = buffer.getInt();
+                String[] text = new String[12];
+                for (int j = 0; j < text.length; j++) {
+                    int length = buffer.getInt();
+                    if (length < 0) {
+                        continue;
+                    }
+                    if (length > scratch.length) {
+                        scratch = new byte[Math.max(length, scratch.length * 2)];
+                    }
+                    buffer.get(scratch, 0, length);
+                    text[j] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+                }
+                services.add(new ServiceMonitorApplication.Service(id, text[0], text[1], port, text[2], text[3],
+                        text[4], text[5], interval, text[6], text[7], text[8], text[9], text[10], text[11]));
+            }
+            return services;
+        } catch (IOException | BufferUnderflowException e) {
+            // A damaged snapshot is only a cache miss; the source file is parsed instead.
+            return null;
+        }
+    }
+
+    void write(Path snapshot, byte[] hash, List<ServiceMonitorApplication.Service> services) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.write(hash);
+            out.writeInt(services.size());
+            for (ServiceMonitorApplication.Service service : services) {
+                out.writeInt(service.getid());
+                out.writeInt(service.getServicePort());
+                out.writeInt(service.getMonitoringInterval());
+                writeString(out, service.getServiceName());
+                writeString(out, service.getServiceHost());
+                writeString(out, service.getServiceResourceURI());
+                writeString(out, service.getServiceMethod());
+                writeString(out, service.getExpectedTelnetResponse());
+                writeString(out, service.getExpectedRequestResponse());
+                writeString(out, service.getMonitoringIntervalTimeUnit());
+                writeString(out, service.getEnableFileLogging());
+                writeString(out, service.getFileLoggingInterval());
+                writeString(out, service.getEnableLogsArchiving());
+                writeString(out, service.getLogArchivingIntervals());
+                writeString(out, service.getProbeType());
+            }
+        }
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,44 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Tells a monitor instance which instances are alive and carries their latest results between them.
+ * Implementations decide how instances find each other; the ring and the scheduling do not care.
+ */
+public interface ClusterMembership extends Closeable {
+
+    String getLocalNodeId();
+
+    /**
+     * The live members as last seen. The same set instance is returned until the membership changes, so
+     * callers can cache whatever they derive from it.
+     */
+    Set<String> getMembers();
+
+    /**
+     * Announces this instance. The listener receives the live members, this instance included, now and
+     * after every change until the membership is closed.
+     */
+    void join(Consumer<Set<String>> listener) throws IOException;
+
+    /**
+     * Shares the latest results of the services this instance owns with the other members.
+     */
+    void publishStatus(Collection<ProbeResult> results) throws IOException;
+
+    /**
+     * Latest results shared by the other live members.
+     */
+    Collection<ProbeResult> readPeerStatus() throws IOException;
+
+    /**
+     * Leaves the cluster, so the remaining members take over this instance's services.
+     */
+    @Override
+    void close();
+}
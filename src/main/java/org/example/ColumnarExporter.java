@@ -0,0 +1,435 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Copies probe results from the probe store into compressed columnar part files for analytics tools,
+ * partitioned as service=&lt;id&gt;/date=&lt;yyyy-MM-dd&gt;/ under the export directory. Each run continues
+ * from the checkpoint of the previous one and reads at most batchRows records at a time, writing their
+ * parts and moving the checkpoint before the next batch, so memory stays bounded on any history and a
+ * run that was cut short rewrites the same part files when it is repeated.
+ *
+ * <p>A part file is MAGIC, VERSION, the row count, the earliest and latest timestamp and the column count,
+ * followed by one chunk per column: its name, encoding, raw and deflated length and the deflated bytes.
+ * Numbers inside a chunk are little-endian base-128 varints, signed ones zigzag-encoded. Timestamps are
+ * delta-encoded, service ids and HTTP codes are dictionary-encoded with run-length encoded indexes, the
+ * status bits are run-length encoded and latencies are plain varints.
+ */
+public class ColumnarExporter {
+    public static final int DEFAULT_BATCH_ROWS = 1 << 20;
+
+    private static final int MAGIC = 0x534B4343;
+    private static final int VERSION = 1;
+    private static final int CHECKPOINT_MAGIC = 0x534B4358;
+    private static final String CHECKPOINT_FILE = "_checkpoint";
+    private static final byte ENCODING_DELTA = 1;
+    private static final byte ENCODING_DICTIONARY_RLE = 2;
+    private static final byte ENCODING_RLE = 3;
+    private static final byte ENCODING_VARINT = 4;
+    private static final String[] COLUMNS = {"timestamp_millis", "service_id", "status_bits", "http_status", "latency_micros"};
+
+    private final ProbeStore store;
+    private final Path directory;
+    private final int batchRows;
+    private final boolean partitionByService;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final Map<Long, Partition> partitions = new LinkedHashMap<>();
+    private long dayStart = Long.MAX_VALUE;
+    private long dayEnd = Long.MIN_VALUE;
+    private long epochDay;
+
+    public ColumnarExporter(ProbeStore store, Path directory, int batchRows, boolean partitionByService) {
+        this.store = store;
+        this.directory = directory;
+        this.batchRows = Math.max(1, batchRows);
+        this.partitionByService = partitionByService;
+    }
+
+    public static ColumnarExporter fromSystemProperties(ProbeStore store) {
+        return new ColumnarExporter(store, Paths.get(System.getProperty("sky.monitor.export.dir", "export")),
+                Integer.getInteger("sky.monitor.export.batchRows", DEFAULT_BATCH_ROWS),
+                Boolean.parseBoolean(System.getProperty("sky.monitor.export.partitionByService", "true")));
+    }
+
+    /**
+     * Exports everything appended to the store since the last run and returns the number of results.
+     */
+    public synchronized long exportNew() throws IOException {
+        Files.createDirectories(directory);
+        ProbeStore.Position position = readCheckpoint();
+        long exported = 0;
+        for (;;) {
+            ProbeStore.Position next = store.scan(position, batchRows, this::add);
+            if (next.equals(position)) {
+                break;
+            }
+            // Part names come from where the batch started, so repeating an interrupted run overwrites them.
+            String partName = String.format("part-%019d-%010d.skyc", position.getSegment() == Long.MIN_VALUE ? 0 : position.getSegment(),
+                    position.getRecord());
+            for (Partition partition : partitions.values()) {
+                exported += partition.size;
+                writePart(partition, partName);
+            }
+            partitions.clear();
+            writeCheckpoint(next);
+            position = next;
+        }
+        return exported;
+    }
+
+    private void add(int serviceId, long epochMillis, int statusBits, int httpCode, int latencyMicros) {
+        if (epochMillis < dayStart || epochMillis >= dayEnd) {
+            ZoneId zone = ZoneId.systemDefault();
+            LocalDate day = Instant.ofEpochMilli(epochMillis).atZone(zone).toLocalDate();
+            ZonedDateTime start = day.atStartOfDay(zone);
+            dayStart = start.toInstant().toEpochMilli();
+            dayEnd = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            epochDay = day.toEpochDay();
+        }
+        long key = partitionByService ? (epochDay << 32) | (serviceId & 0xFFFFFFFFL) : epochDay << 32;
+        Partition partition = partitions.get(key);
+        if (partition == null) {
+            partition = new Partition(partitionByService ? serviceId : -1, LocalDate.ofEpochDay(epochDay));
+            partitions.put(key, partition);
+        }
+        partition.add(serviceId, epochMillis, statusBits, httpCode, latencyMicros);
+    }
+
+    private void writePart(Partition partition, String partName) throws IOException {
+        Path partitionDirectory = partition.serviceId >= 0
+                ? directory.resolve("service=" + partition.serviceId).resolve("date=" + partition.date)
+                : directory.resolve("date=" + partition.date);
+        Files.createDirectories(partitionDirectory);
+        Path file = partitionDirectory.resolve(partName);
+        Path tempFile = partitionDirectory.resolve(partName + ".tmp");
+        int rows = partition.size;
+        byte[][] chunks = {
+                deltaEncode(partition.timestamps, rows),
+                dictionaryEncode(partition.serviceIds, rows),
+                runLengthEncode(partition.statusBits, rows),
+                dictionaryEncode(partition.httpCodes, rows),
+                varintEncode(partition.latencies, rows),
+        };
+        byte[] encodings = {ENCODING_DELTA, ENCODING_DICTIONARY_RLE, ENCODING_RLE, ENCODING_DICTIONARY_RLE, ENCODING_VARINT};
+        try (OutputStream out = Files.newOutputStream(tempFile)) {
+            ByteBuffer header = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(rows).putLong(partition.minMillis)
+                    .putLong(partition.maxMillis).putInt(COLUMNS.length);
+            out.write(header.array());
+            for (int i = 0; i < COLUMNS.length; i++) {
+                byte[] compressed = deflate(chunks[i]);
+                byte[] name = COLUMNS[i].getBytes(StandardCharsets.UTF_8);
+                ByteBuffer chunkHeader = ByteBuffer.allocate(2 + name.length + 1 + 8).order(ByteOrder.LITTLE_ENDIAN);
+                chunkHeader.putShort((short) name.length).put(name).put(encodings[i]).putInt(chunks[i].length).putInt(compressed.length);
+                out.write(chunkHeader.array());
+                out.write(compressed);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private byte[] deflate(byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        byte[] buffer = new byte[64 * 1024];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            out.write(buffer, 0, length);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deltaEncode(long[] values, int count) {
+        Varints out = new Varints(count * 2);
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            out.writeSigned(values[i] - previous);
+            previous = values[i];
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] varintEncode(int[] values, int count) {
+        Varints out = new Varints(count * 2);
+        for (int i = 0; i < count; i++) {
+            out.writeSigned(values[i]);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * The distinct values in order of first appearance, then runs of (length, dictionary index).
+     */
+    private static byte[] dictionaryEncode(int[] values, int count) {
+        Map<Integer, Integer> dictionary = new LinkedHashMap<>();
+        int[] indexes = new int[count];
+        for (int i = 0; i < count; i++) {
+            Integer index = dictionary.get(values[i]);
+            if (index == null) {
+                index = dictionary.size();
+                dictionary.put(values[i], index);
+            }
+            indexes[i] = index;
+        }
+        Varints out = new Varints(16 + dictionary.size() * 3);
+        out.writeUnsigned(dictionary.size());
+        for (int value : dictionary.keySet()) {
+            out.writeSigned(value);
+        }
+        writeRuns(out, indexes, count);
+        return out.toByteArray();
+    }
+
+    private static byte[] runLengthEncode(int[] values, int count) {
+        Varints out = new Varints(16);
+        writeRuns(out, values, count);
+        return out.toByteArray();
+    }
+
+    private static void writeRuns(Varints out, int[] values, int count) {
+        int i = 0;
+        while (i < count) {
+            int value = values[i];
+            int end = i + 1;
+            while (end < count && values[end] == value) {
+                end++;
+            }
+            out.writeUnsigned(end - i);
+            out.writeSigned(value);
+            i = end;
+        }
+    }
+
+    /**
+     * Reads a part file back, handing every row to the visitor. Returns the number of rows.
+     */
+    public static int read(Path file, ProbeStore.RecordVisitor visitor) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < 32 || in.getInt() != MAGIC || in.getInt() != VERSION) {
+            throw new IOException("Not a columnar export part: " + file);
+        }
+        int rows = in.getInt();
+        in.getLong();
+        in.getLong();
+        int columnCount = in.getInt();
+        Map<String, int[]> ints = new HashMap<>();
+        long[] timestamps = new long[rows];
+        for (int c = 0; c < columnCount; c++) {
+            byte[] name = new byte[in.getShort()];
+            in.get(name);
+            byte encoding = in.get();
+            int rawLength = in.getInt();
+            byte[] compressed = new byte[in.getInt()];
+            in.get(compressed);
+            ByteBuffer chunk = ByteBuffer.wrap(inflate(compressed, rawLength, file));
+            String column = new String(name, StandardCharsets.UTF_8);
+            switch (encoding) {
+                case ENCODING_DELTA:
+                    long previous = 0;
+                    for (int i = 0; i < rows; i++) {
+                        previous += readSigned(chunk);
+                        timestamps[i] = previous;
+                    }
+                    break;
+                case ENCODING_DICTIONARY_RLE:
+                    int[] dictionary = new int[(int) readUnsigned(chunk)];
+                    for (int i = 0; i < dictionary.length; i++) {
+                        dictionary[i] = (int) readSigned(chunk);
+                    }
+                    int[] decoded = readRuns(chunk, rows);
+                    for (int i = 0; i < rows; i++) {
+                        decoded[i] = dictionary[decoded[i]];
+                    }
+                    ints.put(column, decoded);
+                    break;
+                case ENCODING_RLE:
+                    ints.put(column, readRuns(chunk, rows));
+                    break;
+                case ENCODING_VARINT:
+                    int[] values = new int[rows];
+                    for (int i = 0; i < rows; i++) {
+                        values[i] = (int) readSigned(chunk);
+                    }
+                    ints.put(column, values);
+                    break;
+                default:
+                    throw new IOException("Unknown encoding " + encoding + " of column " + column + " in " + file);
+            }
+        }
+        int[] serviceIds = ints.get(COLUMNS[1]);
+        int[] statusBits = ints.get(COLUMNS[2]);
+        int[] httpCodes = ints.get(COLUMNS[3]);
+        int[] latencies = ints.get(COLUMNS[4]);
+        for (int i = 0; i < rows; i++) {
+            visitor.visit(serviceIds[i], timestamps[i], statusBits[i], httpCodes[i], latencies[i]);
+        }
+        return rows;
+    }
+
+    private static byte[] inflate(byte[] compressed, int rawLength, Path file) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, read, rawLength - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != rawLength) {
+                throw new IOException("Truncated column in " + file);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt column in " + file, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int[] readRuns(ByteBuffer chunk, int rows) {
+        int[] values = new int[rows];
+        int i = 0;
+        while (i < rows) {
+            int length = (int) readUnsigned(chunk);
+            int value = (int) readSigned(chunk);
+            Arrays.fill(values, i, i + length, value);
+            i += length;
+        }
+        return values;
+    }
+
+    private static long readUnsigned(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static long readSigned(ByteBuffer in) {
+        long zigzag = readUnsigned(in);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private ProbeStore.Position readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return ProbeStore.Position.START;
+        }
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < 20 || in.getInt() != CHECKPOINT_MAGIC || in.getInt() != VERSION) {
+            throw new IOException("Not an export checkpoint: " + file);
+        }
+        return new ProbeStore.Position(in.getLong(), in.getInt());
+    }
+
+    private void writeCheckpoint(ProbeStore.Position position) throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        Path tempFile = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        ByteBuffer out = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(CHECKPOINT_MAGIC).putInt(VERSION).putLong(position.getSegment()).putInt(position.getRecord());
+        Files.write(tempFile, out.array());
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static class Partition {
+        private final int serviceId;
+        private final LocalDate date;
+        private long[] timestamps = new long[64];
+        private int[] serviceIds = new int[64];
+        private int[] statusBits = new int[64];
+        private int[] httpCodes = new int[64];
+        private int[] latencies = new int[64];
+        private int size;
+        private long minMillis = Long.MAX_VALUE;
+        private long maxMillis = Long.MIN_VALUE;
+
+        Partition(int serviceId, LocalDate date) {
+            this.serviceId = serviceId;
+            this.date = date;
+        }
+
+        void add(int serviceId, long epochMillis, int status, int httpCode, int latencyMicros) {
+            if (size == timestamps.length) {
+                int capacity = size * 2;
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                serviceIds = Arrays.copyOf(serviceIds, capacity);
+                statusBits = Arrays.copyOf(statusBits, capacity);
+                httpCodes = Arrays.copyOf(httpCodes, capacity);
+                latencies = Arrays.copyOf(latencies, capacity);
+            }
+            timestamps[size] = epochMillis;
+            serviceIds[size] = serviceId;
+            statusBits[size] = status;
+            httpCodes[size] = httpCode;
+            latencies[size] = latencyMicros;
+            size++;
+            minMillis = Math.min(minMillis, epochMillis);
+            maxMillis = Math.max(maxMillis, epochMillis);
+        }
+    }
+
+    /**
+     * A growable byte array written as base-128 varints.
+     */
+    private static class Varints {
+        private byte[] bytes;
+        private int length;
+
+        Varints(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        void writeSigned(long value) {
+            writeUnsigned((value << 1) ^ (value >> 63));
+        }
+
+        void writeUnsigned(long value) {
+            if (length + 10 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a command once per batch and writes the events to its standard input as a JSON array. The command
+ * line is split on whitespace; no shell is involved. The input is written from a thread of its own, so a
+ * command that never reads it is still killed at the timeout instead of blocking the dispatcher.
+ */
+public class CommandAlertSink implements AlertSink {
+    private static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final List<String> command;
+    private final long timeoutMillis;
+
+    public CommandAlertSink(String commandLine) {
+        this(commandLine, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    CommandAlertSink(String commandLine, long timeoutMillis) {
+        this.command = Arrays.asList(commandLine.trim().split("\\s+"));
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void send(List<StateChangeEvent> events) throws IOException {
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        byte[] input = StateChangeEvent.toJson(events);
+        Thread inputWriter = new Thread(() -> {
+            try (OutputStream in = process.getOutputStream()) {
+                in.write(input);
+            } catch (IOException e) {
+                // The command exited or was killed without reading all of its input; its exit code tells.
+            }
+        }, "alert-command-input");
+        inputWriter.setDaemon(true);
+        inputWriter.start();
+        try {
+            if (!process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("Alert command did not finish within " + timeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running the alert command", e);
+        }
+        if (process.exitValue() != 0) {
+            throw new IOException("Alert command exited with " + process.exitValue());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "command " + String.join(" ", command);
+    }
+}
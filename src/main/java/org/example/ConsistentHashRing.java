@@ -0,0 +1,86 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Maps service ids to cluster members. Every member is placed on the ring at a number of virtual points,
+ * so a member joining or leaving only moves the services between it and its neighbours, roughly 1/n of
+ * the catalog. The ring is immutable and is rebuilt when the membership changes.
+ */
+public class ConsistentHashRing {
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final long[] points;
+    private final String[] owners;
+    private final int memberCount;
+
+    private ConsistentHashRing(long[] points, String[] owners, int memberCount) {
+        this.points = points;
+        this.owners = owners;
+        this.memberCount = memberCount;
+    }
+
+    public static ConsistentHashRing of(Collection<String> members, int virtualNodes) {
+        // Sorted members and a sorted map make the ring identical on every instance, whatever order the
+        // members were seen in; the rare colliding point goes to the member that sorts first.
+        TreeMap<Long, String> ring = new TreeMap<>();
+        TreeSet<String> sorted = new TreeSet<>(members);
+        for (String member : sorted) {
+            for (int v = 0; v < virtualNodes; v++) {
+                ring.putIfAbsent(hash(member + "#" + v), member);
+            }
+        }
+        long[] points = new long[ring.size()];
+        String[] owners = new String[ring.size()];
+        int i = 0;
+        for (Map.Entry<Long, String> point : ring.entrySet()) {
+            points[i] = point.getKey();
+            owners[i] = point.getValue();
+            i++;
+        }
+        return new ConsistentHashRing(points, owners, sorted.size());
+    }
+
+    /**
+     * The member owning the service, or null when the ring is empty.
+     */
+    public String ownerOf(int serviceId) {
+        if (points.length == 0) {
+            return null;
+        }
+        long key = mix(serviceId);
+        int index = Arrays.binarySearch(points, key);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public int getMemberCount() {
+        return memberCount;
+    }
+
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
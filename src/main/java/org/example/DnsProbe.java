@@ -0,0 +1,331 @@
+package org.example;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DNS check over UDP. serviceHost and servicePort name the DNS server, serviceResourceURI the name to
+ * look up and serviceMethod the record type (A when blank). The server is UP once it answers at all; the
+ * service is UP when the answer has no error, holds at least one record of the requested type and, when
+ * set, expectedRequestResponse appears in those records written out one per line.
+ */
+class DnsProbe implements Probe {
+    private static final long RETRANSMIT_MILLIS = 2000;
+    private static final int MAX_MESSAGE_BYTES = 4096;
+    private static final Map<String, Integer> RECORD_TYPES = new LinkedHashMap<>();
+
+    static {
+        RECORD_TYPES.put("A", 1);
+        RECORD_TYPES.put("NS", 2);
+        RECORD_TYPES.put("CNAME", 5);
+        RECORD_TYPES.put("SOA", 6);
+        RECORD_TYPES.put("PTR", 12);
+        RECORD_TYPES.put("MX", 15);
+        RECORD_TYPES.put("TXT", 16);
+        RECORD_TYPES.put("AAAA", 28);
+        RECORD_TYPES.put("SRV", 33);
+    }
+
+    private final ProbeContext context;
+    // Only used on the event loop thread.
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocate(MAX_MESSAGE_BYTES);
+
+    DnsProbe(ProbeContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Why the service cannot be looked up, or null when the name and record type are usable.
+     */
+    static String validate(ServiceMonitorApplication.Service service) {
+        String name = queryName(service);
+        if (name.isEmpty()) {
+            return "serviceResourceURI must hold the DNS name to look up";
+        }
+        if (name.length() > 253) {
+            return "DNS name '" + name + "' is longer than 253 characters";
+        }
+        for (String label : name.split("\\.", -1)) {
+            if (label.isEmpty() || label.length() > 63) {
+                return "DNS name '" + name + "' has an empty or over-long label";
+            }
+        }
+        if (!RECORD_TYPES.containsKey(recordType(service))) {
+            return "serviceMethod '" + service.getServiceMethod() + "' is not a DNS record type, expected one of " + RECORD_TYPES.keySet();
+        }
+        return null;
+    }
+
+    private static String queryName(ServiceMonitorApplication.Service service) {
+        String name = service.getServiceResourceURI() == null ? "" : service.getServiceResourceURI().trim();
+        while (name.startsWith("/")) {
+            name = name.substring(1);
+        }
+        return name.endsWith(".") ? name.substring(0, name.length() - 1) : name;
+    }
+
+    private static String recordType(ServiceMonitorApplication.Service service) {
+        String method = service.getServiceMethod();
+        return method == null || method.isBlank() ? "A" : method.trim().toUpperCase(Locale.ROOT);
+    }
+
+    @Override
+    public CompletableFuture<ProbeResult> probe(ServiceMonitorApplication.Service service, BodyMatcher matcher) {
+        long timestamp = System.currentTimeMillis();
+        String problem = validate(service);
+        if (problem != null) {
+            return CompletableFuture.completedFuture(down(service, timestamp, false));
+        }
+        InetSocketAddress server;
+        try {
+            server = context.resolve(service.getServiceHost(), service.getServicePort());
+        } catch (UnknownHostException e) {
+            return CompletableFuture.completedFuture(down(service, timestamp, false));
+        }
+        Query query = new Query(service, matcher, server, timestamp);
+        context.getEventLoop().open(query);
+        return query.future;
+    }
+
+    private static ProbeResult down(ServiceMonitorApplication.Service service, long timestamp, boolean serverUp) {
+        return new ProbeResult(service.getid(), timestamp, serverUp, false, ProbeResult.NO_HTTP_STATUS, ProbeTimings.NONE, true);
+    }
+
+    static byte[] encodeQuery(int id, String name, int type) {
+        ByteBuffer message = ByteBuffer.allocate(12 + name.length() + 2 + 4);
+        message.putShort((short) id);
+        message.putShort((short) 0x0100); // standard query, recursion desired
+        message.putShort((short) 1);
+        message.putShort((short) 0);
+        message.putShort((short) 0);
+        message.putShort((short) 0);
+        for (String label : name.split("\\.")) {
+            byte[] bytes = label.getBytes(StandardCharsets.US_ASCII);
+            message.put((byte) bytes.length);
+            message.put(bytes);
+        }
+        message.put((byte) 0);
+        message.putShort((short) type);
+        message.putShort((short) 1); // class IN
+        return Arrays.copyOf(message.array(), message.position());
+    }
+
+    /**
+     * Reads a possibly compressed name starting at offset into name and returns the offset just past it.
+     */
+    private static int readName(byte[] message, int offset, StringBuilder name) throws IOException {
+        int end = -1;
+        int jumps = 0;
+        while (true) {
+            if (offset >= message.length) {
+                throw new IOException("DNS name runs past the message");
+            }
+            int length = message[offset] & 0xff;
+            if (length == 0) {
+                return end < 0 ? offset + 1 : end;
+            }
+            if ((length & 0xc0) == 0xc0) {
+                if (offset + 1 >= message.length || ++jumps > 32) {
+                    throw new IOException("Malformed DNS name compression");
+                }
+                if (end < 0) {
+                    end = offset + 2;
+                }
+                offset = ((length & 0x3f) << 8) | (message[offset + 1] & 0xff);
+                continue;
+            }
+            if (offset + 1 + length > message.length) {
+                throw new IOException("DNS label runs past the message");
+            }
+            if (name.length() > 0) {
+                name.append('.');
+            }
+            name.append(new String(message, offset + 1, length, StandardCharsets.US_ASCII));
+            offset += 1 + length;
+        }
+    }
+
+    private static String readName(byte[] message, int offset) throws IOException {
+        StringBuilder name = new StringBuilder();
+        readName(message, offset, name);
+        return name.toString();
+    }
+
+    private static int u16(byte[] message, int offset) {
+        return ((message[offset] & 0xff) << 8) | (message[offset + 1] & 0xff);
+    }
+
+    private static long u32(byte[] message, int offset) {
+        return ((long) u16(message, offset) << 16) | u16(message, offset + 2);
+    }
+
+    /**
+     * The records of the requested type in a response, each written out the way dig shows its data.
+     */
+    static List<String> answers(byte[] message, int length, int type) throws IOException {
+        byte[] data = Arrays.copyOf(message, length);
+        int answerCount = u16(data, 6);
+        int offset = 12;
+        for (int i = u16(data, 4); i > 0; i--) {
+            offset = readName(data, offset, new StringBuilder()) + 4;
+        }
+        List<String> records = new ArrayList<>();
+        for (int i = 0; i < answerCount; i++) {
+            offset = readName(data, offset, new StringBuilder());
+            if (offset + 10 > data.length) {
+                throw new IOException("Truncated DNS answer");
+            }
+            int recordType = u16(data, offset);
+            int dataLength = u16(data, offset + 8);
+            int start = offset + 10;
+            offset = start + dataLength;
+            if (offset > data.length) {
+                throw new IOException("Truncated DNS answer");
+            }
+            if (recordType == type) {
+                records.add(render(data, start, dataLength, type));
+            }
+        }
+        return records;
+    }
+
+    private static String render(byte[] data, int start, int length, int type) throws IOException {
+        switch (type) {
+            case 1:
+            case 28:
+                return InetAddress.getByAddress(Arrays.copyOfRange(data, start, start + length)).getHostAddress();
+            case 2:
+            case 5:
+            case 12:
+                return readName(data, start);
+            case 15:
+                return u16(data, start) + " " + readName(data, start + 2);
+            case 33:
+                return u16(data, start) + " " + u16(data, start + 2) + " " + u16(data, start + 4) + " "
+                        + readName(data, start + 6);
+            case 6: {
+                StringBuilder mname = new StringBuilder();
+                StringBuilder rname = new StringBuilder();
+                int offset = readName(data, readName(data, start, mname), rname);
+                return mname + " " + rname + " " + u32(data, offset);
+            }
+            case 16: {
+                StringBuilder text = new StringBuilder();
+                for (int offset = start; offset < start + length; ) {
+                    int stringLength = data[offset] & 0xff;
+                    text.append(new String(data, offset + 1, stringLength, StandardCharsets.UTF_8));
+                    offset += 1 + stringLength;
+                }
+                return text.toString();
+            }
+            default:
+                return "";
+        }
+    }
+
+    private final class Query extends ProbeEventLoop.Handler {
+        private final ServiceMonitorApplication.Service service;
+        private final BodyMatcher matcher;
+        private final InetSocketAddress server;
+        private final long timestamp;
+        private final int type;
+        private final int id = ThreadLocalRandom.current().nextInt(0x10000);
+        private final ByteBuffer request;
+        private final CompletableFuture<ProbeResult> future = new CompletableFuture<>();
+        private DatagramChannel channel;
+        private long startNanos;
+
+        Query(ServiceMonitorApplication.Service service, BodyMatcher matcher, InetSocketAddress server, long timestamp) {
+            this.service = service;
+            this.matcher = matcher;
+            this.server = server;
+            this.timestamp = timestamp;
+            this.type = RECORD_TYPES.get(recordType(service));
+            this.request = ByteBuffer.wrap(encodeQuery(id, queryName(service), type));
+        }
+
+        @Override
+        protected void start() throws IOException {
+            startNanos = System.nanoTime();
+            channel = DatagramChannel.open();
+            register(channel, SelectionKey.OP_READ);
+            channel.connect(server);
+            send();
+        }
+
+        private void send() throws IOException {
+            request.rewind();
+            channel.write(request);
+            long remaining = context.getTimeoutMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            deadline(Math.min(RETRANSMIT_MILLIS, remaining), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        protected void timedOut() {
+            if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) >= context.getTimeoutMillis()) {
+                super.timedOut();
+                return;
+            }
+            try {
+                send();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        protected void readable() throws IOException {
+            while (true) {
+                receiveBuffer.clear();
+                if (channel.read(receiveBuffer) <= 0) {
+                    return;
+                }
+                byte[] message = receiveBuffer.array();
+                int length = receiveBuffer.position();
+                // Ignore anything that is not the response to this query, such as a late reply to an earlier one.
+                if (length < 12 || u16(message, 0) != id || (message[2] & 0x80) == 0) {
+                    continue;
+                }
+                long totalNanos = System.nanoTime() - startNanos;
+                int rcode = message[3] & 0x0f;
+                boolean up = false;
+                boolean matched = true;
+                if (rcode == 0) {
+                    List<String> records;
+                    try {
+                        records = answers(message, length, type);
+                    } catch (IOException | IndexOutOfBoundsException e) {
+                        // The server answered, just not with anything usable.
+                        records = Collections.emptyList();
+                    }
+                    up = !records.isEmpty();
+                    if (up && matcher != null) {
+                        byte[] text = String.join("\n", records).getBytes(StandardCharsets.UTF_8);
+                        matched = matcher.advance(BodyMatcher.START, text, 0, text.length) == BodyMatcher.MATCHED;
+                        up = matched;
+                    }
+                }
+                close();
+                ProbeTimings timings = new ProbeTimings(0, 0, totalNanos, totalNanos, false, false);
+                future.complete(new ProbeResult(service.getid(), timestamp, true, up, ProbeResult.NO_HTTP_STATUS, timings, matched));
+                return;
+            }
+        }
+
+        @Override
+        protected void failed(Exception cause) {
+            // A refused port shows up as a failed read; either way no answer came back.
+            future.complete(down(service, timestamp, false));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends every event as one line of JSON to a file.
+ */
+public class FileAlertSink implements AlertSink {
+    private final Path file;
+
+    public FileAlertSink(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void send(List<StateChangeEvent> events) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            for (StateChangeEvent event : events) {
+                writer.write(event.toJson());
+                writer.newLine();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "file " + file;
+    }
+}
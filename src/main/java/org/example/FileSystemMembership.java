@@ -0,0 +1,213 @@
+package org.example;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Membership through a directory shared by all instances, such as an NFS mount. Every instance rewrites
+ * its own node file on each heartbeat with the heartbeat time and its latest results; instances whose
+ * file has not been rewritten within the expiry are considered gone. Clocks of the instances are assumed
+ * to be roughly in sync.
+ */
+public class FileSystemMembership implements ClusterMembership {
+    public static final long DEFAULT_HEARTBEAT_MILLIS = 2000;
+
+    private static final int MAGIC = 0x534B4E44;
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".node";
+
+    private final Path directory;
+    private final String nodeId;
+    private final long heartbeatMillis;
+    private final long expiryMillis;
+    private final Thread heartbeatThread;
+    private volatile Collection<ProbeResult> status = Collections.emptyList();
+    private volatile Consumer<Set<String>> listener;
+    private volatile boolean running;
+    private volatile Set<String> lastMembers = Collections.emptySet();
+
+    public FileSystemMembership(Path directory, String nodeId, long heartbeatMillis, long expiryMillis) {
+        this.directory = directory;
+        this.nodeId = nodeId.replaceAll("[^A-Za-z0-9._-]", "_");
+        this.heartbeatMillis = heartbeatMillis;
+        this.expiryMillis = expiryMillis;
+        this.heartbeatThread = new Thread(this::runLoop, "cluster-heartbeat");
+        this.heartbeatThread.setDaemon(true);
+    }
+
+    public static FileSystemMembership fromSystemProperties() {
+        long heartbeat = Long.getLong("sky.monitor.cluster.heartbeatMillis", DEFAULT_HEARTBEAT_MILLIS);
+        return new FileSystemMembership(
+                Paths.get(System.getProperty("sky.monitor.cluster.dir", "cluster")),
+                System.getProperty("sky.monitor.cluster.nodeId", defaultNodeId()),
+                heartbeat,
+                Long.getLong("sky.monitor.cluster.expiryMillis", heartbeat * 3));
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "localhost";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+
+    @Override
+    public String getLocalNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public Set<String> getMembers() {
+        return lastMembers;
+    }
+
+    @Override
+    public void join(Consumer<Set<String>> listener) throws IOException {
+        Files.createDirectories(directory);
+        writeNodeFile();
+        this.listener = listener;
+        running = true;
+        poll();
+        heartbeatThread.start();
+    }
+
+    @Override
+    public void publishStatus(Collection<ProbeResult> results) {
+        status = new ArrayList<>(results);
+    }
+
+    @Override
+    public Collection<ProbeResult> readPeerStatus() throws IOException {
+        List<ProbeResult> results = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            // Nobody has joined yet.
+            return results;
+        }
+        long now = System.currentTimeMillis();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                if (!file.getFileName().toString().equals(nodeId + SUFFIX)) {
+                    readNodeFile(file, now, results);
+                }
+            }
+        }
+        return results;
+    }
+
+    private void runLoop() {
+        while (running) {
+            try {
+                Thread.sleep(heartbeatMillis);
+                if (!running) {
+                    break;
+                }
+                writeNodeFile();
+                poll();
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Cluster heartbeat failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void poll() throws IOException {
+        Set<String> members = new TreeSet<>();
+        members.add(nodeId);
+        long now = System.currentTimeMillis();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (readNodeFile(file, now, null)) {
+                    members.add(name.substring(0, name.length() - SUFFIX.length()));
+                }
+            }
+        }
+        if (!members.equals(lastMembers)) {
+            Set<String> live = Collections.unmodifiableSet(members);
+            lastMembers = live;
+            Consumer<Set<String>> current = listener;
+            if (current != null) {
+                current.accept(live);
+            }
+        }
+    }
+
+    /**
+     * Reads a node file and tells whether its heartbeat is recent; results are only collected from live
+     * nodes, and only when a collection is given.
+     */
+    private boolean readNodeFile(Path file, long now, Collection<ProbeResult> results) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+            long heartbeat = in.readLong();
+            if (now - heartbeat > expiryMillis) {
+                return false;
+            }
+            if (results != null) {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    int serviceId = in.readInt();
+                    long timestamp = in.readLong();
+                    byte flags = in.readByte();
+                    int httpStatus = in.readInt();
+                    // Members that predate the explicit application bit only ran HTTP probes.
+                    results.add((flags & 8) == 0
+                            ? new ProbeResult(serviceId, timestamp, (flags & 1) != 0, httpStatus, ProbeTimings.NONE, (flags & 2) != 0)
+                            : new ProbeResult(serviceId, timestamp, (flags & 1) != 0, (flags & 4) != 0, httpStatus,
+                                    ProbeTimings.NONE, (flags & 2) != 0));
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            // A file being replaced or left half-written by a crashed node counts as absent.
+            return false;
+        }
+    }
+
+    private void writeNodeFile() throws IOException {
+        Path file = directory.resolve(nodeId + SUFFIX);
+        Path temp = directory.resolve(nodeId + SUFFIX + ".tmp");
+        Collection<ProbeResult> results = status;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(results.size());
+            for (ProbeResult result : results) {
+                out.writeInt(result.getServiceId());
+                out.writeLong(result.getTimestamp());
+                out.writeByte((result.isServerUp() ? 1 : 0) | (result.isContentMatched() ? 2 : 0)
+                        | (result.isApplicationUp() ? 4 : 0) | 8);
+                out.writeInt(result.getHttpStatus());
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        heartbeatThread.interrupt();
+        try {
+            heartbeatThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Files.deleteIfExists(directory.resolve(nodeId + SUFFIX));
+        } catch (IOException e) {
+            System.out.println("Unable to leave the cluster cleanly: " + e.getMessage());
+        }
+    }
+}
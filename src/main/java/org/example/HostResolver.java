@@ -0,0 +1,109 @@
+package org.example;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.security.Security;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches host name lookups for the probes. Answers are kept for a positive TTL and failures for a shorter
+ * negative TTL; both default to the JVM's networkaddress.cache settings. Concurrent lookups of the same
+ * host share one query.
+ */
+public class HostResolver {
+    public static final long DEFAULT_TTL_SECONDS = 30;
+    public static final long DEFAULT_NEGATIVE_TTL_SECONDS = 10;
+
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final Map<String, Lookup> cache = new ConcurrentHashMap<>();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    public HostResolver(long ttlSeconds, long negativeTtlSeconds) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(0, ttlSeconds));
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(Math.max(0, negativeTtlSeconds));
+    }
+
+    public static HostResolver fromSystemProperties() {
+        long ttl = Long.getLong("sky.monitor.dns.ttlSeconds",
+                securityLong("networkaddress.cache.ttl", DEFAULT_TTL_SECONDS));
+        long negativeTtl = Long.getLong("sky.monitor.dns.negativeTtlSeconds",
+                securityLong("networkaddress.cache.negative.ttl", DEFAULT_NEGATIVE_TTL_SECONDS));
+        return new HostResolver(ttl, negativeTtl);
+    }
+
+    private static long securityLong(String name, long defaultValue) {
+        String value = Security.getProperty(name);
+        try {
+            // A negative value means "cache forever" to the JVM; a day is close enough for a monitor.
+            long parsed = value == null ? defaultValue : Long.parseLong(value.trim());
+            return parsed < 0 ? TimeUnit.DAYS.toSeconds(1) : parsed;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public InetAddress resolve(String host) throws UnknownHostException {
+        Lookup lookup;
+        for (;;) {
+            lookup = cache.get(host);
+            if (lookup != null && !lookup.isExpired(System.nanoTime())) {
+                hits.increment();
+                break;
+            }
+            Lookup fresh = new Lookup();
+            boolean won = lookup == null ? cache.putIfAbsent(host, fresh) == null : cache.replace(host, lookup, fresh);
+            if (won) {
+                lookups.increment();
+                fresh.run(host);
+                lookup = fresh;
+                break;
+            }
+        }
+        try {
+            return lookup.address.join();
+        } catch (CompletionException e) {
+            UnknownHostException unknown = new UnknownHostException(host);
+            unknown.initCause(e.getCause());
+            throw unknown;
+        }
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    private class Lookup {
+        private final CompletableFuture<InetAddress> address = new CompletableFuture<>();
+        private volatile long expiresAt;
+
+        void run(String host) {
+            try {
+                InetAddress resolved = InetAddress.getByName(host);
+                expiresAt = System.nanoTime() + ttlNanos;
+                address.complete(resolved);
+            } catch (UnknownHostException | RuntimeException e) {
+                expiresAt = System.nanoTime() + negativeTtlNanos;
+                address.completeExceptionally(e);
+            }
+        }
+
+        boolean isExpired(long now) {
+            return address.isDone() && now - expiresAt >= 0;
+        }
+    }
+}
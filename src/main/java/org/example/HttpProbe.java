@@ -0,0 +1,619 @@
+package org.example;
+
+import javax.net.ssl.SSLEngine;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP and HTTPS probes as state machines on the shared event loop. Idle keep-alive connections are kept
+ * per host:port for the next probe, and the response body is searched for the expected text as it
+ * arrives, so reading stops at the first match. The service is first checked for reachability like every
+ * other TCP probe; serviceMethod is the request method and serviceResourceURI the path.
+ */
+class HttpProbe implements Probe {
+    private static final long IDLE_TIMEOUT_MILLIS = 30_000;
+    private static final int MAX_IDLE_CONNECTIONS_PER_ROUTE = 2;
+    private static final int MAX_DRAINED_BODY_BYTES = 1024 * 1024;
+    private static final int MATCHED_TAIL_BYTES = 64 * 1024;
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    private final ProbeContext context;
+    private final boolean secure;
+    // Only used on the event loop thread.
+    private final Map<String, ArrayDeque<Connection>> idleConnections = new HashMap<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(16 * 1024);
+
+    HttpProbe(ProbeContext context, boolean secure) {
+        this.context = context;
+        this.secure = secure;
+    }
+
+    @Override
+    public CompletableFuture<ProbeResult> probe(ServiceMonitorApplication.Service service, BodyMatcher matcher) {
+        long timestamp = System.currentTimeMillis();
+        InetSocketAddress address;
+        try {
+            address = context.resolve(service.getServiceHost(), service.getServicePort());
+        } catch (UnknownHostException e) {
+            return CompletableFuture.completedFuture(
+                    new ProbeResult(service.getid(), timestamp, false, ProbeResult.NO_HTTP_STATUS, ProbeTimings.NONE));
+        }
+        return context.checkServer(address).thenCompose(up -> {
+            if (!up) {
+                return CompletableFuture.completedFuture(
+                        new ProbeResult(service.getid(), timestamp, false, ProbeResult.NO_HTTP_STATUS, ProbeTimings.NONE));
+            }
+            Exchange exchange = new Exchange(service, matcher, address, timestamp);
+            context.getEventLoop().execute(() -> dispatch(exchange, true));
+            return exchange.future;
+        });
+    }
+
+    private void dispatch(Exchange exchange, boolean reuse) {
+        Connection connection = reuse ? pollIdleConnection(exchange.route) : null;
+        if (connection != null) {
+            connection.begin(exchange);
+        } else {
+            context.getEventLoop().open(new Connection(exchange));
+        }
+    }
+
+    private Connection pollIdleConnection(String route) {
+        ArrayDeque<Connection> pool = idleConnections.get(route);
+        if (pool == null) {
+            return null;
+        }
+        Connection connection = pool.pollFirst();
+        if (pool.isEmpty()) {
+            idleConnections.remove(route);
+        }
+        return connection;
+    }
+
+    private boolean release(Connection connection) {
+        ArrayDeque<Connection> pool = idleConnections.computeIfAbsent(connection.route, key -> new ArrayDeque<>());
+        if (pool.size() >= MAX_IDLE_CONNECTIONS_PER_ROUTE) {
+            return false;
+        }
+        pool.addFirst(connection);
+        return true;
+    }
+
+    private void forget(Connection connection) {
+        ArrayDeque<Connection> pool = idleConnections.get(connection.route);
+        if (pool != null && pool.remove(connection) && pool.isEmpty()) {
+            idleConnections.remove(connection.route);
+        }
+    }
+
+    private static ProbeResult failedExchange(Exchange exchange) {
+        // The server accepted the reachability check, so it counts as UP even though no response came back.
+        return new ProbeResult(exchange.service.getid(), exchange.timestamp, true, ProbeResult.NO_HTTP_STATUS, ProbeTimings.NONE);
+    }
+
+    private final class Exchange {
+        private final ServiceMonitorApplication.Service service;
+        private final BodyMatcher matcher;
+        private final InetSocketAddress address;
+        private final String route;
+        private final long timestamp;
+        private final boolean head;
+        private final byte[] request;
+        private final CompletableFuture<ProbeResult> future = new CompletableFuture<>();
+
+        Exchange(ServiceMonitorApplication.Service service, BodyMatcher matcher, InetSocketAddress address, long timestamp) {
+            this.service = service;
+            this.matcher = matcher;
+            this.address = address;
+            this.route = address.getHostString() + ":" + address.getPort();
+            this.timestamp = timestamp;
+            String method = service.getServiceMethod() == null || service.getServiceMethod().isBlank()
+                    ? "GET" : service.getServiceMethod().trim();
+            String resourceUri = service.getServiceResourceURI();
+            String host = service.getServiceHost();
+            int port = service.getServicePort();
+            String hostHeader = port == (secure ? 443 : 80) ? host : host + ":" + port;
+            this.head = "HEAD".equalsIgnoreCase(method);
+            this.request = (method + " " + (resourceUri == null || resourceUri.isEmpty() ? "/" : resourceUri) + " HTTP/1.1\r\n"
+                    + "Host: " + hostHeader + "\r\n"
+                    + "User-Agent: sky-monitor\r\n"
+                    + "Accept: */*\r\n"
+                    + "Connection: keep-alive\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private enum State {
+        CONNECTING, HANDSHAKING, WRITING, READING, IDLE
+    }
+
+    private final class Connection extends ProbeEventLoop.Handler {
+        private final String route;
+        private final InetSocketAddress address;
+        private final String host;
+        private SocketChannel channel;
+        private TlsChannel tls;
+        private State state = State.CONNECTING;
+        private Exchange exchange;
+        private ResponseParser parser;
+        private ByteBuffer request;
+        private boolean reused;
+        private long startNanos;
+        private long connectNanos;
+        private long tlsNanos;
+        private long handshakeStartNanos;
+        private long handshakeStartMillis;
+        private boolean sessionResumed;
+        private long ttfbNanos;
+        private long lastActivityNanos;
+
+        Connection(Exchange exchange) {
+            this.exchange = exchange;
+            this.route = exchange.route;
+            this.address = exchange.address;
+            this.host = exchange.service.getServiceHost();
+        }
+
+        @Override
+        protected void start() throws IOException {
+            startNanos = System.nanoTime();
+            lastActivityNanos = startNanos;
+            channel = SocketChannel.open();
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            register(channel, 0);
+            deadline(context.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            if (channel.connect(address)) {
+                connected();
+            } else {
+                interestOps(SelectionKey.OP_CONNECT);
+            }
+        }
+
+        /**
+         * Sends the next request over this idle connection.
+         */
+        void begin(Exchange next) {
+            exchange = next;
+            reused = true;
+            startNanos = System.nanoTime();
+            lastActivityNanos = startNanos;
+            ttfbNanos = 0;
+            if (tls != null) {
+                tls.allocate();
+            }
+            deadline(context.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            try {
+                sendRequest();
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        protected void connectable() throws IOException {
+            if (channel.finishConnect()) {
+                connected();
+            }
+        }
+
+        private void connected() throws IOException {
+            connectNanos = System.nanoTime() - startNanos;
+            if (!secure) {
+                sendRequest();
+                return;
+            }
+            SSLEngine engine = context.getSslContext().createSSLEngine(host, address.getPort());
+            engine.setUseClientMode(true);
+            tls = new TlsChannel(channel, engine);
+            state = State.HANDSHAKING;
+            handshakeStartNanos = System.nanoTime();
+            handshakeStartMillis = System.currentTimeMillis();
+            handshake();
+        }
+
+        private void handshake() throws IOException {
+            if (!tls.handshake()) {
+                interestOps(tls.wantsWrite() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+                return;
+            }
+            tlsNanos = System.nanoTime() - handshakeStartNanos;
+            sessionResumed = tls.getSession().getCreationTime() < handshakeStartMillis;
+            sendRequest();
+        }
+
+        private void sendRequest() throws IOException {
+            state = State.WRITING;
+            request = ByteBuffer.wrap(exchange.request);
+            writeRequest();
+        }
+
+        private void writeRequest() throws IOException {
+            if (!(tls != null ? tls.write(request) : writePlain(request))) {
+                interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            state = State.READING;
+            parser = new ResponseParser(exchange.head, exchange.matcher, context.getMaxBodyBytes());
+            interestOps(SelectionKey.OP_READ);
+        }
+
+        private boolean writePlain(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.write(buffer) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        protected void readable() throws IOException {
+            switch (state) {
+                case HANDSHAKING:
+                    handshake();
+                    break;
+                case READING:
+                    readResponse();
+                    break;
+                case IDLE:
+                    readWhileIdle();
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        protected void writable() throws IOException {
+            switch (state) {
+                case HANDSHAKING:
+                    handshake();
+                    break;
+                case WRITING:
+                    writeRequest();
+                    break;
+                case READING:
+                    if (tls == null || tls.flush()) {
+                        interestOps(SelectionKey.OP_READ);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void readResponse() throws IOException {
+            while (true) {
+                readBuffer.clear();
+                int read = tls != null ? tls.read(readBuffer) : channel.read(readBuffer);
+                if (read == 0) {
+                    interestOps(tls != null && tls.wantsWrite() ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+                    return;
+                }
+                if (read < 0) {
+                    if (parser.endOfStream()) {
+                        finish();
+                        return;
+                    }
+                    throw new EOFException("Connection closed before the response was complete");
+                }
+                if (ttfbNanos == 0) {
+                    ttfbNanos = System.nanoTime() - startNanos;
+                }
+                lastActivityNanos = System.nanoTime();
+                readBuffer.flip();
+                if (parser.feed(readBuffer)) {
+                    finish();
+                    return;
+                }
+            }
+        }
+
+        private void finish() {
+            long totalNanos = System.nanoTime() - startNanos;
+            ProbeTimings timings = reused
+                    ? new ProbeTimings(0, 0, ttfbNanos, totalNanos, true, false)
+                    : new ProbeTimings(connectNanos, tlsNanos, ttfbNanos, totalNanos, false, sessionResumed);
+            Exchange done = exchange;
+            exchange = null;
+            ProbeResult result = new ProbeResult(done.service.getid(), done.timestamp, true, parser.statusCode, timings,
+                    done.matcher == null || parser.matched);
+            if (parser.keepAlive && release(this)) {
+                state = State.IDLE;
+                parser = null;
+                request = null;
+                if (tls != null) {
+                    tls.release();
+                }
+                interestOps(SelectionKey.OP_READ);
+                deadline(IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } else {
+                shutdown();
+            }
+            done.future.complete(result);
+        }
+
+        /**
+         * An idle connection that becomes readable has been closed by the server, or sent something it
+         * should not have; either way it cannot carry the next request.
+         */
+        private void readWhileIdle() throws IOException {
+            if (tls != null) {
+                tls.allocate();
+                readBuffer.clear();
+                if (tls.read(readBuffer) == 0) {
+                    // A late session ticket or similar, consumed by the engine.
+                    tls.release();
+                    return;
+                }
+            }
+            shutdown();
+        }
+
+        /**
+         * The timeout applies to the connect and to every read, like a socket timeout. Reads only note when
+         * they happened, and the deadline is moved here instead of on every read.
+         */
+        @Override
+        protected void timedOut() {
+            if (state == State.IDLE) {
+                shutdown();
+                return;
+            }
+            long quietNanos = System.nanoTime() - lastActivityNanos;
+            long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(context.getTimeoutMillis());
+            if (quietNanos < timeoutNanos) {
+                deadline(timeoutNanos - quietNanos, TimeUnit.NANOSECONDS);
+            } else {
+                super.timedOut();
+            }
+        }
+
+        private void shutdown() {
+            forget(this);
+            if (tls != null) {
+                tls.closeOutbound();
+            }
+            close();
+        }
+
+        @Override
+        protected void failed(Exception cause) {
+            forget(this);
+            Exchange failed = exchange;
+            exchange = null;
+            if (failed == null) {
+                return;
+            }
+            if (reused && ttfbNanos == 0) {
+                // The server dropped the pooled connection before answering; try once on a fresh one.
+                dispatch(failed, false);
+                return;
+            }
+            failed.future.complete(failedExchange(failed));
+        }
+    }
+
+    /**
+     * Incremental HTTP/1.1 response parser. Bytes are fed as they arrive; the body is passed through the
+     * matcher with its transfer framing removed, and interim 1xx responses are skipped.
+     */
+    private static final class ResponseParser {
+        private static final int STATUS_LINE = 0;
+        private static final int HEADERS = 1;
+        private static final int BODY = 2;
+        private static final int CHUNK_SIZE = 3;
+        private static final int CHUNK_END = 4;
+        private static final int TRAILERS = 5;
+        private static final int DONE = 6;
+
+        private final boolean head;
+        private final BodyMatcher matcher;
+        private final long maxBodyBytes;
+        private final StringBuilder line = new StringBuilder();
+        private int phase = STATUS_LINE;
+        private int statusCode = ProbeResult.NO_HTTP_STATUS;
+        private boolean http10;
+        private long contentLength;
+        private boolean chunked;
+        private boolean connectionClose;
+        private boolean connectionKeepAlive;
+        // Bytes left in the body or chunk, or -1 for a body that ends when the connection closes.
+        private long remaining;
+        private long consumed;
+        private long limit;
+        private int matchState = BodyMatcher.START;
+        private boolean matched;
+        private boolean keepAlive;
+
+        ResponseParser(boolean head, BodyMatcher matcher, long maxBodyBytes) {
+            this.head = head;
+            this.matcher = matcher;
+            this.maxBodyBytes = maxBodyBytes;
+        }
+
+        /**
+         * Returns true once the response is complete, or has been read as far as the probe needs.
+         */
+        boolean feed(ByteBuffer buffer) throws IOException {
+            while (phase != DONE && buffer.hasRemaining()) {
+                if (phase == BODY) {
+                    readBody(buffer);
+                    continue;
+                }
+                String text = readLine(buffer);
+                if (text == null) {
+                    return false;
+                }
+                switch (phase) {
+                    case STATUS_LINE:
+                        statusLine(text);
+                        break;
+                    case HEADERS:
+                        if (text.isEmpty()) {
+                            headersDone();
+                        } else {
+                            header(text);
+                        }
+                        break;
+                    case CHUNK_SIZE:
+                        int extension = text.indexOf(';');
+                        remaining = Long.parseLong((extension >= 0 ? text.substring(0, extension) : text).trim(), 16);
+                        phase = remaining == 0 ? TRAILERS : BODY;
+                        break;
+                    case CHUNK_END:
+                        phase = CHUNK_SIZE;
+                        break;
+                    case TRAILERS:
+                        if (text.isEmpty()) {
+                            phase = DONE;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return phase == DONE;
+        }
+
+        /**
+         * The server closed the connection. Returns whether that completed the response.
+         */
+        boolean endOfStream() {
+            if (phase == BODY && remaining < 0) {
+                phase = DONE;
+            }
+            return phase == DONE;
+        }
+
+        private void statusLine(String text) throws IOException {
+            String[] parts = text.split(" ", 3);
+            if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+                throw new IOException("Malformed status line: " + text);
+            }
+            try {
+                statusCode = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed status line: " + text, e);
+            }
+            http10 = parts[0].startsWith("HTTP/1.0");
+            contentLength = -1;
+            chunked = false;
+            connectionClose = false;
+            connectionKeepAlive = false;
+            phase = HEADERS;
+        }
+
+        private void header(String text) {
+            int colon = text.indexOf(':');
+            if (colon <= 0) {
+                return;
+            }
+            String name = text.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = text.substring(colon + 1).trim().toLowerCase(Locale.ROOT);
+            switch (name) {
+                case "content-length":
+                    contentLength = Long.parseLong(value);
+                    break;
+                case "transfer-encoding":
+                    chunked = value.contains("chunked");
+                    break;
+                case "connection":
+                    connectionClose = value.contains("close");
+                    connectionKeepAlive = value.contains("keep-alive");
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void headersDone() {
+            if (statusCode >= 100 && statusCode < 200 && statusCode != 101) {
+                phase = STATUS_LINE;
+                return;
+            }
+            keepAlive = !connectionClose && (!http10 || connectionKeepAlive);
+            if (head || statusCode == 204 || statusCode == 304) {
+                phase = DONE;
+                return;
+            }
+            limit = matcher == null ? MAX_DRAINED_BODY_BYTES : maxBodyBytes;
+            if (matcher == null && contentLength > limit) {
+                abandon();
+            } else if (chunked) {
+                phase = CHUNK_SIZE;
+            } else if (contentLength >= 0) {
+                remaining = contentLength;
+                phase = contentLength == 0 ? DONE : BODY;
+            } else {
+                remaining = -1;
+                keepAlive = false;
+                phase = BODY;
+            }
+        }
+
+        private void readBody(ByteBuffer buffer) {
+            if (consumed >= limit) {
+                abandon();
+                return;
+            }
+            int count = (int) Math.min(buffer.remaining(), limit - consumed);
+            if (remaining >= 0) {
+                count = (int) Math.min(count, remaining);
+            }
+            if (matcher != null && !matched) {
+                matchState = matcher.advance(matchState, buffer.array(), buffer.arrayOffset() + buffer.position(), count);
+                if (matchState == BodyMatcher.MATCHED) {
+                    matched = true;
+                    // Finish a short tail to keep the connection; a long one is cheaper to abandon.
+                    limit = Math.min(limit, consumed + count + MATCHED_TAIL_BYTES);
+                }
+            }
+            buffer.position(buffer.position() + count);
+            consumed += count;
+            if (remaining > 0) {
+                remaining -= count;
+                if (remaining == 0) {
+                    phase = chunked ? CHUNK_END : DONE;
+                }
+            }
+        }
+
+        private void abandon() {
+            keepAlive = false;
+            phase = DONE;
+        }
+
+        private String readLine(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                char c = (char) (buffer.get() & 0xFF);
+                if (c == '\n') {
+                    int length = line.length();
+                    if (length > 0 && line.charAt(length - 1) == '\r') {
+                        line.setLength(length - 1);
+                    }
+                    String text = line.toString();
+                    line.setLength(0);
+                    return text;
+                }
+                if (line.length() >= MAX_LINE_LENGTH) {
+                    throw new IOException("Response line too long");
+                }
+                line.append(c);
+            }
+            return null;
+        }
+    }
+}
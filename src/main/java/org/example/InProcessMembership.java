@@ -0,0 +1,82 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Membership between instances in the same JVM, for tests and local experiments. Members of a
+ * {@link Group} see joins and leaves synchronously, and published results are visible immediately.
+ */
+public class InProcessMembership implements ClusterMembership {
+    private final Group group;
+    private final String nodeId;
+    private volatile Consumer<Set<String>> listener;
+    private volatile Collection<ProbeResult> status = new ArrayList<>();
+
+    public InProcessMembership(Group group, String nodeId) {
+        this.group = group;
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public String getLocalNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public Set<String> getMembers() {
+        return group.live;
+    }
+
+    @Override
+    public void join(Consumer<Set<String>> listener) {
+        this.listener = listener;
+        group.members.put(nodeId, this);
+        group.notifyMembers();
+    }
+
+    @Override
+    public void publishStatus(Collection<ProbeResult> results) {
+        status = new ArrayList<>(results);
+    }
+
+    @Override
+    public Collection<ProbeResult> readPeerStatus() {
+        Collection<ProbeResult> results = new ArrayList<>();
+        for (InProcessMembership member : group.members.values()) {
+            if (member != this) {
+                results.addAll(member.status);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        if (group.members.remove(nodeId, this)) {
+            group.notifyMembers();
+        }
+    }
+
+    public static class Group {
+        private final Map<String, InProcessMembership> members = new ConcurrentHashMap<>();
+        private volatile Set<String> live = Collections.emptySet();
+
+        private synchronized void notifyMembers() {
+            // Every member sees the new set at once, before any of them reacts to it.
+            live = Collections.unmodifiableSet(new TreeSet<>(members.keySet()));
+            for (InProcessMembership member : members.values()) {
+                Consumer<Set<String>> listener = member.listener;
+                if (listener != null) {
+                    listener.accept(live);
+                }
+            }
+        }
+    }
+}
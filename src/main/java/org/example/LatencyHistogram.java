@@ -0,0 +1,85 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear latency histogram in the style of HdrHistogram: every power of two between 1 microsecond and
+ * about 67 seconds is split into four linear sub-buckets, which keeps the relative error under 25% in a
+ * fixed 832-byte array. Recording is a couple of shifts and atomic increments and never allocates.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 26;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    private static final long MAX_MICROS = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    public void recordMillis(long millis) {
+        recordMicros(millis * 1000);
+    }
+
+    public void recordMicros(long micros) {
+        long value = Math.max(0, Math.min(micros, MAX_MICROS));
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sumMicros.add(value);
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((micros >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSumMicros() {
+        return sumMicros.sum();
+    }
+
+    /**
+     * Appends the histogram in Prometheus text format with cumulative buckets at every power of two from
+     * 128 microseconds up. The TYPE line is left to the caller so that several label sets can share it.
+     */
+    public void writePrometheus(StringBuilder out, String name, String labels) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        int bucket = 0;
+        for (int exponent = SUB_BUCKET_BITS; exponent <= MAX_EXPONENT + 1; exponent++) {
+            // Buckets below index upTo hold values strictly smaller than 2^exponent microseconds.
+            int upTo = (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+            for (; bucket < upTo; bucket++) {
+                cumulative += counts.get(bucket);
+            }
+            if (exponent >= 7 && exponent <= MAX_EXPONENT) {
+                out.append(name).append("_bucket{").append(prefix).append("le=\"")
+                        .append((1L << exponent) / 1_000_000.0).append("\"} ").append(cumulative).append('\n');
+            }
+        }
+        out.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(name).append("_sum");
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(getSumMicros() / 1_000_000.0).append('\n');
+        out.append(name).append("_count");
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(cumulative).append('\n');
+    }
+}
@@ -0,0 +1,36 @@
+package org.example;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Most recent probe result of every service, filled by the monitoring loop so that status queries can
+ * be answered without probing.
+ */
+public class LatestStatusCache implements ProbeResultSink {
+    private final Map<Integer, ProbeResult> latest = new ConcurrentHashMap<>();
+
+    @Override
+    public void accept(ServiceMonitorApplication.Service service, ProbeResult result) {
+        update(result);
+    }
+
+    public void update(ProbeResult result) {
+        // Results can arrive out of order when a scheduled probe and a refresh overlap; keep the newest.
+        latest.merge(result.getServiceId(), result,
+                (current, candidate) -> candidate.getTimestamp() >= current.getTimestamp() ? candidate : current);
+    }
+
+    public ProbeResult get(int serviceId) {
+        return latest.get(serviceId);
+    }
+
+    public Collection<ProbeResult> values() {
+        return latest.values();
+    }
+
+    public void remove(int serviceId) {
+        latest.remove(serviceId);
+    }
+}
@@ -0,0 +1,230 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Archives rotated status logs into logs/&lt;serviceName&gt;_logs_&lt;millis&gt;.zip on a bounded pool. Files are
+ * streamed through a fixed buffer, the files still being written to are skipped, and sources are only
+ * deleted once the archive has been completely written and moved into place.
+ */
+public class LogArchiver implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // The writer may still be flushing its last batch into a file it has just rotated away from.
+    private static final long CLOSE_GRACE_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    private static final String[] STATUS_DIRECTORIES = {"application_status", "server_status"};
+    private static final String[] STATUS_TYPES = {"application", "server"};
+
+    private final Path loggingDirectory;
+    private final Path archiveDirectory;
+    private final RotationState rotationState;
+    private final long maxAgeMillis;
+    private final long maxTotalBytes;
+    private final ExecutorService pool;
+    private final Set<String> pendingServices = ConcurrentHashMap.newKeySet();
+    private final LatencyHistogram archiveDuration = new LatencyHistogram();
+    private final LongAdder filesArchived = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public LogArchiver(Path loggingDirectory, Path archiveDirectory, RotationState rotationState,
+                       int threads, long maxAgeMillis, long maxTotalBytes) {
+        this.loggingDirectory = loggingDirectory;
+        this.archiveDirectory = archiveDirectory;
+        this.rotationState = rotationState;
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxTotalBytes = maxTotalBytes;
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1024), new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    public static LogArchiver fromSystemProperties(RotationState rotationState) {
+        int threads = Integer.getInteger("sky.monitor.archive.threads", 2);
+        long maxAgeMillis = TimeUnit.DAYS.toMillis(Long.getLong("sky.monitor.archive.maxAgeDays", 30));
+        long maxTotalBytes = Long.getLong("sky.monitor.archive.maxTotalMb", 1024) * 1024 * 1024;
+        return new LogArchiver(Paths.get("logging"), Paths.get("logs"), rotationState, threads, maxAgeMillis, maxTotalBytes);
+    }
+
+    public void submit(String serviceName) {
+        // One archive run per service at a time; ticks that arrive while it is queued or running are dropped.
+        if (!pendingServices.add(serviceName)) {
+            return;
+        }
+        try {
+            pool.execute(() -> {
+                try {
+                    archive(serviceName);
+                } finally {
+                    pendingServices.remove(serviceName);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingServices.remove(serviceName);
+        }
+    }
+
+    public void archive(String serviceName) {
+        String directoryName = serviceName.replaceAll("\\s+", "_");
+        Path serviceDirectory = loggingDirectory.resolve(directoryName);
+        long start = System.nanoTime();
+        try {
+            List<Path> closedFiles = listClosedLogFiles(serviceDirectory, directoryName);
+            if (!closedFiles.isEmpty()) {
+                compressToZip(serviceName, serviceDirectory, closedFiles);
+                filesArchived.add(closedFiles.size());
+            }
+            applyRetention(serviceName);
+        } catch (IOException e) {
+            failures.increment();
+            e.printStackTrace();
+        } finally {
+            archiveDuration.recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    private List<Path> listClosedLogFiles(Path serviceDirectory, String directoryName) throws IOException {
+        List<Path> closedFiles = new ArrayList<>();
+        long closedBefore = System.currentTimeMillis() - CLOSE_GRACE_MILLIS;
+        for (int i = 0; i < STATUS_DIRECTORIES.length; i++) {
+            Path statusDirectory = serviceDirectory.resolve(STATUS_DIRECTORIES[i]);
+            if (!Files.isDirectory(statusDirectory)) {
+                continue;
+            }
+            Long rotationStart = rotationState.get(directoryName + "_" + STATUS_TYPES[i]);
+            String activeFile = rotationStart != null ? StatusLogWriter.logFileName(rotationStart, STATUS_TYPES[i]) : null;
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(statusDirectory, "*.log")) {
+                for (Path file : files) {
+                    if (Files.isRegularFile(file) && !file.getFileName().toString().equals(activeFile)
+                            && Files.getLastModifiedTime(file).toMillis() < closedBefore) {
+                        closedFiles.add(file);
+                    }
+                }
+            }
+        }
+        closedFiles.sort(Comparator.naturalOrder());
+        return closedFiles;
+    }
+
+    private void compressToZip(String serviceName, Path serviceDirectory, List<Path> files) throws IOException {
+        Files.createDirectories(archiveDirectory);
+        String zipFileName = serviceName + "_logs_" + System.currentTimeMillis() + ".zip";
+        Path zipFile = archiveDirectory.resolve(zipFileName);
+        Path tempFile = archiveDirectory.resolve(zipFileName + ".tmp");
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(tempFile))) {
+            for (Path file : files) {
+                zos.putNextEntry(new ZipEntry(serviceDirectory.relativize(file).toString().replace('\\', '/')));
+                try (InputStream in = Files.newInputStream(file)) {
+                    copy(in, zos, buffer);
+                }
+                zos.closeEntry();
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        Files.move(tempFile, zipFile, StandardCopyOption.ATOMIC_MOVE);
+
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    private void applyRetention(String serviceName) throws IOException {
+        if (!Files.isDirectory(archiveDirectory)) {
+            return;
+        }
+        String prefix = serviceName + "_logs_";
+        List<Path> archives = new ArrayList<>();
+        try (Stream<Path> files = Files.list(archiveDirectory)) {
+            files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(prefix) && name.endsWith(".zip");
+            }).forEach(archives::add);
+        }
+        // Newest first, by the creation millis in the archive name.
+        archives.sort(Comparator.comparingLong((Path file) -> archiveMillis(file, prefix)).reversed());
+
+        long cutoff = System.currentTimeMillis() - maxAgeMillis;
+        long totalBytes = 0;
+        for (Path archive : archives) {
+            totalBytes += Files.size(archive);
+            long createdAt = archiveMillis(archive, prefix);
+            if ((createdAt > 0 && createdAt < cutoff) || totalBytes > maxTotalBytes) {
+                Files.deleteIfExists(archive);
+            }
+        }
+    }
+
+    private static long archiveMillis(Path archive, String prefix) {
+        String name = archive.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - ".zip".length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public LatencyHistogram getArchiveDuration() {
+        return archiveDuration;
+    }
+
+    public long getFilesArchived() {
+        return filesArchived.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public int getQueueDepth() {
+        return ((ThreadPoolExecutor) pool).getQueue().size();
+    }
+
+    public static long calculateArchiveInterval(String interval) {
+        if (interval == null) {
+            return TimeUnit.DAYS.toMillis(7);
+        }
+        switch (interval.toLowerCase()) {
+            case "seconds":
+                return TimeUnit.SECONDS.toMillis(1);
+            case "minutes":
+                return TimeUnit.MINUTES.toMillis(1);
+            case "hourly":
+                return TimeUnit.HOURS.toMillis(1);
+            case "daily":
+                return TimeUnit.DAYS.toMillis(1);
+            case "monthly":
+                return TimeUnit.DAYS.toMillis(30);
+            case "weekly":
+            default:
+                return TimeUnit.DAYS.toMillis(7);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package org.example;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Searches the text status logs of a service, both the files under logging/ and the entries of the zip
+ * archives under logs/, for a time range. Every file and archive entry gets a sparse index, one point per
+ * 64 KiB of log, kept in one index file per service and log type; it is built the first time a source is
+ * searched and extended as the active log file grows. A query skips the sources outside the range and
+ * starts reading each remaining one at the indexed point just before the range. Log files are read
+ * through memory mappings and archive entries through their zip directory, and lines are parsed in
+ * place as yyyyMMddHHmmss keys without creating strings.
+ */
+public class LogHistory {
+    public static final int STATUS_ANY = 0;
+    public static final int STATUS_UP = 1;
+    public static final int STATUS_DOWN = 2;
+
+    private static final int MAGIC = 0x534B4849;
+    private static final int VERSION = 1;
+    private static final int INDEX_STRIDE = 64 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MAP_WINDOW = 256L * 1024 * 1024;
+    private static final DateTimeFormatter KEY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneId.systemDefault());
+
+    private final Path loggingDirectory;
+    private final Path archiveDirectory;
+    private final Path indexDirectory;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    public LogHistory(Path loggingDirectory, Path archiveDirectory, Path indexDirectory) {
+        this.loggingDirectory = loggingDirectory;
+        this.archiveDirectory = archiveDirectory;
+        this.indexDirectory = indexDirectory;
+    }
+
+    public static LogHistory fromSystemProperties() {
+        return new LogHistory(Paths.get("logging"), Paths.get("logs"),
+                Paths.get(System.getProperty("sky.monitor.history.indexDir", "index")));
+    }
+
+    /**
+     * Converts epoch millis to the key the log lines are compared by.
+     */
+    public static long toKey(long epochMillis) {
+        return Long.parseLong(KEY_FORMAT.format(Instant.ofEpochMilli(epochMillis)));
+    }
+
+    /**
+     * Parses a time given as yyyyMMdd_HHmmss, yyyyMMdd_HHmm or yyyyMMdd into a key, or returns -1.
+     */
+    public static long parseKey(String value) {
+        String digits = value.replace("_", "");
+        if (!digits.matches("\\d{8}(\\d{4}(\\d{2})?)?")) {
+            return -1;
+        }
+        StringBuilder padded = new StringBuilder(digits);
+        while (padded.length() < 14) {
+            padded.append('0');
+        }
+        return Long.parseLong(padded.toString());
+    }
+
+    /**
+     * Writes the log lines of one service and type (application or server) between the two keys, both
+     * inclusive, to out and returns how many were written.
+     */
+    public synchronized long query(String serviceName, String type, long fromKey, long toKey, int status,
+                                   OutputStream out) throws IOException {
+        String directoryName = serviceName.replaceAll("\\s+", "_");
+        Path indexFile = indexDirectory.resolve(directoryName + "_" + type + ".idx");
+        Map<String, Section> previous = readIndex(indexFile);
+        Map<String, Section> current = new LinkedHashMap<>();
+        boolean dirty = false;
+
+        Path statusDirectory = loggingDirectory.resolve(directoryName).resolve(type + "_status");
+        if (Files.isDirectory(statusDirectory)) {
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(statusDirectory, "*_" + type + ".log")) {
+                stream.forEach(files::add);
+            }
+            for (Path file : files) {
+                String source = "file:" + file.getFileName();
+                Section section = previous.get(source);
+                long length = Files.size(file);
+                if (section == null || length < section.scanned) {
+                    section = new Section(source);
+                }
+                if (length > section.scanned) {
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                        section.extend(new MappedReader(channel, section.scanned, length), buffer);
+                    }
+                    section.length = length;
+                    dirty = true;
+                }
+                current.put(source, section);
+            }
+        }
+
+        Map<String, ZipFile> archives = new HashMap<>();
+        try {
+            for (Path archive : listArchives(serviceName)) {
+                long length = Files.size(archive);
+                long lastModified = Files.getLastModifiedTime(archive).toMillis();
+                String prefix = "zip:" + archive.getFileName() + "!";
+                boolean indexed = false;
+                for (Section section : previous.values()) {
+                    if (section.source.startsWith(prefix) && section.length == length && section.lastModified == lastModified) {
+                        current.put(section.source, section);
+                        indexed = true;
+                    }
+                }
+                if (indexed) {
+                    continue;
+                }
+                ZipFile zip = new ZipFile(archive.toFile());
+                archives.put(prefix, zip);
+                // Marks the archive as indexed even when it holds no logs of this type.
+                Section marker = new Section(prefix);
+                marker.length = length;
+                marker.lastModified = lastModified;
+                current.put(prefix, marker);
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (!entry.getName().startsWith(type + "_status/")) {
+                        continue;
+                    }
+                    Section section = new Section(prefix + entry.getName());
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        section.extend(new StreamReader(in), buffer);
+                    }
+                    section.length = length;
+                    section.lastModified = lastModified;
+                    current.put(section.source, section);
+                }
+                dirty = true;
+            }
+            if (dirty || !current.keySet().equals(previous.keySet())) {
+                writeIndex(indexFile, current.values());
+            }
+
+            List<Section> sections = new ArrayList<>();
+            for (Section section : current.values()) {
+                if (section.count > 0 && section.lastKey >= fromKey && section.firstKey <= toKey) {
+                    sections.add(section);
+                }
+            }
+            sections.sort(Comparator.comparingLong(section -> section.firstKey));
+
+            Matcher matcher = new Matcher(fromKey, toKey, status, out);
+            try {
+                querySections(sections, fromKey, statusDirectory, archives, matcher);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+            return matcher.matched;
+        } finally {
+            for (ZipFile zip : archives.values()) {
+                zip.close();
+            }
+        }
+    }
+
+    private void querySections(List<Section> sections, long fromKey, Path statusDirectory, Map<String, ZipFile> archives,
+                               Matcher matcher) throws IOException {
+        for (Section section : sections) {
+            long start = section.startOffset(fromKey);
+            if (section.source.startsWith("file:")) {
+                Path file = statusDirectory.resolve(section.source.substring("file:".length()));
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    scan(new MappedReader(channel, start, section.scanned), start, buffer, matcher);
+                }
+            } else {
+                int separator = section.source.indexOf('!');
+                String prefix = section.source.substring(0, separator + 1);
+                ZipFile zip = archives.get(prefix);
+                if (zip == null) {
+                    zip = new ZipFile(archiveDirectory.resolve(prefix.substring("zip:".length(), separator)).toFile());
+                    archives.put(prefix, zip);
+                }
+                ZipEntry entry = zip.getEntry(section.source.substring(separator + 1));
+                if (entry == null) {
+                    continue;
+                }
+                try (InputStream in = zip.getInputStream(entry)) {
+                    // Inflating is sequential, but skipped bytes are not split into lines.
+                    in.skipNBytes(start);
+                    scan(new StreamReader(in), start, buffer, matcher);
+                }
+            }
+        }
+    }
+
+    private List<Path> listArchives(String serviceName) throws IOException {
+        List<Path> archives = new ArrayList<>();
+        if (!Files.isDirectory(archiveDirectory)) {
+            return archives;
+        }
+        String prefix = serviceName + "_logs_";
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(archiveDirectory)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(prefix) && name.endsWith(".zip")) {
+                    archives.add(file);
+                }
+            }
+        }
+        archives.sort(Comparator.naturalOrder());
+        return archives;
+    }
+
+    /**
+     * Feeds every complete line to the handler until it returns false, and returns the offset just past
+     * the last complete line, which is where a later scan of a growing file resumes.
+     */
+    static long scan(Reader in, long baseOffset, byte[] buf, LineHandler handler) throws IOException {
+        int filled = 0;
+        int scanFrom = 0;
+        long bufOffset = baseOffset;
+        for (;;) {
+            int read = in.read(buf, filled, buf.length - filled);
+            if (read > 0) {
+                filled += read;
+            }
+            int lineStart = 0;
+            for (int i = scanFrom; i < filled; i++) {
+                if (buf[i] != '\n') {
+                    continue;
+                }
+                if (!dispatch(buf, lineStart, i, bufOffset + lineStart, handler)) {
+                    return bufOffset + i + 1;
+                }
+                lineStart = i + 1;
+            }
+            if (read < 0) {
+                // A trailing line without a newline is still being written.
+                return bufOffset + lineStart;
+            }
+            System.arraycopy(buf, lineStart, buf, 0, filled - lineStart);
+            bufOffset += lineStart;
+            filled -= lineStart;
+            scanFrom = filled;
+            if (filled == buf.length) {
+                // Not a status line; drop it, its remainder fails to parse as one.
+                bufOffset += filled;
+                filled = 0;
+                scanFrom = 0;
+            }
+        }
+    }
+
+    private static boolean dispatch(byte[] buf, int start, int end, long offset, LineHandler handler) {
+        if (end > start && buf[end - 1] == '\r') {
+            end--;
+        }
+        // yyyyMMdd_HHmmss - TYPE is UP|DOWN
+        if (end - start < 20 || buf[start + 8] != '_') {
+            return true;
+        }
+        long key = 0;
+        for (int i = 0; i < 15; i++) {
+            if (i == 8) {
+                continue;
+            }
+            int digit = buf[start + i] - '0';
+            if (digit < 0 || digit > 9) {
+                return true;
+            }
+            key = key * 10 + digit;
+        }
+        byte last = buf[end - 1];
+        int status = last == 'P' ? STATUS_UP : last == 'N' ? STATUS_DOWN : STATUS_ANY;
+        if (status == STATUS_ANY) {
+            return true;
+        }
+        return handler.line(buf, start, end, offset, key, status);
+    }
+
+    private Map<String, Section> readIndex(Path indexFile) {
+        Map<String, Section> sections = new HashMap<>();
+        if (!Files.isRegularFile(indexFile)) {
+            return sections;
+        }
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                return sections;
+            }
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[in.getShort() & 0xffff];
+                in.get(name);
+                Section section = new Section(new String(name, StandardCharsets.UTF_8));
+                section.length = in.getLong();
+                section.lastModified = in.getLong();
+                section.scanned = in.getLong();
+                section.firstKey = in.getLong();
+                section.lastKey = in.getLong();
+                section.nextBoundary = in.getLong();
+                int points = in.getInt();
+                section.keys = new long[Math.max(points, 16)];
+                section.offsets = new long[section.keys.length];
+                for (int p = 0; p < points; p++) {
+                    section.keys[p] = in.getLong();
+                    section.offsets[p] = in.getLong();
+                }
+                section.points = points;
+                section.count = in.getLong();
+                sections.put(section.source, section);
+            }
+        } catch (IOException | RuntimeException e) {
+            // A damaged index is rebuilt from the logs.
+            sections.clear();
+        }
+        return sections;
+    }
+
+    private void writeIndex(Path indexFile, Collection<Section> sections) throws IOException {
+        Files.createDirectories(indexDirectory);
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sections.size());
+            for (Section section : sections) {
+                byte[] name = section.source.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(name.length);
+                out.write(name);
+                out.writeLong(section.length);
+                out.writeLong(section.lastModified);
+                out.writeLong(section.scanned);
+                out.writeLong(section.firstKey);
+                out.writeLong(section.lastKey);
+                out.writeLong(section.nextBoundary);
+                out.writeInt(section.points);
+                for (int p = 0; p < section.points; p++) {
+                    out.writeLong(section.keys[p]);
+                    out.writeLong(section.offsets[p]);
+                }
+                out.writeLong(section.count);
+            }
+        }
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    interface LineHandler {
+        boolean line(byte[] buf, int start, int end, long offset, long key, int status);
+    }
+
+    interface Reader {
+        int read(byte[] dst, int off, int len) throws IOException;
+    }
+
+    /**
+     * Index of one log file or archive entry.
+     */
+    private static class Section implements LineHandler {
+        private final String source;
+        private long length;
+        private long lastModified;
+        private long scanned;
+        private long firstKey = Long.MAX_VALUE;
+        private long lastKey = Long.MIN_VALUE;
+        private long nextBoundary;
+        private long[] keys = new long[16];
+        private long[] offsets = new long[16];
+        private int points;
+        private long count;
+
+        Section(String source) {
+            this.source = source;
+        }
+
+        void extend(Reader in, byte[] buf) throws IOException {
+            scanned = scan(in, scanned, buf, this);
+        }
+
+        @Override
+        public boolean line(byte[] buf, int start, int end, long offset, long key, int status) {
+            if (offset >= nextBoundary) {
+                if (points == keys.length) {
+                    keys = Arrays.copyOf(keys, points * 2);
+                    offsets = Arrays.copyOf(offsets, points * 2);
+                }
+                keys[points] = key;
+                offsets[points] = offset;
+                points++;
+                nextBoundary = offset + INDEX_STRIDE;
+            }
+            firstKey = Math.min(firstKey, key);
+            lastKey = Math.max(lastKey, key);
+            count++;
+            return true;
+        }
+
+        /**
+         * Offset of the last indexed line before the key; lines with the same second may start before
+         * an indexed point, so the search is strict.
+         */
+        long startOffset(long fromKey) {
+            int low = 0;
+            int high = points - 1;
+            long offset = 0;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid] < fromKey) {
+                    offset = offsets[mid];
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return offset;
+        }
+    }
+
+    private static class Matcher implements LineHandler {
+        private final long fromKey;
+        private final long toKey;
+        private final int status;
+        private final OutputStream out;
+        private long matched;
+
+        Matcher(long fromKey, long toKey, int status, OutputStream out) {
+            this.fromKey = fromKey;
+            this.toKey = toKey;
+            this.status = status;
+            this.out = out;
+        }
+
+        @Override
+        public boolean line(byte[] buf, int start, int end, long offset, long key, int lineStatus) {
+            if (key > toKey) {
+                return false;
+            }
+            if (key >= fromKey && (status == STATUS_ANY || status == lineStatus)) {
+                try {
+                    out.write(buf, start, end - start);
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                matched++;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Reads a range of a file through memory mappings of at most 256 MiB at a time.
+     */
+    private static class MappedReader implements Reader {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+        private ByteBuffer window;
+
+        MappedReader(FileChannel channel, long position, long end) {
+            this.channel = channel;
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public int read(byte[] dst, int off, int len) throws IOException {
+            if (window == null || !window.hasRemaining()) {
+                if (position >= end) {
+                    return -1;
+                }
+                long size = Math.min(MAP_WINDOW, end - position);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                position += size;
+            }
+            int n = Math.min(len, window.remaining());
+            window.get(dst, off, n);
+            return n;
+        }
+    }
+
+    private static class StreamReader implements Reader {
+        private final InputStream in;
+
+        StreamReader(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read(byte[] dst, int off, int len) throws IOException {
+            int n = in.readNBytes(dst, off, len);
+            return n == 0 && len > 0 ? -1 : n;
+        }
+    }
+}
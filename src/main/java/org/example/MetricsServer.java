@@ -0,0 +1,63 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves {@link MonitorMetrics} at /metrics in the Prometheus text format. Scrapes are handled on the
+ * server's dispatcher thread, which is plenty for a local endpoint polled every few seconds.
+ */
+public class MetricsServer implements Closeable {
+    private final HttpServer server;
+
+    public MetricsServer(InetSocketAddress address, MonitorMetrics metrics) throws IOException {
+        server = HttpServer.create(address, 0);
+        server.createContext("/metrics", exchange -> handle(exchange, metrics));
+        server.start();
+    }
+
+    /**
+     * Starts the endpoint configured by sky.monitor.metrics.host and sky.monitor.metrics.port, or returns
+     * null when the port is 0 or negative.
+     */
+    public static MetricsServer fromSystemProperties(MonitorMetrics metrics) throws IOException {
+        int port = Integer.getInteger("sky.monitor.metrics.port", 9464);
+        if (port <= 0) {
+            return null;
+        }
+        String host = System.getProperty("sky.monitor.metrics.host", "127.0.0.1");
+        return new MetricsServer(new InetSocketAddress(host, port), metrics);
+    }
+
+    private static void handle(HttpExchange exchange, MonitorMetrics metrics) throws IOException {
+        try {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = metrics.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
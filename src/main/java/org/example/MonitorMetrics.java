@@ -0,0 +1,200 @@
+package org.example;
+
+import com.sun.management.OperatingSystemMXBean;
+import com.sun.management.UnixOperatingSystemMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Counters and histograms about the monitor itself. Per-service instruments are created when a service
+ * is scheduled and handed to its probe, so recording a probe never looks anything up. Everything else is
+ * read from the components at scrape time and rendered in the Prometheus text format.
+ */
+public class MonitorMetrics {
+    private final Map<Integer, ServiceMetrics> services = new ConcurrentHashMap<>();
+    private final HostResolver hostResolver;
+    private final ReachabilityCoalescer reachabilityCoalescer;
+    private volatile ProbeEngine probeEngine;
+    private volatile Probes probes;
+    private volatile StatusLogWriter statusLogWriter;
+    private volatile LogArchiver logArchiver;
+    private volatile AlertDispatcher alertDispatcher;
+
+    public MonitorMetrics(HostResolver hostResolver, ReachabilityCoalescer reachabilityCoalescer) {
+        this.hostResolver = hostResolver;
+        this.reachabilityCoalescer = reachabilityCoalescer;
+    }
+
+    public void bind(ProbeEngine probeEngine, Probes probes,
+                     StatusLogWriter statusLogWriter, LogArchiver logArchiver, AlertDispatcher alertDispatcher) {
+        this.probeEngine = probeEngine;
+        this.probes = probes;
+        this.statusLogWriter = statusLogWriter;
+        this.logArchiver = logArchiver;
+        this.alertDispatcher = alertDispatcher;
+    }
+
+    public ServiceMetrics register(int serviceId, String serviceName) {
+        ServiceMetrics metrics = new ServiceMetrics(serviceId, serviceName);
+        services.put(serviceId, metrics);
+        return metrics;
+    }
+
+    public void unregister(int serviceId) {
+        services.remove(serviceId);
+    }
+
+    public void clear() {
+        services.clear();
+        bind(null, null, null, null, null);
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096 + services.size() * 2048);
+
+        out.append("# HELP sky_monitor_probe_duration_seconds Time taken by a probe, reachability check included.\n");
+        out.append("# TYPE sky_monitor_probe_duration_seconds histogram\n");
+        for (ServiceMetrics service : services.values()) {
+            service.duration.writePrometheus(out, "sky_monitor_probe_duration_seconds", service.labels);
+        }
+        writeServiceCounter(out, "sky_monitor_probes_total", "Probes run.", service -> service.probes);
+        writeServiceCounter(out, "sky_monitor_server_down_total", "Probes that found the server unreachable.", service -> service.serverDown);
+        writeServiceCounter(out, "sky_monitor_application_down_total", "Probes that found the application DOWN.", service -> service.applicationDown);
+        writeServiceCounter(out, "sky_monitor_content_mismatch_total", "Responses without the expected text.", service -> service.contentMismatch);
+        out.append("# HELP sky_monitor_last_probe_timestamp_seconds When the service was last probed.\n");
+        out.append("# TYPE sky_monitor_last_probe_timestamp_seconds gauge\n");
+        for (ServiceMetrics service : services.values()) {
+            out.append("sky_monitor_last_probe_timestamp_seconds{").append(service.labels).append("} ")
+                    .append(service.lastProbeMillis / 1000.0).append('\n');
+        }
+
+        ProbeEngine engine = probeEngine;
+        if (engine != null) {
+            out.append("# HELP sky_monitor_schedule_lag_seconds How late probes start compared to when they were due.\n");
+            out.append("# TYPE sky_monitor_schedule_lag_seconds histogram\n");
+            engine.getScheduleLag().writePrometheus(out, "sky_monitor_schedule_lag_seconds", "");
+            writeGauge(out, "sky_monitor_active_probes", "Probes currently running.", engine.getActiveProbes());
+            writeGauge(out, "sky_monitor_queued_probes", "Probes waiting for a concurrency permit.", engine.getQueuedProbes());
+        }
+        writeCounter(out, "sky_monitor_dns_lookups_total", "Host name lookups sent to the system resolver.", hostResolver.getLookups());
+        writeCounter(out, "sky_monitor_dns_cache_hits_total", "Host name lookups answered from the cache.", hostResolver.getHits());
+        writeCounter(out, "sky_monitor_reachability_checks_total", "TCP reachability checks performed.", reachabilityCoalescer.getPerformed());
+        writeCounter(out, "sky_monitor_reachability_coalesced_total", "Reachability checks answered by a shared check.", reachabilityCoalescer.getCoalesced());
+        Probes boundProbes = probes;
+        if (boundProbes != null) {
+            ProbeEventLoop eventLoop = boundProbes.getContext().getEventLoop();
+            writeGauge(out, "sky_monitor_probe_connections_open", "Probe connections open on the event loop.", eventLoop.getOpenConnections());
+            writeGauge(out, "sky_monitor_probe_connections_waiting", "Probe connections waiting for a free connection slot.", eventLoop.getWaitingConnections());
+            ReachabilityScanner scanner = boundProbes.getContext().getReachabilityScanner();
+            if (scanner != null) {
+                writeGauge(out, "sky_monitor_reachability_in_flight", "TCP reachability checks in flight.", scanner.getInFlight());
+            }
+        }
+        StatusLogWriter writer = statusLogWriter;
+        if (writer != null) {
+            out.append("# HELP sky_monitor_log_batch_write_seconds Time taken to write one batch of status log entries.\n");
+            out.append("# TYPE sky_monitor_log_batch_write_seconds histogram\n");
+            writer.getBatchWriteLatency().writePrometheus(out, "sky_monitor_log_batch_write_seconds", "");
+            writeCounter(out, "sky_monitor_log_entries_written_total", "Status log entries written.", writer.getEntriesWritten());
+            writeGauge(out, "sky_monitor_log_queue_depth", "Status log entries waiting to be written.", writer.getQueueDepth());
+            writeCounter(out, "sky_monitor_log_rotation_checkpoint_failures_total", "Log rotations that could not be written to the checkpoint.", writer.getRotationCheckpointFailures());
+        }
+        LogArchiver archiver = logArchiver;
+        if (archiver != null) {
+            out.append("# HELP sky_monitor_archive_duration_seconds Time taken by one archive run of a service.\n");
+            out.append("# TYPE sky_monitor_archive_duration_seconds histogram\n");
+            archiver.getArchiveDuration().writePrometheus(out, "sky_monitor_archive_duration_seconds", "");
+            writeCounter(out, "sky_monitor_archived_files_total", "Log files moved into archives.", archiver.getFilesArchived());
+            writeCounter(out, "sky_monitor_archive_failures_total", "Archive runs that failed.", archiver.getFailures());
+            writeGauge(out, "sky_monitor_archive_queue_depth", "Archive runs waiting for a thread.", archiver.getQueueDepth());
+        }
+        AlertDispatcher dispatcher = alertDispatcher;
+        if (dispatcher != null) {
+            writeCounter(out, "sky_monitor_alerts_delivered_total", "State-change events delivered to a sink.", dispatcher.getDelivered());
+            writeCounter(out, "sky_monitor_alerts_dropped_total", "State-change events dropped because the queue was full.", dispatcher.getDropped());
+            writeCounter(out, "sky_monitor_alert_failures_total", "Batches a sink failed to deliver.", dispatcher.getFailures());
+            writeGauge(out, "sky_monitor_alert_queue_depth", "State-change events waiting to be delivered.", dispatcher.getQueueDepth());
+        }
+        writeProcessMetrics(out);
+        return out.toString();
+    }
+
+    /**
+     * The standard process and JVM gauges, so that capacity can be judged from the same scrape.
+     */
+    private static void writeProcessMetrics(StringBuilder out) {
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof OperatingSystemMXBean) {
+            out.append("# HELP process_cpu_seconds_total CPU time used by the process.\n");
+            out.append("# TYPE process_cpu_seconds_total counter\n");
+            out.append("process_cpu_seconds_total ").append(((OperatingSystemMXBean) os).getProcessCpuTime() / 1e9).append('\n');
+        }
+        if (os instanceof UnixOperatingSystemMXBean) {
+            UnixOperatingSystemMXBean unix = (UnixOperatingSystemMXBean) os;
+            writeGauge(out, "process_open_fds", "Open file descriptors.", unix.getOpenFileDescriptorCount());
+            writeGauge(out, "process_max_fds", "Limit on open file descriptors.", unix.getMaxFileDescriptorCount());
+        }
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        writeGauge(out, "jvm_memory_heap_used_bytes", "Heap in use.", heap.getUsed());
+        writeGauge(out, "jvm_memory_heap_committed_bytes", "Heap reserved from the operating system.", heap.getCommitted());
+        writeGauge(out, "jvm_threads_live", "Live platform threads.", ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+
+    private void writeServiceCounter(StringBuilder out, String name, String help, Function<ServiceMetrics, LongAdder> counter) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        for (ServiceMetrics service : services.values()) {
+            out.append(name).append('{').append(service.labels).append("} ").append(counter.apply(service).sum()).append('\n');
+        }
+    }
+
+    private static void writeGauge(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void writeCounter(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String escapeLabel(String value) {
+        return value == null ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    public static class ServiceMetrics {
+        private final String labels;
+        private final LatencyHistogram duration = new LatencyHistogram();
+        private final LongAdder probes = new LongAdder();
+        private final LongAdder serverDown = new LongAdder();
+        private final LongAdder applicationDown = new LongAdder();
+        private final LongAdder contentMismatch = new LongAdder();
+        private volatile long lastProbeMillis;
+
+        ServiceMetrics(int serviceId, String serviceName) {
+            this.labels = "service_id=\"" + serviceId + "\",service=\"" + escapeLabel(serviceName) + "\"";
+        }
+
+        public void record(long durationNanos, ProbeResult result) {
+            duration.recordNanos(durationNanos);
+            probes.increment();
+            if (!result.isServerUp()) {
+                serverDown.increment();
+            }
+            if (!result.isApplicationUp()) {
+                applicationDown.increment();
+            }
+            if (!result.isContentMatched()) {
+                contentMismatch.increment();
+            }
+            lastProbeMillis = result.getTimestamp();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.example;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One way of checking a service, selected by its probeType. A probe starts its work and returns at once;
+ * the future completes with the result, on whatever thread finished the work, and should not complete
+ * exceptionally for an unreachable or failing service. The built-in types are listed in {@link Probes}.
+ */
+public interface Probe {
+
+    /**
+     * @param matcher the service's compiled expected text, or null when it has none
+     */
+    CompletableFuture<ProbeResult> probe(ServiceMonitorApplication.Service service, BodyMatcher matcher);
+
+    default void close() {
+    }
+
+    /**
+     * Adds a probe type. Providers are found with {@link java.util.ServiceLoader}, so a plugin jar lists its
+     * implementation in META-INF/services/org.example.Probe$Provider.
+     */
+    interface Provider {
+        /**
+         * The probeType value that selects this probe; it is compared ignoring case.
+         */
+        String type();
+
+        Probe create(ProbeContext context);
+    }
+}
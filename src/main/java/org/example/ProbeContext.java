@@ -0,0 +1,174 @@
+package org.example;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the probes share: the event loop their connections run on, the host name cache, the coalesced
+ * reachability check, one SSLContext so that new connections can resume earlier TLS sessions, a second
+ * one for certificate checks that never resumes, and the limits read from the system properties. Probe
+ * plugins receive the same context.
+ */
+public class ProbeContext {
+    public static final long DEFAULT_TIMEOUT_MILLIS = 15000;
+    public static final long DEFAULT_MAX_BODY_BYTES = 256 * 1024;
+    private static final int BLOCKING_CONNECT_TIMEOUT_MS = 2000;
+
+    private final ProbeEventLoop eventLoop;
+    private final HostResolver hostResolver;
+    private final ReachabilityCoalescer reachabilityCoalescer;
+    private final ReachabilityScanner reachabilityScanner;
+    private final SSLContext sslContext;
+    private final SSLContext certificateSslContext = createCertificateSslContext();
+    private final long timeoutMillis;
+    private final long maxBodyBytes;
+
+    /**
+     * @param reachabilityScanner runs reachability checks on the event loop, or null to connect with a
+     *                            blocking socket on the calling thread
+     */
+    public ProbeContext(ProbeEventLoop eventLoop, HostResolver hostResolver, ReachabilityCoalescer reachabilityCoalescer,
+                        ReachabilityScanner reachabilityScanner, SSLContext sslContext, long timeoutMillis, long maxBodyBytes) {
+        this.eventLoop = eventLoop;
+        this.hostResolver = hostResolver;
+        this.reachabilityCoalescer = reachabilityCoalescer;
+        this.reachabilityScanner = reachabilityScanner;
+        this.sslContext = sslContext;
+        this.timeoutMillis = timeoutMillis;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    public static ProbeContext fromSystemProperties(HostResolver hostResolver, ReachabilityCoalescer reachabilityCoalescer)
+            throws IOException {
+        ProbeEventLoop eventLoop = ProbeEventLoop.fromSystemProperties();
+        ReachabilityScanner scanner = "nio".equalsIgnoreCase(System.getProperty("sky.monitor.reachability", "nio"))
+                ? new ReachabilityScanner(eventLoop) : null;
+        return new ProbeContext(eventLoop, hostResolver, reachabilityCoalescer, scanner, createTrustAllSslContext(),
+                Long.getLong("sky.monitor.probe.timeoutMillis", DEFAULT_TIMEOUT_MILLIS),
+                Long.getLong("sky.monitor.http.maxBodyBytes", DEFAULT_MAX_BODY_BYTES));
+    }
+
+    /**
+     * A client context that accepts any certificate: the probes check availability, not trust.
+     */
+    public static SSLContext createTrustAllSslContext() {
+        SSLContext sslContext = trustAll();
+        sslContext.getClientSessionContext().setSessionTimeout((int) TimeUnit.HOURS.toSeconds(24));
+        return sslContext;
+    }
+
+    /**
+     * A trust-all client context for certificate checks. A resumed session reports the certificates of the
+     * handshake it was created by, so sessions expire after a second and {@link TlsCertificateProbe}
+     * invalidates each one after reading it: every check sees what the server presents now.
+     */
+    static SSLContext createCertificateSslContext() {
+        SSLContext sslContext = trustAll();
+        sslContext.getClientSessionContext().setSessionCacheSize(1);
+        sslContext.getClientSessionContext().setSessionTimeout(1);
+        return sslContext;
+    }
+
+    private static SSLContext trustAll() {
+        try {
+            TrustManager[] trustAllCerts = new TrustManager[]{
+                    new X509TrustManager() {
+                        public X509Certificate[] getAcceptedIssuers() {
+                            return new X509Certificate[0];
+                        }
+                        public void checkClientTrusted(X509Certificate[] certs, String authType) {
+                        }
+                        public void checkServerTrusted(X509Certificate[] certs, String authType) {
+                        }
+                    }
+            };
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, trustAllCerts, new SecureRandom());
+            return sslContext;
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to initialise the probe SSLContext", e);
+        }
+    }
+
+    /**
+     * Resolves the host through the cache. This may block on a cache miss, so call it before handing work
+     * to the event loop, never on it.
+     */
+    public InetSocketAddress resolve(String host, int port) throws UnknownHostException {
+        return new InetSocketAddress(hostResolver.resolve(host), port);
+    }
+
+    /**
+     * Whether the server accepts TCP connections. Probes of the same host:port share one check.
+     */
+    public CompletableFuture<Boolean> checkServer(InetSocketAddress address) {
+        return reachabilityCoalescer.checkAsync(address.getHostString(), address.getPort(), () -> connect(address));
+    }
+
+    /**
+     * Resolves the host and checks it; a host that does not resolve is unreachable.
+     */
+    public CompletableFuture<Boolean> checkServer(String host, int port) {
+        try {
+            return checkServer(resolve(host, port));
+        } catch (UnknownHostException e) {
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    private CompletableFuture<Boolean> connect(InetSocketAddress address) {
+        ReachabilityScanner scanner = reachabilityScanner;
+        if (scanner != null) {
+            return scanner.check(address).handle((nanos, error) -> error == null);
+        }
+        try (Socket socket = new Socket()) {
+            socket.connect(address, BLOCKING_CONNECT_TIMEOUT_MS);
+            return CompletableFuture.completedFuture(true);
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    public ProbeEventLoop getEventLoop() {
+        return eventLoop;
+    }
+
+    public ReachabilityScanner getReachabilityScanner() {
+        return reachabilityScanner;
+    }
+
+    public SSLContext getSslContext() {
+        return sslContext;
+    }
+
+    /**
+     * The context for certificate checks, which does a full handshake every time.
+     */
+    public SSLContext getCertificateSslContext() {
+        return certificateSslContext;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * How much of a response is searched for the expected text before the service counts as DOWN.
+     */
+    public long getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    public void close() {
+        eventLoop.close();
+    }
+}
@@ -0,0 +1,224 @@
+package org.example;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+public class ProbeEngine {
+    public static final int DEFAULT_MAX_CONCURRENT_PROBES = 1000;
+    public static final int DEFAULT_SCHEDULER_THREADS = 2;
+
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService probeExecutor;
+    private final Semaphore probePermits;
+    private final int maxConcurrentProbes;
+    private final LatencyHistogram scheduleLag = new LatencyHistogram();
+
+    public ProbeEngine(int schedulerThreads, int maxConcurrentProbes) {
+        this.scheduler = Executors.newScheduledThreadPool(schedulerThreads);
+        this.probeExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("probe-", 0).factory());
+        this.probePermits = new Semaphore(maxConcurrentProbes);
+        this.maxConcurrentProbes = maxConcurrentProbes;
+    }
+
+    public static ProbeEngine fromSystemProperties() {
+        int schedulerThreads = Integer.getInteger("sky.monitor.schedulerThreads", DEFAULT_SCHEDULER_THREADS);
+        int maxConcurrentProbes = Integer.getInteger("sky.monitor.maxConcurrentProbes", DEFAULT_MAX_CONCURRENT_PROBES);
+        return new ProbeEngine(schedulerThreads, maxConcurrentProbes);
+    }
+
+    /**
+     * Runs the probe every period. The probe starts its work and returns a stage; the probe counts as running,
+     * and holds its permit, until that stage completes.
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Supplier<? extends CompletionStage<?>> probe, long initialDelay, long period, TimeUnit unit) {
+        AtomicBoolean inFlight = new AtomicBoolean(false);
+        return scheduler.scheduleAtFixedRate(() -> {
+            long tickNanos = System.nanoTime();
+            // A probe that is still running (slow host) swallows the tick instead of piling up behind itself.
+            if (!inFlight.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                probeExecutor.execute(() -> runProbe(probe, inFlight, tickNanos));
+            } catch (RejectedExecutionException e) {
+                inFlight.set(false);
+            }
+        }, initialDelay, period, unit);
+    }
+
+    public ProbeTask scheduleAdaptive(long intervalMillis, long initialDelayMillis, AdaptiveSchedule schedule,
+                                      Supplier<? extends CompletionStage<ProbeResult>> probe) {
+        ProbeTask task = new ProbeTask(intervalMillis, schedule, probe);
+        task.scheduleAt(System.currentTimeMillis() + initialDelayMillis);
+        return task;
+    }
+
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long initialDelay, long delay, TimeUnit unit) {
+        return scheduler.scheduleWithFixedDelay(() -> probeExecutor.execute(task), initialDelay, delay, unit);
+    }
+
+    /**
+     * Runs a one-off probe under the same concurrency cap as the scheduled ones.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<? extends CompletionStage<T>> probe) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            probeExecutor.execute(() -> {
+                try {
+                    probePermits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    result.completeExceptionally(new CancellationException("interrupted while waiting for a probe permit"));
+                    return;
+                }
+                start(probe).whenComplete((value, error) -> {
+                    probePermits.release();
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Runs a short task, such as handing a finished probe's result to the sinks, on a probe thread rather than
+     * on the event loop that completed it.
+     */
+    public void execute(Runnable task) {
+        probeExecutor.execute(task);
+    }
+
+    private static <T> CompletionStage<? extends T> start(Supplier<? extends CompletionStage<? extends T>> probe) {
+        try {
+            return probe.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void runProbe(Supplier<? extends CompletionStage<?>> probe, AtomicBoolean inFlight, long tickNanos) {
+        try {
+            probePermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            inFlight.set(false);
+            return;
+        }
+        scheduleLag.recordNanos(System.nanoTime() - tickNanos);
+        start(probe).whenComplete((value, error) -> {
+            probePermits.release();
+            inFlight.set(false);
+            report(error);
+        });
+    }
+
+    private void report(Throwable error) {
+        // Probes still completing while the engine shuts down fail with a rejected hand-off; that is expected.
+        if (error != null && !isShutdown()) {
+            error.printStackTrace();
+        }
+    }
+
+    public class ProbeTask {
+        private final long intervalMillis;
+        private final AdaptiveSchedule schedule;
+        private final Supplier<? extends CompletionStage<ProbeResult>> probe;
+        private final AdaptiveSchedule.State state = new AdaptiveSchedule.State();
+        private volatile ScheduledFuture<?> next;
+        private volatile boolean cancelled;
+        private volatile long dueAtMillis;
+
+        ProbeTask(long intervalMillis, AdaptiveSchedule schedule, Supplier<? extends CompletionStage<ProbeResult>> probe) {
+            this.intervalMillis = intervalMillis;
+            this.schedule = schedule;
+            this.probe = probe;
+        }
+
+        private void scheduleAt(long dueAtMillis) {
+            if (cancelled) {
+                return;
+            }
+            this.dueAtMillis = dueAtMillis;
+            try {
+                next = scheduler.schedule(this::fire, Math.max(0, dueAtMillis - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                cancelled = true;
+            }
+        }
+
+        private void fire() {
+            try {
+                probeExecutor.execute(this::run);
+            } catch (RejectedExecutionException e) {
+                cancelled = true;
+            }
+        }
+
+        private void run() {
+            // The next probe is planned from when this one was due, so probe duration does not stretch the interval.
+            long firedAt = dueAtMillis;
+            try {
+                probePermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            scheduleLag.recordMillis(System.currentTimeMillis() - firedAt);
+            start(probe).whenComplete((result, error) -> {
+                probePermits.release();
+                report(error);
+                boolean up = result != null && result.isApplicationUp();
+                long nextDue = firedAt + schedule.nextDelayMillis(intervalMillis, state, up);
+                scheduleAt(Math.max(nextDue, System.currentTimeMillis()));
+            });
+        }
+
+        public void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> scheduled = next;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+    }
+
+    public int getActiveProbes() {
+        return maxConcurrentProbes - probePermits.availablePermits();
+    }
+
+    public int getQueuedProbes() {
+        return probePermits.getQueueLength();
+    }
+
+    /**
+     * How late probes start compared to when they were due, including time spent waiting for a permit.
+     */
+    public LatencyHistogram getScheduleLag() {
+        return scheduleLag;
+    }
+
+    public int getMaxConcurrentProbes() {
+        return maxConcurrentProbes;
+    }
+
+    public boolean isShutdown() {
+        return scheduler.isShutdown();
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+        probeExecutor.shutdown();
+    }
+
+    public void shutdownNow() {
+        scheduler.shutdownNow();
+        probeExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,348 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One selector thread that runs the network I/O of all built-in probes. Every connection is a
+ * {@link Handler}, a small state machine that is called back on this thread when its channel is ready or
+ * its deadline passes, so the number of probes in flight costs sockets and buffers rather than threads.
+ * Handlers must never block; everything they share is confined to the loop thread.
+ */
+public class ProbeEventLoop implements Closeable {
+    public static final int DEFAULT_MAX_CONNECTIONS = 16384;
+
+    private final int maxConnections;
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final ArrayDeque<Handler> waiting = new ArrayDeque<>();
+    private final PriorityQueue<Timer> timers = new PriorityQueue<>((a, b) -> Long.compare(a.at - b.at, 0));
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile boolean terminated;
+    private volatile int openConnections;
+
+    public ProbeEventLoop(int maxConnections) throws IOException {
+        this.maxConnections = maxConnections;
+        this.selector = Selector.open();
+        this.thread = new Thread(this::runLoop, "probe-event-loop");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public static ProbeEventLoop fromSystemProperties() throws IOException {
+        return new ProbeEventLoop(Integer.getInteger("sky.monitor.probe.maxConnections", DEFAULT_MAX_CONNECTIONS));
+    }
+
+    /**
+     * Runs the task on the loop thread. Once the loop is closed, tasks run on the calling thread instead,
+     * so that whatever they were about to start fails instead of waiting forever.
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        if (terminated) {
+            runTasks();
+        } else if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Starts the handler on the loop thread as soon as fewer than the maximum number of connections are
+     * open; until then it waits in line.
+     */
+    public void open(Handler handler) {
+        execute(() -> admit(handler));
+    }
+
+    public boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    private void admit(Handler handler) {
+        handler.loop = this;
+        if (!running) {
+            handler.failed(new IOException("Probe event loop is closed"));
+        } else if (openConnections >= maxConnections) {
+            waiting.addLast(handler);
+        } else {
+            start(handler);
+        }
+    }
+
+    private void start(Handler handler) {
+        openConnections++;
+        handler.open = true;
+        try {
+            handler.start();
+        } catch (IOException | RuntimeException e) {
+            handler.fail(e);
+        }
+    }
+
+    private void runLoop() {
+        while (running) {
+            try {
+                runTasks();
+                long waitMillis = 0;
+                Timer next = nextTimer();
+                if (next != null) {
+                    waitMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(next.at - System.nanoTime()) + 1);
+                }
+                wakeupPending.set(false);
+                if (tasks.isEmpty()) {
+                    selector.select(waitMillis);
+                } else {
+                    selector.selectNow();
+                }
+                processSelectedKeys();
+                fireTimers();
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        shutdown();
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            Handler handler = (Handler) key.attachment();
+            try {
+                if (key.isValid() && key.isConnectable()) {
+                    handler.connectable();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    handler.readable();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    handler.writable();
+                }
+            } catch (IOException | RuntimeException e) {
+                handler.fail(e);
+            }
+        }
+    }
+
+    private Timer nextTimer() {
+        Timer timer;
+        while ((timer = timers.peek()) != null && timer.cancelled) {
+            timers.poll();
+        }
+        return timer;
+    }
+
+    private void fireTimers() {
+        long now = System.nanoTime();
+        Timer timer;
+        while ((timer = nextTimer()) != null && timer.at - now <= 0) {
+            timers.poll();
+            timer.handler.timer = null;
+            try {
+                timer.handler.timedOut();
+            } catch (RuntimeException e) {
+                timer.handler.fail(e);
+            }
+        }
+    }
+
+    private void released() {
+        openConnections--;
+        Handler next;
+        while (running && openConnections < maxConnections && (next = waiting.pollFirst()) != null) {
+            start(next);
+        }
+    }
+
+    private void shutdown() {
+        IOException cause = new IOException("Probe event loop is closed");
+        List<Handler> registered = new ArrayList<>();
+        for (SelectionKey key : selector.keys()) {
+            registered.add((Handler) key.attachment());
+        }
+        for (Handler handler : registered) {
+            handler.fail(cause);
+        }
+        Handler handler;
+        while ((handler = waiting.pollFirst()) != null) {
+            handler.failed(cause);
+        }
+        timers.clear();
+        terminated = true;
+        runTasks();
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // nothing left to release
+        }
+    }
+
+    public int getOpenConnections() {
+        return openConnections;
+    }
+
+    public int getWaitingConnections() {
+        return waiting.size();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        if (!inLoop()) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * One connection of a probe. The loop calls {@link #start} once a connection slot is free, then the
+     * readiness callbacks for the interest set the handler asked for. An exception thrown from any callback
+     * closes the channel and is passed to {@link #failed}, which is called at most once.
+     */
+    public abstract static class Handler {
+        private ProbeEventLoop loop;
+        private SelectableChannel channel;
+        private SelectionKey key;
+        private Timer timer;
+        private boolean open;
+        private boolean closed;
+
+        /**
+         * Opens the channel and registers it. Runs on the loop thread.
+         */
+        protected abstract void start() throws IOException;
+
+        protected void connectable() throws IOException {
+        }
+
+        protected void readable() throws IOException {
+        }
+
+        protected void writable() throws IOException {
+        }
+
+        /**
+         * The deadline set with {@link #deadline} has passed. Fails the handler unless overridden.
+         */
+        protected void timedOut() {
+            fail(new SocketTimeoutException("probe timed out"));
+        }
+
+        /**
+         * The handler could not finish: its channel failed, it timed out or the loop is closing. The channel
+         * is already closed.
+         */
+        protected abstract void failed(Exception cause);
+
+        protected final ProbeEventLoop loop() {
+            return loop;
+        }
+
+        protected final void register(SelectableChannel channel, int ops) throws IOException {
+            this.channel = channel;
+            channel.configureBlocking(false);
+            key = channel.register(loop.selector, ops, this);
+        }
+
+        protected final void interestOps(int ops) {
+            if (key != null && key.isValid()) {
+                key.interestOps(ops);
+            }
+        }
+
+        /**
+         * Replaces the current deadline.
+         */
+        protected final void deadline(long delay, TimeUnit unit) {
+            cancelDeadline();
+            timer = new Timer(this, System.nanoTime() + unit.toNanos(delay));
+            loop.timers.add(timer);
+        }
+
+        protected final void cancelDeadline() {
+            if (timer != null) {
+                timer.cancelled = true;
+                timer = null;
+            }
+        }
+
+        protected final boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Closes the channel and frees the connection slot. Safe to call more than once.
+         */
+        protected final void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            cancelDeadline();
+            if (key != null) {
+                key.cancel();
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // already gone
+                }
+            }
+            if (open) {
+                open = false;
+                loop.released();
+            }
+        }
+
+        protected final void fail(Exception cause) {
+            if (closed) {
+                return;
+            }
+            close();
+            failed(cause);
+        }
+    }
+
+    private static final class Timer {
+        private final Handler handler;
+        private final long at;
+        private boolean cancelled;
+
+        Timer(Handler handler, long at) {
+            this.handler = handler;
+            this.at = at;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.example;
+
+public class ProbeResult {
+    public static final int NO_HTTP_STATUS = -1;
+
+    private final int serviceId;
+    private final long timestamp;
+    private final boolean serverUp;
+    private final boolean applicationUp;
+    private final int httpStatus;
+    private final ProbeTimings timings;
+    private final boolean contentMatched;
+
+    public ProbeResult(int serviceId, long timestamp, boolean serverUp, int httpStatus, ProbeTimings timings) {
+        this(serviceId, timestamp, serverUp, httpStatus, timings, true);
+    }
+
+    public ProbeResult(int serviceId, long timestamp, boolean serverUp, int httpStatus, ProbeTimings timings,
+                       boolean contentMatched) {
+        this(serviceId, timestamp, serverUp, httpStatus >= 200 && httpStatus < 300 && contentMatched, httpStatus, timings,
+                contentMatched);
+    }
+
+    /**
+     * For probes that decide themselves whether the application is UP, such as those without an HTTP
+     * status. The application is never UP while the server is down.
+     */
+    public ProbeResult(int serviceId, long timestamp, boolean serverUp, boolean applicationUp, int httpStatus,
+                       ProbeTimings timings, boolean contentMatched) {
+        this.serviceId = serviceId;
+        this.timestamp = timestamp;
+        this.serverUp = serverUp;
+        this.applicationUp = serverUp && applicationUp;
+        this.httpStatus = httpStatus;
+        this.timings = timings;
+        this.contentMatched = contentMatched;
+    }
+
+    public int getServiceId() {
+        return serviceId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public boolean isServerUp() {
+        return serverUp;
+    }
+
+    public boolean isApplicationUp() {
+        return applicationUp;
+    }
+
+    /**
+     * False when the response came back but did not contain the service's expected text.
+     */
+    public boolean isContentMatched() {
+        return contentMatched;
+    }
+
+    public int getHttpStatus() {
+        return httpStatus;
+    }
+
+    public ProbeTimings getTimings() {
+        return timings;
+    }
+}
@@ -0,0 +1,5 @@
+package org.example;
+
+public interface ProbeResultSink {
+    void accept(ServiceMonitorApplication.Service service, ProbeResult result);
+}
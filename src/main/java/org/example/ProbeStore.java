@@ -0,0 +1,392 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Append-only store of probe results in fixed-width records. Records go into memory-mapped segment files
+ * and every block of records gets an index entry with its time range and the positions of its records
+ * sorted by service id, so a range query only reads the records of its own service, and only in the
+ * blocks whose time range overlaps the query.
+ */
+public class ProbeStore implements ProbeResultSink, Closeable {
+    public static final int STATUS_SERVER_UP = 1;
+    public static final int STATUS_APPLICATION_UP = 2;
+
+    static final int RECORD_SIZE = 24;
+    static final int HEADER_SIZE = 64;
+    static final int BLOCK_RECORDS = 4096;
+    // Time range of the block, then the position of each of its records within the block, by service id.
+    static final int INDEX_ENTRY_SIZE = 16 + BLOCK_RECORDS * Short.BYTES;
+    private static final int MAGIC = 0x534B5953;
+    private static final int INDEX_MAGIC = 0x534B5949;
+    private static final int VERSION = 1;
+    private static final int INDEX_VERSION = 2;
+    private static final int COUNT_OFFSET = 16;
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private final Path directory;
+    private final int segmentCapacity;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private Segment active;
+
+    public ProbeStore(Path directory, int segmentCapacity) throws IOException {
+        this.directory = directory;
+        this.segmentCapacity = segmentCapacity;
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> list = Files.list(directory)) {
+            list.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                    && file.getFileName().toString().endsWith(".dat")).sorted().forEach(files::add);
+        }
+        for (Path file : files) {
+            segments.add(Segment.open(file));
+        }
+        if (!segments.isEmpty()) {
+            active = segments.get(segments.size() - 1);
+        }
+    }
+
+    public static ProbeStore fromSystemProperties() throws IOException {
+        Path directory = Paths.get(System.getProperty("sky.monitor.store.dir", "store"));
+        int segmentCapacity = Integer.getInteger("sky.monitor.store.segmentRecords", 1 << 20);
+        return new ProbeStore(directory, segmentCapacity);
+    }
+
+    @Override
+    public void accept(ServiceMonitorApplication.Service service, ProbeResult result) {
+        int statusBits = (result.isServerUp() ? STATUS_SERVER_UP : 0) | (result.isApplicationUp() ? STATUS_APPLICATION_UP : 0);
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(result.getTimings().getTotalNanos());
+        try {
+            append(result.getServiceId(), result.getTimestamp(), statusBits, result.getHttpStatus(), (int) Math.min(Integer.MAX_VALUE, latencyMicros));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public synchronized void append(int serviceId, long epochMillis, int statusBits, int httpCode, int latencyMicros) throws IOException {
+        if (active == null || active.isFull()) {
+            // Zero-padded so that segment files sort by their first timestamp.
+            long segmentId = epochMillis;
+            Path file = directory.resolve(String.format("%s%019d.dat", SEGMENT_PREFIX, segmentId));
+            while (Files.exists(file)) {
+                segmentId++;
+                file = directory.resolve(String.format("%s%019d.dat", SEGMENT_PREFIX, segmentId));
+            }
+            active = Segment.create(file, segmentCapacity);
+            segments.add(active);
+        }
+        active.append(serviceId, epochMillis, statusBits, httpCode, latencyMicros);
+    }
+
+    public long query(int serviceId, long fromMillis, long toMillis, RecordVisitor visitor) {
+        long matched = 0;
+        for (Segment segment : segments) {
+            matched += segment.query(serviceId, fromMillis, toMillis, visitor);
+        }
+        return matched;
+    }
+
+    /**
+     * Visits up to maxRecords records in append order, starting at the given position, and returns the
+     * position after the last one visited. Records that are still being appended are left for later.
+     */
+    public Position scan(Position from, int maxRecords, RecordVisitor visitor) {
+        long segmentId = from.getSegment();
+        int record = from.getRecord();
+        int remaining = maxRecords;
+        for (Segment segment : segments) {
+            if (segment.id < from.getSegment()) {
+                continue;
+            }
+            int start = segment.id == from.getSegment() ? from.getRecord() : 0;
+            int end = Math.max(start, Math.min(segment.count, start + remaining));
+            segment.visit(start, end, visitor);
+            remaining -= end - start;
+            segmentId = segment.id;
+            record = end;
+            if (remaining == 0) {
+                break;
+            }
+        }
+        return new Position(segmentId, record);
+    }
+
+    public void force() {
+        for (Segment segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        segments.clear();
+        active = null;
+    }
+
+    public interface RecordVisitor {
+        void visit(int serviceId, long epochMillis, int statusBits, int httpCode, int latencyMicros);
+    }
+
+    /**
+     * A place in the store: the segment, named by the millis in its file name, and a record within it.
+     */
+    public static final class Position {
+        public static final Position START = new Position(Long.MIN_VALUE, 0);
+
+        private final long segment;
+        private final int record;
+
+        public Position(long segment, int record) {
+            this.segment = segment;
+            this.record = record;
+        }
+
+        public long getSegment() {
+            return segment;
+        }
+
+        public int getRecord() {
+            return record;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Position)) {
+                return false;
+            }
+            Position other = (Position) o;
+            return segment == other.segment && record == other.record;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(segment) * 31 + record;
+        }
+    }
+
+    private static class Segment {
+        private final long id;
+        private final Path indexFile;
+        private final FileChannel channel;
+        private final MappedByteBuffer records;
+        private final int capacity;
+        // Time range of every indexed block; the record positions stay in the mapped index file.
+        private final List<long[]> blocks = new CopyOnWriteArrayList<>();
+        private volatile int count;
+        private FileChannel indexChannel;
+        private MappedByteBuffer index;
+
+        private Segment(Path file, FileChannel channel, int capacity) throws IOException {
+            String name = file.getFileName().toString();
+            this.id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - ".dat".length()));
+            this.indexFile = Paths.get(file.toString().replace(".dat", ".idx"));
+            this.channel = channel;
+            this.capacity = capacity;
+            this.records = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+            this.records.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        static Segment create(Path file, int capacity) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment segment = new Segment(file, channel, capacity);
+            segment.records.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, RECORD_SIZE).putInt(12, capacity).putLong(COUNT_OFFSET, 0);
+            Files.deleteIfExists(segment.indexFile);
+            segment.mapIndex();
+            return segment;
+        }
+
+        static Segment open(Path file) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(8) != RECORD_SIZE) {
+                channel.close();
+                throw new IOException("Not a probe store segment: " + file);
+            }
+            Segment segment = new Segment(file, channel, header.getInt(12));
+            segment.count = (int) Math.min(segment.capacity, segment.records.getLong(COUNT_OFFSET));
+            segment.loadIndex();
+            return segment;
+        }
+
+        /**
+         * Maps the index file at the size it has once the segment is full. An index without a matching
+         * header, such as one written before the record positions were indexed, starts over empty.
+         */
+        private void mapIndex() throws IOException {
+            indexChannel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) (capacity / BLOCK_RECORDS) * INDEX_ENTRY_SIZE);
+            index.order(ByteOrder.LITTLE_ENDIAN);
+            if (index.getInt(0) != INDEX_MAGIC || index.getInt(4) != INDEX_VERSION || index.getInt(8) != BLOCK_RECORDS) {
+                index.putInt(0, INDEX_MAGIC).putInt(4, INDEX_VERSION).putInt(8, BLOCK_RECORDS).putLong(COUNT_OFFSET, 0);
+            }
+        }
+
+        private void loadIndex() throws IOException {
+            mapIndex();
+            int completeBlocks = count / BLOCK_RECORDS;
+            int indexed = (int) Math.min(completeBlocks, index.getLong(COUNT_OFFSET));
+            for (int block = 0; block < indexed; block++) {
+                int offset = HEADER_SIZE + block * INDEX_ENTRY_SIZE;
+                blocks.add(new long[]{index.getLong(offset), index.getLong(offset + 8)});
+            }
+            // Blocks whose index entry was lost in a crash are rebuilt from the records themselves.
+            for (int block = indexed; block < completeBlocks; block++) {
+                indexBlock(block);
+            }
+        }
+
+        boolean isFull() {
+            return count >= capacity;
+        }
+
+        void append(int serviceId, long epochMillis, int statusBits, int httpCode, int latencyMicros) {
+            int offset = HEADER_SIZE + count * RECORD_SIZE;
+            records.putInt(offset, serviceId)
+                    .putLong(offset + 4, epochMillis)
+                    .put(offset + 12, (byte) statusBits)
+                    .put(offset + 13, (byte) 0)
+                    .putShort(offset + 14, (short) httpCode)
+                    .putInt(offset + 16, latencyMicros)
+                    .putInt(offset + 20, 0);
+            // The record is complete before the count that makes it visible is published.
+            records.putLong(COUNT_OFFSET, count + 1);
+            count++;
+            if (count % BLOCK_RECORDS == 0) {
+                indexBlock(count / BLOCK_RECORDS - 1);
+            }
+        }
+
+        /**
+         * Writes the index entry of a complete block: its time range and its record positions sorted by
+         * service id, then by position.
+         */
+        private void indexBlock(int block) {
+            int first = block * BLOCK_RECORDS;
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            long[] keys = new long[BLOCK_RECORDS];
+            for (int i = 0; i < BLOCK_RECORDS; i++) {
+                int offset = HEADER_SIZE + (first + i) * RECORD_SIZE;
+                long millis = records.getLong(offset + 4);
+                min = Math.min(min, millis);
+                max = Math.max(max, millis);
+                keys[i] = (long) records.getInt(offset) << 32 | i;
+            }
+            Arrays.sort(keys);
+            int entry = HEADER_SIZE + block * INDEX_ENTRY_SIZE;
+            index.putLong(entry, min).putLong(entry + 8, max);
+            for (int i = 0; i < BLOCK_RECORDS; i++) {
+                index.putShort(entry + 16 + i * Short.BYTES, (short) keys[i]);
+            }
+            // The entry is complete before the count that makes it valid is published.
+            index.putLong(COUNT_OFFSET, block + 1);
+            blocks.add(new long[]{min, max});
+        }
+
+        long query(int serviceId, long fromMillis, long toMillis, RecordVisitor visitor) {
+            int visibleCount = count;
+            long matched = 0;
+            int blockCount = Math.min(blocks.size(), visibleCount / BLOCK_RECORDS);
+            for (int block = 0; block < blockCount; block++) {
+                long[] range = blocks.get(block);
+                if (range[1] < fromMillis || range[0] > toMillis) {
+                    continue;
+                }
+                matched += queryBlock(block, serviceId, fromMillis, toMillis, visitor);
+            }
+            matched += scan(serviceId, fromMillis, toMillis, blockCount * BLOCK_RECORDS, visibleCount, visitor);
+            return matched;
+        }
+
+        private long queryBlock(int block, int serviceId, long fromMillis, long toMillis, RecordVisitor visitor) {
+            int positions = HEADER_SIZE + block * INDEX_ENTRY_SIZE + 16;
+            int first = block * BLOCK_RECORDS;
+            int low = 0;
+            int high = BLOCK_RECORDS;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int record = first + (index.getShort(positions + middle * Short.BYTES) & 0xffff);
+                if (records.getInt(HEADER_SIZE + record * RECORD_SIZE) < serviceId) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            long matched = 0;
+            for (int i = low; i < BLOCK_RECORDS; i++) {
+                int record = first + (index.getShort(positions + i * Short.BYTES) & 0xffff);
+                int offset = HEADER_SIZE + record * RECORD_SIZE;
+                if (records.getInt(offset) != serviceId) {
+                    break;
+                }
+                long millis = records.getLong(offset + 4);
+                if (millis < fromMillis || millis > toMillis) {
+                    continue;
+                }
+                visitor.visit(serviceId, millis, records.get(offset + 12), records.getShort(offset + 14), records.getInt(offset + 16));
+                matched++;
+            }
+            return matched;
+        }
+
+        private long scan(int serviceId, long fromMillis, long toMillis, int from, int to, RecordVisitor visitor) {
+            long matched = 0;
+            for (int i = from; i < to; i++) {
+                int offset = HEADER_SIZE + i * RECORD_SIZE;
+                if (records.getInt(offset) != serviceId) {
+                    continue;
+                }
+                long millis = records.getLong(offset + 4);
+                if (millis < fromMillis || millis > toMillis) {
+                    continue;
+                }
+                visitor.visit(serviceId, millis, records.get(offset + 12), records.getShort(offset + 14), records.getInt(offset + 16));
+                matched++;
+            }
+            return matched;
+        }
+
+        void visit(int from, int to, RecordVisitor visitor) {
+            for (int i = from; i < to; i++) {
+                int offset = HEADER_SIZE + i * RECORD_SIZE;
+                visitor.visit(records.getInt(offset), records.getLong(offset + 4), records.get(offset + 12),
+                        records.getShort(offset + 14), records.getInt(offset + 16));
+            }
+        }
+
+        void force() {
+            records.force();
+            index.force();
+        }
+
+        void close() {
+            try {
+                records.force();
+                index.force();
+                channel.close();
+                indexChannel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.example;
+
+import java.util.concurrent.TimeUnit;
+
+public class ProbeTimings {
+    public static final ProbeTimings NONE = new ProbeTimings(0, 0, 0, 0, false, false);
+
+    private final long connectNanos;
+    private final long tlsNanos;
+    private final long ttfbNanos;
+    private final long totalNanos;
+    private final boolean connectionReused;
+    private final boolean sessionResumed;
+
+    public ProbeTimings(long connectNanos, long tlsNanos, long ttfbNanos, long totalNanos,
+                        boolean connectionReused, boolean sessionResumed) {
+        this.connectNanos = connectNanos;
+        this.tlsNanos = tlsNanos;
+        this.ttfbNanos = ttfbNanos;
+        this.totalNanos = totalNanos;
+        this.connectionReused = connectionReused;
+        this.sessionResumed = sessionResumed;
+    }
+
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    public long getTlsNanos() {
+        return tlsNanos;
+    }
+
+    public long getTtfbNanos() {
+        return ttfbNanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public boolean isConnectionReused() {
+        return connectionReused;
+    }
+
+    public boolean isSessionResumed() {
+        return sessionResumed;
+    }
+
+    @Override
+    public String toString() {
+        String handshake = connectionReused ? "reused connection"
+                : sessionResumed ? "resumed TLS session" : tlsNanos == 0 ? "no TLS" : "full TLS handshake";
+        return "connect " + millis(connectNanos) + " ms, tls " + millis(tlsNanos) + " ms, ttfb " + millis(ttfbNanos)
+                + " ms, total " + millis(totalNanos) + " ms, " + handshake;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,116 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The probe for each probeType: the built-in ones plus any {@link Probe.Provider} found on the class path.
+ * A service without a probeType is probed over HTTPS, as every service was before probe types existed.
+ */
+public class Probes {
+    public static final String HTTPS = "HTTPS";
+    public static final String HTTP = "HTTP";
+    public static final String TCP = "TCP";
+    public static final String BANNER = "BANNER";
+    public static final String TLS_CERT = "TLS_CERT";
+    public static final String DNS = "DNS";
+
+    private final ProbeContext context;
+    private final Map<String, Probe> probes = new LinkedHashMap<>();
+
+    public Probes(ProbeContext context) {
+        this.context = context;
+        probes.put(HTTPS, new HttpProbe(context, true));
+        probes.put(HTTP, new HttpProbe(context, false));
+        probes.put(TCP, (service, matcher) -> tcpProbe(context, service));
+        probes.put(BANNER, new BannerProbe(context));
+        probes.put(TLS_CERT, new TlsCertificateProbe(context,
+                Integer.getInteger("sky.monitor.probe.tls.minValidDays", TlsCertificateProbe.DEFAULT_MIN_VALID_DAYS)));
+        probes.put(DNS, new DnsProbe(context));
+        for (Probe.Provider provider : Plugins.PROVIDERS) {
+            probes.putIfAbsent(normalize(provider.type()), provider.create(context));
+        }
+    }
+
+    public static Probes fromSystemProperties(HostResolver hostResolver, ReachabilityCoalescer reachabilityCoalescer)
+            throws IOException {
+        return new Probes(ProbeContext.fromSystemProperties(hostResolver, reachabilityCoalescer));
+    }
+
+    private static CompletableFuture<ProbeResult> tcpProbe(ProbeContext context, ServiceMonitorApplication.Service service) {
+        long timestamp = System.currentTimeMillis();
+        return context.checkServer(service.getServiceHost(), service.getServicePort()).thenApply(up ->
+                new ProbeResult(service.getid(), timestamp, up, up, ProbeResult.NO_HTTP_STATUS, ProbeTimings.NONE, true));
+    }
+
+    /**
+     * The probe for a probeType, or null when the type is unknown.
+     */
+    public Probe get(String type) {
+        return probes.get(normalize(type));
+    }
+
+    public static String typeOf(ServiceMonitorApplication.Service service) {
+        return normalize(service.getProbeType());
+    }
+
+    private static String normalize(String type) {
+        return type == null || type.isBlank() ? HTTPS : type.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public static boolean isKnownType(String type) {
+        String normalized = normalize(type);
+        switch (normalized) {
+            case HTTPS:
+            case HTTP:
+            case TCP:
+            case BANNER:
+            case TLS_CERT:
+            case DNS:
+                return true;
+            default:
+                for (Probe.Provider provider : Plugins.PROVIDERS) {
+                    if (normalize(provider.type()).equals(normalized)) {
+                        return true;
+                    }
+                }
+                return false;
+        }
+    }
+
+    /**
+     * Why the service cannot be probed as configured, or null when it can.
+     */
+    public static String validate(ServiceMonitorApplication.Service service) {
+        String type = typeOf(service);
+        if (!isKnownType(type)) {
+            return "probeType '" + service.getProbeType() + "' is unknown";
+        }
+        if (DNS.equals(type)) {
+            return DnsProbe.validate(service);
+        }
+        return null;
+    }
+
+    public ProbeContext getContext() {
+        return context;
+    }
+
+    public void close() {
+        for (Probe probe : probes.values()) {
+            probe.close();
+        }
+        context.close();
+    }
+
+    private static final class Plugins {
+        static final List<Probe.Provider> PROVIDERS = new ArrayList<>();
+
+        static {
+            for (Probe.Provider provider : ServiceLoader.load(Probe.Provider.class)) {
+                PROVIDERS.add(provider);
+            }
+        }
+    }
+}
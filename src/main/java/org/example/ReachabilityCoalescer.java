@@ -0,0 +1,95 @@
+package org.example;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Lets probes of services on the same host:port share one TCP reachability check. A probe that arrives
+ * while a check is in flight waits for it, and one that arrives within the reuse window after it finished
+ * takes its result instead of connecting again.
+ */
+public class ReachabilityCoalescer {
+    public static final long DEFAULT_WINDOW_MILLIS = 1000;
+
+    private final long windowNanos;
+    private final Map<String, Check> checks = new ConcurrentHashMap<>();
+    private final LongAdder performed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public ReachabilityCoalescer(long windowMillis) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMillis));
+    }
+
+    public static ReachabilityCoalescer fromSystemProperties() {
+        return new ReachabilityCoalescer(Long.getLong("sky.monitor.reachability.coalesceMillis", DEFAULT_WINDOW_MILLIS));
+    }
+
+    public boolean check(String host, int port, BooleanSupplier connect) {
+        return checkAsync(host, port, () -> CompletableFuture.completedFuture(connect.getAsBoolean())).join();
+    }
+
+    /**
+     * Starts the connect unless a shared check is in flight or recent. The connect may complete on any
+     * thread; so do the futures returned to all probes sharing it.
+     */
+    public CompletableFuture<Boolean> checkAsync(String host, int port, Supplier<? extends CompletionStage<Boolean>> connect) {
+        String key = host + ":" + port;
+        Check check;
+        for (;;) {
+            check = checks.get(key);
+            if (check != null && !check.isStale(System.nanoTime())) {
+                coalesced.increment();
+                break;
+            }
+            Check fresh = new Check();
+            boolean won = check == null ? checks.putIfAbsent(key, fresh) == null : checks.replace(key, check, fresh);
+            if (won) {
+                performed.increment();
+                fresh.run(connect);
+                return fresh.reachable;
+            }
+        }
+        return check.reachable;
+    }
+
+    public void clear() {
+        checks.clear();
+    }
+
+    public long getPerformed() {
+        return performed.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    private class Check {
+        private final CompletableFuture<Boolean> reachable = new CompletableFuture<>();
+        private volatile long completedAt;
+
+        void run(Supplier<? extends CompletionStage<Boolean>> connect) {
+            CompletionStage<Boolean> pending;
+            try {
+                pending = connect.get();
+            } catch (RuntimeException e) {
+                pending = CompletableFuture.completedFuture(false);
+            }
+            pending.whenComplete((result, error) -> {
+                // Waiters see an exception as unreachable, like a failed connect.
+                completedAt = System.nanoTime();
+                reachable.complete(error == null && Boolean.TRUE.equals(result));
+            });
+        }
+
+        boolean isStale(long now) {
+            return reachable.isDone() && now - completedAt >= windowNanos;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.example;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TCP reachability checks multiplexed on the probes' event loop. Every check is a non-blocking connect
+ * that completes with the connect time in nanoseconds, or exceptionally when it is refused or times out.
+ */
+public class ReachabilityScanner {
+    public static final long DEFAULT_TIMEOUT_MILLIS = 2000;
+
+    private final ProbeEventLoop eventLoop;
+    private final long timeoutMillis;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public ReachabilityScanner(ProbeEventLoop eventLoop, long timeoutMillis) {
+        this.eventLoop = eventLoop;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public ReachabilityScanner(ProbeEventLoop eventLoop) {
+        this(eventLoop, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    public CompletableFuture<Long> check(String host, int port) {
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        if (address.isUnresolved()) {
+            return CompletableFuture.failedFuture(new UnknownHostException(host));
+        }
+        return check(address);
+    }
+
+    public CompletableFuture<Long> check(InetSocketAddress address) {
+        PendingConnect pending = new PendingConnect(address);
+        inFlight.incrementAndGet();
+        eventLoop.open(pending);
+        return pending.future;
+    }
+
+    public Map<Integer, Boolean> scan(Collection<ServiceMonitorApplication.Service> services) {
+        Map<Integer, CompletableFuture<Long>> checks = new LinkedHashMap<>();
+        for (ServiceMonitorApplication.Service service : services) {
+            checks.put(service.getid(), check(service.getServiceHost(), service.getServicePort()));
+        }
+        Map<Integer, Boolean> results = new LinkedHashMap<>();
+        for (Map.Entry<Integer, CompletableFuture<Long>> check : checks.entrySet()) {
+            results.put(check.getKey(), isReachable(check.getValue()));
+        }
+        return results;
+    }
+
+    public static boolean isReachable(CompletableFuture<Long> check) {
+        try {
+            check.join();
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private class PendingConnect extends ProbeEventLoop.Handler {
+        private final InetSocketAddress address;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+        private SocketChannel channel;
+        private long started;
+
+        PendingConnect(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        @Override
+        protected void start() throws IOException {
+            started = System.nanoTime();
+            channel = SocketChannel.open();
+            register(channel, 0);
+            if (channel.connect(address)) {
+                complete();
+                return;
+            }
+            interestOps(SelectionKey.OP_CONNECT);
+            deadline(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        protected void connectable() throws IOException {
+            try {
+                if (channel.finishConnect()) {
+                    complete();
+                }
+            } catch (IOException e) {
+                throw e instanceof ConnectException ? e : new ConnectException(e.getMessage());
+            }
+        }
+
+        @Override
+        protected void timedOut() {
+            fail(new SocketTimeoutException("connect timed out"));
+        }
+
+        private void complete() {
+            close();
+            inFlight.decrementAndGet();
+            future.complete(System.nanoTime() - started);
+        }
+
+        @Override
+        protected void failed(Exception cause) {
+            inFlight.decrementAndGet();
+            future.completeExceptionally(cause);
+        }
+    }
+}
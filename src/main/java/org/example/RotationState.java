@@ -0,0 +1,215 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Log rotation start times per "serviceName_type" key. The state lives in a ConcurrentHashMap so that a
+ * rotation is decided atomically per key, and every rotation is then appended to a checkpoint file as a
+ * CRC-protected record, outside the map's lock. A torn record left by a crash fails its checksum and is
+ * dropped on recovery. A retired key is recorded with {@link #RETIRED} in place of its rotation.
+ */
+public class RotationState implements Closeable {
+    public static final String DEFAULT_DIRECTORY = "last_logging_time";
+    private static final String CHECKPOINT_FILE = "rotations.checkpoint";
+    private static final int RECORD_OVERHEAD = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int COMPACTION_FACTOR = 4;
+    // Never a real rotation start; marks a key whose log is no longer written.
+    private static final long RETIRED = Long.MIN_VALUE;
+
+    private final Path directory;
+    private final Path checkpointFile;
+    private final Map<String, Long> rotations = new ConcurrentHashMap<>();
+    private final Map<String, Long> recovered = new ConcurrentHashMap<>();
+    private final Object checkpointLock = new Object();
+    private final LongAdder checkpointFailures = new LongAdder();
+    private FileChannel checkpoint;
+    private int recordCount;
+
+    public RotationState(Path directory) throws IOException {
+        this.directory = directory;
+        this.checkpointFile = directory.resolve(CHECKPOINT_FILE);
+        Files.createDirectories(directory);
+        recover();
+        checkpoint = FileChannel.open(checkpointFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    public long resolve(String key, long timestamp, long interval) {
+        boolean[] rotated = new boolean[1];
+        long rotation = rotations.compute(key, (k, current) -> {
+            if (current == null) {
+                current = recoveredOrLegacy(k);
+            }
+            if (current == null || timestamp - current >= interval) {
+                rotated[0] = true;
+                return timestamp;
+            }
+            return current;
+        });
+        // Only dropped once the key is published, so a compaction in between never loses it.
+        recovered.remove(key);
+        if (rotated[0]) {
+            append(key);
+        }
+        return rotation;
+    }
+
+    /**
+     * Forgets the rotation of a key whose log is no longer being written, so that its last file stops
+     * counting as active. Does nothing if the key has rotated again since rotationStart.
+     */
+    public void retire(String key, long rotationStart) {
+        if (rotations.remove(key, rotationStart)) {
+            append(key);
+        }
+    }
+
+    public Long get(String key) {
+        Long rotation = rotations.get(key);
+        return rotation != null ? rotation : recovered.get(key);
+    }
+
+    private Long recoveredOrLegacy(String key) {
+        Long rotation = recovered.get(key);
+        if (rotation != null) {
+            return rotation;
+        }
+        Path legacyFile = directory.resolve(key + ".timestamp");
+        if (Files.exists(legacyFile)) {
+            try {
+                return Long.parseLong(new String(Files.readAllBytes(legacyFile), StandardCharsets.UTF_8).trim());
+            } catch (IOException | NumberFormatException e) {
+                e.printStackTrace();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the key's current rotation rather than the one the caller decided on: when two rotations of a
+     * key race to the checkpoint, the record written last is then always the newest one.
+     */
+    private void append(String key) {
+        synchronized (checkpointLock) {
+            Long rotation = rotations.get(key);
+            ByteBuffer record = encode(key, rotation != null ? rotation : RETIRED);
+            try {
+                while (record.hasRemaining()) {
+                    checkpoint.write(record);
+                }
+                checkpoint.force(false);
+                if (++recordCount > COMPACTION_FACTOR * Math.max(16, rotations.size() + recovered.size())) {
+                    compact();
+                }
+            } catch (IOException e) {
+                checkpointFailures.increment();
+                System.out.println("Failed to checkpoint log rotation of " + key + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void compact() throws IOException {
+        Map<String, Long> live = new HashMap<>(recovered);
+        live.putAll(rotations);
+
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Map.Entry<String, Long> entry : live.entrySet()) {
+                ByteBuffer record = encode(entry.getKey(), entry.getValue());
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+            }
+            out.force(true);
+        }
+        checkpoint.close();
+        try {
+            Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            checkpoint = FileChannel.open(checkpointFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        recordCount = live.size();
+    }
+
+    private void recover() throws IOException {
+        if (!Files.exists(checkpointFile)) {
+            return;
+        }
+        long validLength = 0;
+        try (FileChannel in = FileChannel.open(checkpointFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) in.size());
+            while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+                // read the whole checkpoint; it only ever holds a few records per key
+            }
+            buffer.flip();
+            while (buffer.remaining() >= RECORD_OVERHEAD) {
+                int start = buffer.position();
+                int keyLength = buffer.getInt();
+                if (keyLength <= 0 || keyLength > buffer.remaining() - Long.BYTES - Integer.BYTES) {
+                    break;
+                }
+                byte[] key = new byte[keyLength];
+                buffer.get(key);
+                long timestamp = buffer.getLong();
+                int crc = buffer.getInt();
+                if (crc != checksum(key, timestamp)) {
+                    break;
+                }
+                if (timestamp == RETIRED) {
+                    recovered.remove(new String(key, StandardCharsets.UTF_8));
+                } else {
+                    recovered.put(new String(key, StandardCharsets.UTF_8), timestamp);
+                }
+                recordCount++;
+                validLength = buffer.position();
+                if (buffer.position() <= start) {
+                    break;
+                }
+            }
+            if (validLength < in.size()) {
+                System.out.println("Discarding " + (in.size() - validLength) + " bytes of incomplete rotation checkpoint.");
+                in.truncate(validLength);
+                in.force(true);
+            }
+        }
+    }
+
+    private static ByteBuffer encode(String key, long timestamp) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + keyBytes.length);
+        record.putInt(keyBytes.length).put(keyBytes).putLong(timestamp).putInt(checksum(keyBytes, timestamp));
+        record.flip();
+        return record;
+    }
+
+    private static int checksum(byte[] key, long timestamp) {
+        CRC32 crc = new CRC32();
+        crc.update(key);
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, timestamp));
+        return (int) crc.getValue();
+    }
+
+    public long getCheckpointFailures() {
+        return checkpointFailures.sum();
+    }
+
+    @Override
+    public void close() {
+        synchronized (checkpointLock) {
+            try {
+                checkpoint.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The services of one configuration file. The file is watched for changes; on every change it is reloaded
+ * and diffed by service id so that only added, removed and changed services need to be rescheduled.
+ */
+public class ServiceCatalog implements Closeable {
+    private static final long DEBOUNCE_MILLIS = 250;
+
+    private final Path file;
+    private final Function<String, List<ServiceMonitorApplication.Service>> loader;
+    private volatile ServiceRegistry registry = ServiceRegistry.EMPTY;
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    public ServiceCatalog(Path file, Function<String, List<ServiceMonitorApplication.Service>> loader) {
+        this.file = file.toAbsolutePath();
+        this.loader = loader;
+    }
+
+    public List<ServiceMonitorApplication.Service> getServices() {
+        return registry.asList();
+    }
+
+    public ServiceRegistry getRegistry() {
+        return registry;
+    }
+
+    public ServiceMonitorApplication.Service findById(int id) {
+        return registry.get(id);
+    }
+
+    public synchronized Diff reload() {
+        List<ServiceMonitorApplication.Service> loaded = loader.apply(file.toString());
+        ServiceRegistry previous = registry;
+        if (loaded == null || (loaded.isEmpty() && previous.size() > 0)) {
+            // A half-written or unparsable file must not unschedule every service.
+            System.out.println("Ignoring " + file.getFileName() + ": no services could be read from it.");
+            return new Diff(Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+        }
+        ServiceRegistry current = ServiceRegistry.compile(loaded);
+        if (current.size() < loaded.size()) {
+            System.out.println((loaded.size() - current.size()) + " duplicate service id(s) in " + file.getFileName()
+                    + ", the last entry of each wins.");
+        }
+        List<ServiceMonitorApplication.Service> added = new ArrayList<>();
+        List<ServiceMonitorApplication.Service> changed = new ArrayList<>();
+        for (int i = 0; i < current.size(); i++) {
+            ServiceMonitorApplication.Service service = current.serviceAt(i);
+            ServiceMonitorApplication.Service old = previous.get(current.idAt(i));
+            if (old == null) {
+                added.add(service);
+            } else if (!old.equals(service)) {
+                changed.add(service);
+            }
+        }
+        List<ServiceMonitorApplication.Service> removed = new ArrayList<>();
+        for (int i = 0; i < previous.size(); i++) {
+            if (current.indexOf(previous.idAt(i)) < 0) {
+                removed.add(previous.serviceAt(i));
+            }
+        }
+        registry = current;
+        return new Diff(added, removed, changed);
+    }
+
+    public void watch(Listener listener) throws IOException {
+        watchService = file.getFileSystem().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watcherThread = new Thread(() -> runWatcher(listener), "catalog-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    private void runWatcher(Listener listener) {
+        Path fileName = file.getFileName();
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean relevant = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    relevant |= fileName.equals(event.context());
+                }
+                key.reset();
+                if (!relevant) {
+                    continue;
+                }
+                // Editors tend to write a file in several steps; wait for them to settle before reloading.
+                WatchKey more;
+                while ((more = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    more.pollEvents();
+                    more.reset();
+                }
+                long start = System.nanoTime();
+                Diff diff = reload();
+                if (!diff.isEmpty()) {
+                    listener.onChange(diff);
+                    System.out.println("Reloaded " + fileName + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                            + " ms: " + diff.getAdded().size() + " added, " + diff.getChanged().size() + " changed, "
+                            + diff.getRemoved().size() + " removed.");
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // watcher stopped
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public interface Listener {
+        void onChange(Diff diff);
+    }
+
+    public static class Diff {
+        private final List<ServiceMonitorApplication.Service> added;
+        private final List<ServiceMonitorApplication.Service> removed;
+        private final List<ServiceMonitorApplication.Service> changed;
+
+        Diff(List<ServiceMonitorApplication.Service> added, List<ServiceMonitorApplication.Service> removed,
+             List<ServiceMonitorApplication.Service> changed) {
+            this.added = added;
+            this.removed = removed;
+            this.changed = changed;
+        }
+
+        public List<ServiceMonitorApplication.Service> getAdded() {
+            return added;
+        }
+
+        public List<ServiceMonitorApplication.Service> getRemoved() {
+            return removed;
+        }
+
+        public List<ServiceMonitorApplication.Service> getChanged() {
+            return changed;
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+        }
+    }
+}
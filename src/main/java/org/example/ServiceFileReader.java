@@ -0,0 +1,257 @@
+package org.example;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.configuration2.INIConfiguration;
+import org.apache.commons.configuration2.builder.fluent.Configurations;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.events.*;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Reads services from the five supported configuration formats. Except for INI, the files are parsed as
+ * a stream and every service is validated and handed to the consumer as soon as it is complete, so the
+ * reader itself never holds more than one service.
+ */
+public class ServiceFileReader {
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+    private static volatile JAXBContext jaxbContext;
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    public static boolean isSupported(String file) {
+        return file.endsWith(".csv") || file.endsWith(".json") || file.endsWith(".xml")
+                || file.endsWith(".yaml") || file.endsWith(".yml") || file.endsWith(".ini");
+    }
+
+    /**
+     * Collects all valid services of the file, or returns null when the file could not be read at all.
+     */
+    public static List<ServiceMonitorApplication.Service> readAll(String file) {
+        List<ServiceMonitorApplication.Service> services = new ArrayList<>();
+        return read(Path.of(file), services::add) ? services : null;
+    }
+
+    /**
+     * Streams the valid services of the file to the consumer. Invalid entries are reported and skipped.
+     * Returns false when the file could not be read or parsed; services seen before the failure have
+     * already been handed to the consumer.
+     */
+    public static boolean read(Path file, Consumer<ServiceMonitorApplication.Service> consumer) {
+        String name = file.getFileName().toString();
+        try {
+            if (name.endsWith(".csv")) {
+                readCsv(file, consumer);
+            } else if (name.endsWith(".json")) {
+                readJson(file, consumer);
+            } else if (name.endsWith(".xml")) {
+                readXml(file, consumer);
+            } else if (name.endsWith(".yaml") || name.endsWith(".yml")) {
+                readYaml(file, consumer);
+            } else if (name.endsWith(".ini")) {
+                readIni(file, consumer);
+            } else {
+                System.out.println("Unsupported file format: " + name);
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            System.out.println("Could not read " + name + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void readCsv(Path file, Consumer<ServiceMonitorApplication.Service> consumer) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file);
+             CSVParser parser = CSVFormat.DEFAULT.withFirstRecordAsHeader().withTrim().parse(reader)) {
+            for (CSVRecord record : parser) {
+                String location = file.getFileName() + " line " + parser.getCurrentLineNumber();
+                if (record.size() < 14) {
+                    System.out.println("Skipping " + location + ": expected 14 columns, found " + record.size() + ".");
+                    continue;
+                }
+                try {
+                    emit(new ServiceMonitorApplication.Service(
+                            Integer.parseInt(record.get(0)), record.get(1), record.get(2), Integer.parseInt(record.get(3)),
+                            record.get(4), record.get(5), record.get(6), record.get(7), Integer.parseInt(record.get(8)),
+                            record.get(9), record.get(10), record.get(11), record.get(12), record.get(13),
+                            record.size() > 14 ? record.get(14) : null),
+                            location, consumer);
+                } catch (NumberFormatException e) {
+                    System.out.println("Skipping " + location + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void readJson(Path file, Consumer<ServiceMonitorApplication.Service> consumer) throws IOException {
+        try (InputStream in = Files.newInputStream(file);
+             JsonParser parser = JSON_MAPPER.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("expected a JSON array of services");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String location = file.getFileName() + " line " + parser.getCurrentLocation().getLineNr();
+                emit(JSON_MAPPER.readValue(parser, ServiceMonitorApplication.Service.class), location, consumer);
+            }
+        }
+    }
+
+    private static void readXml(Path file, Consumer<ServiceMonitorApplication.Service> consumer)
+            throws IOException, XMLStreamException, JAXBException {
+        // Unmarshallers are cheap but not thread-safe; the context is expensive and shared.
+        Unmarshaller unmarshaller = jaxbContext().createUnmarshaller();
+        try (InputStream in = Files.newInputStream(file)) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.getEventType() == XMLStreamConstants.START_ELEMENT && "service".equals(reader.getLocalName())) {
+                        String location = file.getFileName() + " line " + reader.getLocation().getLineNumber();
+                        // Unmarshalling leaves the reader on the event after the element's end tag.
+                        emit(unmarshaller.unmarshal(reader, ServiceMonitorApplication.Service.class).getValue(), location, consumer);
+                    } else {
+                        reader.next();
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    private static JAXBContext jaxbContext() throws JAXBException {
+        JAXBContext context = jaxbContext;
+        if (context == null) {
+            synchronized (ServiceFileReader.class) {
+                context = jaxbContext;
+                if (context == null) {
+                    context = JAXBContext.newInstance(ServiceMonitorApplication.Service.class);
+                    jaxbContext = context;
+                }
+            }
+        }
+        return context;
+    }
+
+    private static void readYaml(Path file, Consumer<ServiceMonitorApplication.Service> consumer) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file)) {
+            // Services are the mappings of scalars found inside a sequence, either at the top level or
+            // under the "services" key; everything else in the document is skipped.
+            int sequenceDepth = 0;
+            Map<String, String> fields = null;
+            String key = null;
+            int line = 0;
+            for (Event event : new Yaml().parse(reader)) {
+                if (event instanceof SequenceStartEvent) {
+                    sequenceDepth++;
+                } else if (event instanceof SequenceEndEvent) {
+                    sequenceDepth--;
+                } else if (event instanceof MappingStartEvent && sequenceDepth == 1 && fields == null) {
+                    fields = new HashMap<>();
+                    key = null;
+                    line = event.getStartMark().getLine() + 1;
+                } else if (event instanceof MappingEndEvent && sequenceDepth == 1 && fields != null) {
+                    String location = file.getFileName() + " line " + line;
+                    try {
+                        emit(fromFields(fields), location, consumer);
+                    } catch (NumberFormatException e) {
+                        System.out.println("Skipping " + location + ": " + e.getMessage());
+                    }
+                    fields = null;
+                } else if (event instanceof ScalarEvent && fields != null) {
+                    String value = ((ScalarEvent) event).getValue();
+                    if (key == null) {
+                        key = value;
+                    } else {
+                        fields.put(key, value);
+                        key = null;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void readIni(Path file, Consumer<ServiceMonitorApplication.Service> consumer) throws Exception {
+        // INIConfiguration has no streaming API; INI catalogs are expected to stay small.
+        INIConfiguration config = new Configurations().ini(file.toFile());
+        for (String section : config.getSections()) {
+            Map<String, String> fields = new HashMap<>();
+            Iterator<String> keys = config.getSection(section).getKeys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                fields.put(key, config.getSection(section).getString(key));
+            }
+            String location = file.getFileName() + " section [" + section + "]";
+            try {
+                emit(fromFields(fields), location, consumer);
+            } catch (NumberFormatException e) {
+                System.out.println("Skipping " + location + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static ServiceMonitorApplication.Service fromFields(Map<String, String> fields) {
+        return new ServiceMonitorApplication.Service(
+                parseInt(fields.get("id")), fields.get("serviceName"), fields.get("serviceHost"),
+                parseInt(fields.get("servicePort")), fields.get("serviceResourceURI"), fields.get("serviceMethod"),
+                fields.get("expectedTelnetResponse"), fields.get("expectedRequestResponse"),
+                parseInt(fields.get("monitoringInterval")), fields.get("monitoringIntervalTimeUnit"),
+                fields.get("enableFileLogging"), fields.get("fileLoggingInterval"),
+                fields.get("enableLogsArchiving"), fields.get("logArchivingIntervals"), fields.get("probeType"));
+    }
+
+    private static int parseInt(String value) {
+        if (value == null) {
+            throw new NumberFormatException("missing number");
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+    private static void emit(ServiceMonitorApplication.Service service, String location,
+                             Consumer<ServiceMonitorApplication.Service> consumer) {
+        String problem = validate(service);
+        if (problem != null) {
+            System.out.println("Skipping service at " + location + ": " + problem + ".");
+            return;
+        }
+        consumer.accept(service);
+    }
+
+    static String validate(ServiceMonitorApplication.Service service) {
+        if (service.getServiceName() == null || service.getServiceName().isBlank()) {
+            return "serviceName is missing";
+        }
+        if (service.getServiceHost() == null || service.getServiceHost().isBlank()) {
+            return "serviceHost is missing";
+        }
+        if (service.getServicePort() < 1 || service.getServicePort() > 65535) {
+            return "servicePort " + service.getServicePort() + " is out of range";
+        }
+        if (service.getMonitoringInterval() <= 0) {
+            return "monitoringInterval must be positive";
+        }
+        return Probes.validate(service);
+    }
+}
@@ -1,62 +1,68 @@
 package org.example;
 
-import javax.net.ssl.*;
 import java.io.*;
 import java.net.*;
 import java.nio.file.*;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Function;
 
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.Unmarshaller;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
-import javax.xml.bind.annotation.XmlRootElement;
 
 
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import org.apache.commons.configuration2.INIConfiguration;
-import org.apache.commons.configuration2.builder.fluent.Configurations;
 
 
-import org.yaml.snakeyaml.Yaml;
-import org.yaml.snakeyaml.constructor.Constructor;
-
-
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.core.type.TypeReference;
-
 public class ServiceMonitorApplication {
-    private static boolean isMonitoringActive = false;
-    private static ScheduledExecutorService executor;
+    private static volatile boolean isMonitoringActive = false;
+    private static ServiceCatalog catalog;
+    private static final Map<Integer, List<Runnable>> scheduledTasks = new ConcurrentHashMap<>();
+    private static ProbeEngine probeEngine;
+    private static final HostResolver hostResolver = HostResolver.fromSystemProperties();
+    private static final ReachabilityCoalescer reachabilityCoalescer = ReachabilityCoalescer.fromSystemProperties();
+    private static Probes probes;
+    private static StatusLogWriter statusLogWriter;
+    private static RotationState rotationState;
+    private static LogArchiver logArchiver;
+    private static ProbeStore probeStore;
+    private static ColumnarExporter columnarExporter;
+    private static UptimeAggregator uptimeAggregator;
+    private static TextLogExporter textLogExporter;
+    private static final List<ProbeResultSink> probeResultSinks = new CopyOnWriteArrayList<>();
+    private static AdaptiveSchedule adaptiveSchedule;
+    private static final LatestStatusCache latestStatus = new LatestStatusCache();
+    private static final MonitorMetrics metrics = new MonitorMetrics(hostResolver, reachabilityCoalescer);
+    private static MetricsServer metricsServer;
+    private static AlertDispatcher alertDispatcher;
+    private static TransitionDetector transitionDetector;
+    private static ShardCoordinator shardCoordinator;
+    private static ShardScheduler shardScheduler = new ShardScheduler(null, latestStatus, System::currentTimeMillis);
+    private static final LogHistory logHistory = LogHistory.fromSystemProperties();
 
 
     public static void main(String[] args) {
-        String serviceFile = "services.json";
-        List<Service> services ;
-
-        if (serviceFile.endsWith(".csv")) {
-            services = readServicesFromCSV(serviceFile);
-        } else if (serviceFile.endsWith(".json")) {
-            services = readServicesFromJSON(serviceFile);
-        } else if (serviceFile.endsWith(".xml")) {
-            services = readServicesFromXML(serviceFile);
-        } else if (serviceFile.endsWith(".yaml") || serviceFile.endsWith(".yml")) {
-            services = readServicesFromYAML(serviceFile);
-        } else if (serviceFile.endsWith(".ini")) {
-            services = readServicesFromINI(serviceFile);
-        } else {
+        String serviceFile = args.length > 0 ? args[0] : "services.json";
+        if (!ServiceFileReader.isSupported(serviceFile)) {
             System.out.println("Unsupported file format.");
             return;
         }
+        Function<String, List<Service>> loader = ServiceFileReader::readAll;
+        if (Boolean.parseBoolean(System.getProperty("sky.monitor.catalog.snapshot", "true"))) {
+            loader = CatalogSnapshot.fromSystemProperties()::load;
+        }
+        catalog = new ServiceCatalog(Paths.get(serviceFile), loader);
+        catalog.reload();
+        try {
+            catalog.watch(ServiceMonitorApplication::applyCatalogChange);
+        } catch (IOException e) {
+            System.out.println("Changes to " + serviceFile + " will not be picked up until restart: " + e.getMessage());
+        }
 
 
         Scanner scanner = new Scanner(System.in);
@@ -65,16 +71,17 @@ public class ServiceMonitorApplication {
             String command = scanner.nextLine();
 
             if ("exit".equalsIgnoreCase(command)) {
-                if (executor != null && !executor.isShutdown()) {
-                    executor.shutdown();
+                if (isMonitoringActive) {
+                    stopMonitoring();
                 }
+                catalog.close();
                 break;
             }
 
             String[] commandParts = command.split(" ");
             switch (commandParts[0].toLowerCase()) {
                 case "sky-monitor":
-                    handleSkyMonitorCommands(commandParts, services);
+                    handleSkyMonitorCommands(commandParts, catalog.getServices());
                     break;
                 default:
                     System.out.println("Invalid command.");
@@ -84,6 +91,94 @@ public class ServiceMonitorApplication {
         scanner.close();
 
     }
+
+    private static synchronized void applyCatalogChange(ServiceCatalog.Diff diff) {
+        if (!isMonitoringActive) {
+            return;
+        }
+        for (Service service : diff.getRemoved()) {
+            cancelService(service.getid());
+            latestStatus.remove(service.getid());
+            if (transitionDetector != null) {
+                transitionDetector.forget(service.getid());
+            }
+        }
+        ServiceRegistry registry = catalog.getRegistry();
+        for (Service service : diff.getChanged()) {
+            cancelService(service.getid());
+            if (ownsService(service.getid())) {
+                scheduleService(registry, registry.indexOf(service.getid()));
+            }
+        }
+        for (Service service : diff.getAdded()) {
+            if (ownsService(service.getid())) {
+                scheduleService(registry, registry.indexOf(service.getid()));
+            }
+        }
+    }
+
+    private static boolean ownsService(int id) {
+        return shardScheduler.owns(id);
+    }
+
+    /**
+     * Brings the scheduled services in line with the ring after a member joined or left: services this
+     * instance gained are scheduled, services it lost are cancelled.
+     */
+    private static synchronized void rebalance() {
+        // Until initializeLogging has run, the services are scheduled from the current ring anyway.
+        if (!isMonitoringActive || textLogExporter == null) {
+            return;
+        }
+        ServiceRegistry registry = catalog.getRegistry();
+        int owned = shardScheduler.rebalance(registry, new ShardScheduler.Tasks() {
+            @Override
+            public boolean isScheduled(int serviceId) {
+                return scheduledTasks.containsKey(serviceId);
+            }
+
+            @Override
+            public void schedule(int index) {
+                scheduleService(registry, index);
+            }
+
+            @Override
+            public void cancel(int serviceId) {
+                cancelService(serviceId);
+                if (transitionDetector != null) {
+                    transitionDetector.forget(serviceId);
+                }
+            }
+        });
+        System.out.println("Cluster has " + shardCoordinator.getMemberCount() + " members; this instance monitors "
+                + owned + " of " + registry.size() + " services.");
+    }
+
+    /**
+     * Shares the latest results of the services this instance owns and merges in those of the other
+     * members, so status queries answer for the whole catalog.
+     */
+    private static void syncClusterStatus() {
+        ShardCoordinator coordinator = shardCoordinator;
+        if (coordinator == null) {
+            return;
+        }
+        try {
+            List<ProbeResult> owned = new ArrayList<>();
+            for (ProbeResult result : latestStatus.values()) {
+                if (coordinator.owns(result.getServiceId())) {
+                    owned.add(result);
+                }
+            }
+            coordinator.publishStatus(owned);
+            for (ProbeResult result : coordinator.readPeerStatus()) {
+                latestStatus.update(result);
+            }
+        } catch (IOException e) {
+            System.out.println("Unable to exchange status with the cluster: " + e.getMessage());
+        }
+    }
+
     private static void handleSkyMonitorCommands(String[] commandParts, List<Service> services) {
         if (commandParts.length < 2) {
             System.out.println("Invalid command.");
@@ -98,14 +193,39 @@ public class ServiceMonitorApplication {
 
         switch (commandParts[1].toLowerCase()) {
             case "start":
-                startMonitoring(services);
+                startMonitoring(catalog.getRegistry());
                 break;
             case "stop":
                 stopMonitoring();
                 break;
+            case "store":
+                if (commandParts.length == 5 && "export".equalsIgnoreCase(commandParts[2])) {
+                    exportStoredResults(Integer.parseInt(commandParts[3]), Integer.parseInt(commandParts[4]));
+                } else if (commandParts.length == 3 && "export-columnar".equalsIgnoreCase(commandParts[2])) {
+                    exportColumnar();
+                } else {
+                    System.out.println("Usage: sky-monitor store export <id> <days> | sky-monitor store export-columnar");
+                }
+                break;
+            case "history":
+                if (commandParts.length >= 3 && commandParts.length % 2 == 1) {
+                    printHistory(Integer.parseInt(commandParts[2]), Arrays.copyOfRange(commandParts, 3, commandParts.length));
+                } else {
+                    System.out.println("Usage: sky-monitor history <id> [--from <time>] [--to <time>] [--status UP|DOWN] [--type application|server]");
+                }
+                break;
+            case "uptime":
+                if (commandParts.length == 3 && "import".equalsIgnoreCase(commandParts[2])) {
+                    importUptimeHistory(services);
+                } else if (commandParts.length == 3 || commandParts.length == 4) {
+                    printUptime(Integer.parseInt(commandParts[2]), commandParts.length == 4 ? commandParts[3] : "30d");
+                } else {
+                    System.out.println("Usage: sky-monitor uptime <id> [window, e.g. 30d, 12h, 45m] | sky-monitor uptime import");
+                }
+                break;
             case "service":
-                if (commandParts.length == 3 && "list".equalsIgnoreCase(commandParts[2])) {
-                    listServices(services);
+                if (commandParts.length >= 3 && "list".equalsIgnoreCase(commandParts[2])) {
+                    listServices(services, commandParts.length == 4 && "--refresh".equalsIgnoreCase(commandParts[3]));
                 } else {
                     System.out.println("Invalid service command.");
                 }
@@ -114,7 +234,7 @@ public class ServiceMonitorApplication {
             case "server":
                 if (commandParts.length == 4 && "status".equalsIgnoreCase(commandParts[2])) {
                     int id = Integer.parseInt(commandParts[3]);
-                    Service service = findServiceById(services, id);
+                    Service service = catalog.findById(id);
                     if (service != null) {
                         if ("application".equalsIgnoreCase(commandParts[1])) {
                             logServiceStatus(service);
@@ -133,178 +253,218 @@ public class ServiceMonitorApplication {
                 break;
         }
     }
-    private static void startMonitoring(List<Service> services) {
+    private static synchronized void startMonitoring(ServiceRegistry registry) {
         if (isMonitoringActive) {
             System.out.println("Monitoring is already active.");
             return;
         }
 
         isMonitoringActive = true;
-        executor = Executors.newScheduledThreadPool(services.size());
-        initializeLogging(services);
-        initializeArchiving(services);
+        probeEngine = ProbeEngine.fromSystemProperties();
+        try {
+            probes = Probes.fromSystemProperties(hostResolver, reachabilityCoalescer);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.println("Unable to open the probe event loop.");
+            probeEngine.shutdownNow();
+            isMonitoringActive = false;
+            return;
+        }
+        adaptiveSchedule = AdaptiveSchedule.fromSystemProperties();
+        probeResultSinks.add(latestStatus);
+        try {
+            rotationState = new RotationState(Paths.get(RotationState.DEFAULT_DIRECTORY));
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.println("Unable to open the rotation checkpoint.");
+            probeEngine.shutdownNow();
+            probes.close();
+            probes = null;
+            isMonitoringActive = false;
+            return;
+        }
+        statusLogWriter = StatusLogWriter.fromSystemProperties(rotationState);
+        logArchiver = LogArchiver.fromSystemProperties(rotationState);
+        try {
+            uptimeAggregator = UptimeAggregator.fromSystemProperties();
+            probeResultSinks.add(uptimeAggregator);
+            probeEngine.scheduleWithFixedDelay(uptimeAggregator::persist, 1, 1, TimeUnit.MINUTES);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.println("Uptime rollups are disabled: " + e.getMessage());
+        }
+        if (Boolean.parseBoolean(System.getProperty("sky.monitor.store", "true"))) {
+            try {
+                probeStore = ProbeStore.fromSystemProperties();
+                probeResultSinks.add(probeStore);
+                columnarExporter = ColumnarExporter.fromSystemProperties(probeStore);
+                long exportMinutes = Long.getLong("sky.monitor.export.intervalMinutes", 0);
+                if (exportMinutes > 0) {
+                    probeEngine.scheduleWithFixedDelay(ServiceMonitorApplication::exportColumnarQuietly, exportMinutes, exportMinutes, TimeUnit.MINUTES);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.out.println("Probe results will not be stored: " + e.getMessage());
+            }
+        }
+        alertDispatcher = AlertDispatcher.fromSystemProperties();
+        if (alertDispatcher != null) {
+            transitionDetector = new TransitionDetector(Integer.getInteger("sky.monitor.alerts.downAfter", 3),
+                    Integer.getInteger("sky.monitor.alerts.upAfter", 1), alertDispatcher);
+            probeResultSinks.add(transitionDetector);
+        }
+        metrics.bind(probeEngine, probes, statusLogWriter, logArchiver, alertDispatcher);
+        try {
+            metricsServer = MetricsServer.fromSystemProperties(metrics);
+        } catch (IOException e) {
+            System.out.println("Metrics endpoint is disabled: " + e.getMessage());
+        }
+        try {
+            shardCoordinator = ShardCoordinator.fromSystemProperties();
+            if (shardCoordinator != null) {
+                // Read the members' results before joining: once the ring includes this instance they stop
+                // sharing the services it takes over, and those results set when it first probes them.
+                syncClusterStatus();
+                shardCoordinator.start(ServiceMonitorApplication::rebalance);
+                syncClusterStatus();
+                long syncMillis = Long.getLong("sky.monitor.cluster.heartbeatMillis", FileSystemMembership.DEFAULT_HEARTBEAT_MILLIS);
+                probeEngine.scheduleWithFixedDelay(ServiceMonitorApplication::syncClusterStatus, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Running without a cluster: " + e.getMessage());
+            if (shardCoordinator != null) {
+                shardCoordinator.close();
+                shardCoordinator = null;
+            }
+        }
+        shardScheduler = new ShardScheduler(shardCoordinator, latestStatus, System::currentTimeMillis);
+        initializeLogging(registry);
+        if (shardCoordinator != null) {
+            rebalance();
+        }
         System.out.println("Sky-monitor application is active.");
     }
 
 
-    private static void stopMonitoring() {
+    private static synchronized void stopMonitoring() {
         if (!isMonitoringActive) {
             System.out.println("Monitoring is not active.");
             return;
         }
 
-        if (executor != null && !executor.isShutdown()) {
-            executor.shutdownNow();
+        if (shardCoordinator != null) {
+            // Leave first, so the other members take over while this instance shuts down.
+            shardCoordinator.close();
+            shardCoordinator = null;
+            shardScheduler = new ShardScheduler(null, latestStatus, System::currentTimeMillis);
+        }
+        if (probeEngine != null && !probeEngine.isShutdown()) {
+            probeEngine.shutdownNow();
+        }
+        scheduledTasks.clear();
+        if (metricsServer != null) {
+            metricsServer.close();
+            metricsServer = null;
+        }
+        metrics.clear();
+        if (probes != null) {
+            probes.close();
+            probes = null;
+        }
+        if (statusLogWriter != null) {
+            statusLogWriter.close();
+            statusLogWriter = null;
+        }
+        if (logArchiver != null) {
+            logArchiver.close();
+            logArchiver = null;
+        }
+        if (rotationState != null) {
+            rotationState.close();
+            rotationState = null;
+        }
+        probeResultSinks.clear();
+        textLogExporter = null;
+        transitionDetector = null;
+        if (alertDispatcher != null) {
+            alertDispatcher.close();
+            alertDispatcher = null;
+        }
+        columnarExporter = null;
+        if (probeStore != null) {
+            probeStore.close();
+            probeStore = null;
+        }
+        if (uptimeAggregator != null) {
+            uptimeAggregator.close();
+            uptimeAggregator = null;
         }
         isMonitoringActive = false;
         System.out.println("Monitoring stopped.");
     }
-    private static void listServices(List<Service> services) {
+    private static void listServices(List<Service> services, boolean refresh) {
+        if (refresh) {
+            refreshStatus(services);
+        }
         System.out.println("Listing all services:");
+        long now = System.currentTimeMillis();
         for (Service service : services) {
-            boolean isServerUp = checkServerStatus(service);
-            boolean isServiceUp = checkServiceStatus(service);
-            Date currentTime = new Date();
+            ProbeResult result = latestStatus.get(service.getid());
+            if (result == null) {
+                System.out.println("ID: " + service.getid() + ", Name: " + service.getServiceName() + ", not probed yet");
+                continue;
+            }
+            Date checkedAt = new Date(result.getTimestamp());
 
-            String serverStatus = isServerUp ? "UP" : "DOWN";
-            String serviceStatus = isServiceUp ? "UP" : "DOWN";
+            String serverStatus = result.isServerUp() ? "UP" : "DOWN";
+            String serviceStatus = result.isApplicationUp() ? "UP" : "DOWN";
 
             System.out.println("ID: " + service.getid() + ", Name: " + service.getServiceName() +
-                    ", Server Status: " + serverStatus + " (as of " + currentTime + ")" +
-                    ", Application Status: " + serviceStatus + " (as of " + currentTime + ")");
+                    ", Server Status: " + serverStatus + " (as of " + checkedAt + ")" +
+                    ", Application Status: " + serviceStatus + " (as of " + checkedAt + ")" +
+                    ", " + formatAge(now - result.getTimestamp()) + " ago");
         }
     }
 
-
-    private static List<Service> readServicesFromCSV(String csvFile) {
-        List<Service> services = new ArrayList<>();
-        Path pathToFile = Paths.get(csvFile);
-
-        try (BufferedReader br = Files.newBufferedReader(pathToFile)) {
-            String line = br.readLine();
-            while ((line = br.readLine()) != null) {
-                String[] attributes = line.split(",");
-                Service service = createService(attributes);
-                services.add(service);
-            }
-        } catch (IOException ioe) {
-            ioe.printStackTrace();
+    private static void refreshStatus(List<Service> services) {
+        long timeoutMillis = Long.getLong("sky.monitor.list.refreshTimeoutMillis", TimeUnit.SECONDS.toMillis(10));
+        List<CompletableFuture<ProbeResult>> refreshes = new ArrayList<>(services.size());
+        for (Service service : services) {
+            refreshes.add(probeEngine.submit(() -> probeService(service)).thenApply(result -> {
+                latestStatus.update(result);
+                return result;
+            }));
         }
-        return services;
-    }
-    private static List<Service> readServicesFromXML(String xmlFile) {
-        List<Service> services = new ArrayList<>();
         try {
-            JAXBContext context = JAXBContext.newInstance(ServiceList.class);
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            ServiceList serviceList = (ServiceList) unmarshaller.unmarshal(new File(xmlFile));
-            services = serviceList.getServices();
-        } catch (Exception e) {
+            CompletableFuture.allOf(refreshes.toArray(new CompletableFuture<?>[0])).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            long pending = refreshes.stream().filter(refresh -> !refresh.isDone()).count();
+            System.out.println(pending + " of " + refreshes.size() + " services did not answer within " + timeoutMillis
+                    + " ms; showing their last known status.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
             e.printStackTrace();
         }
-        return services;
     }
-    private static List<Service> readServicesFromJSON(String jsonFile) {
-        List<Service> services = new ArrayList<>();
-        ObjectMapper mapper = new ObjectMapper();
-        Path pathToFile = Paths.get(jsonFile);
 
-        try {
-            services = mapper.readValue(Files.newInputStream(pathToFile), new TypeReference<List<Service>>(){});
-        } catch (IOException e) {
-            e.printStackTrace();
+    private static String formatAge(long millis) {
+        long seconds = Math.max(0, TimeUnit.MILLISECONDS.toSeconds(millis));
+        if (seconds < 60) {
+            return seconds + "s";
         }
-
-        return services;
-    }
-    private static List<Service> readServicesFromINI(String iniFile) {
-        List<Service> services = new ArrayList<>();
-        Configurations configs = new Configurations();
-        try {
-            INIConfiguration config = configs.ini(new File(iniFile));
-            Set<String> sectionNames = config.getSections();
-            for (String section : sectionNames) {
-                Service service = new Service();
-                service.setId(config.getInt(section + ".id"));
-                service.setServiceName(config.getString(section + ".serviceName"));
-                service.setServiceHost(config.getString(section + ".serviceHost"));
-                service.setServicePort(config.getInt(section + ".servicePort"));
-                service.setServiceResourceURI(config.getString(section + ".serviceResourceURI"));
-                service.setServiceMethod(config.getString(section + ".serviceMethod"));
-                service.setExpectedTelnetResponse(config.getString(section + ".expectedTelnetResponse"));
-                service.setExpectedRequestResponse(config.getString(section + ".expectedRequestResponse"));
-                service.setMonitoringInterval(config.getInt(section + ".monitoringInterval"));
-                service.setMonitoringIntervalTimeUnit(config.getString(section + ".monitoringIntervalTimeUnit"));
-
-                service.setEnableFileLogging(config.getString(section + ".enableFileLogging"));
-                service.setFileLoggingInterval(config.getString(section + ".fileLoggingInterval"));
-                service.setEnableLogsArchiving(config.getString(section + ".enableLogsArchiving"));
-                service.setLogArchivingIntervals(config.getString(section + ".logArchivingIntervals"));
-
-                services.add(service);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (seconds < 3600) {
+            return (seconds / 60) + "m " + (seconds % 60) + "s";
         }
-        return services;
-    }
-
-
-    private static List<Service> readServicesFromYAML(String yamlFile) {
-        Yaml yaml = new Yaml(new Constructor(ServiceList.class));
-        List<Service> services = new ArrayList<>();
-        try (InputStream inputStream = new FileInputStream(new File(yamlFile))) {
-            ServiceList data = yaml.load(inputStream);
-            if (data != null) {
-                services = data.getServices();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        if (seconds < 86400) {
+            return (seconds / 3600) + "h " + (seconds % 3600 / 60) + "m";
         }
-        return services;
-    }
-    private static Service createService(String[] metadata) {
-        int id = Integer.parseInt(metadata[0]);
-        String serviceName = metadata[1];
-        String serviceHost = metadata[2];
-        int servicePort = Integer.parseInt(metadata[3]);
-        String serviceResourceURI = metadata[4];
-        String serviceMethod = metadata[5];
-        String expectedTelnetResponse = metadata[6];
-        String expectedRequestResponse = metadata[7];
-        int monitoringInterval = Integer.parseInt(metadata[8]);
-        String monitoringIntervalTimeUnit = metadata[9];
-
-
-        String enableFileLogging = metadata[10];
-        String fileLoggingInterval = metadata[11];
-        String enableLogsArchiving = metadata[12];
-        String logArchivingIntervals = metadata[13];
-
-        return new Service(id, serviceName, serviceHost, servicePort, serviceResourceURI, serviceMethod,
-                expectedTelnetResponse, expectedRequestResponse, monitoringInterval,
-                monitoringIntervalTimeUnit, enableFileLogging, fileLoggingInterval,
-                enableLogsArchiving, logArchivingIntervals);
+        return (seconds / 86400) + "d " + (seconds % 86400 / 3600) + "h";
     }
 
 
-
-    private static boolean checkServerStatus(Service service) {
-        try {
-            InetAddress addr = InetAddress.getByName(service.getServiceHost());
-            int port = service.getServicePort();
-            SocketAddress sockaddr = new InetSocketAddress(addr, port);
-            Socket sock = new Socket();
-            int timeoutMs = 2000;
-            sock.connect(sockaddr, timeoutMs);
-            sock.close();
-            return true;
-        } catch (IOException e) {
-            return false;
-        }
-    }
     private static void logServerStatus(Service service) {
-        boolean isServerUp = checkServerStatus(service);
+        boolean isServerUp = probes.getContext().checkServer(service.getServiceHost(), service.getServicePort()).join();
         String serverStatus = isServerUp ? "UP" : "DOWN";
         System.out.println(new Date() + " - Server hosting " + service.getServiceName() + " is " + serverStatus);
         if (!isServerUp) {
@@ -312,238 +472,283 @@ public class ServiceMonitorApplication {
         }
     }
 
-    private static boolean checkServiceStatus(Service service) {
-
-        boolean isServerUp = checkServerStatus(service);
-
-        if (isServerUp) {
-            try {
-                TrustManager[] trustAllCerts = new TrustManager[]{
-                        new X509TrustManager() {
-                            public java.security.cert.X509Certificate[] getAcceptedIssuers() {
-                                return null;
-                            }
-                            public void checkClientTrusted(java.security.cert.X509Certificate[] certs, String authType) {
-                            }
-                            public void checkServerTrusted(java.security.cert.X509Certificate[] certs, String authType) {
-                            }
-                        }
-                };
-
-                SSLContext sc = SSLContext.getInstance("SSL");
-                sc.init(null, trustAllCerts, new java.security.SecureRandom());
-                HttpsURLConnection.setDefaultSSLSocketFactory(sc.getSocketFactory());
-                HostnameVerifier allHostsValid = (hostname, session) -> true;
-                HttpsURLConnection.setDefaultHostnameVerifier(allHostsValid);
-
-                URL url = new URL("https://" + service.getServiceHost() + service.getServiceResourceURI());
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod(service.getServiceMethod());
-                conn.setConnectTimeout(15000);
-                conn.setReadTimeout(15000);
-
-                int status = conn.getResponseCode();
-                return (status >= 200 && status < 300);
-            } catch (Exception e) {
-                return false;
-            }
+    private static CompletableFuture<ProbeResult> probeService(Service service) {
+        ServiceRegistry registry = catalog.getRegistry();
+        int index = registry.indexOf(service.getid());
+        String type;
+        BodyMatcher matcher;
+        if (index >= 0 && registry.serviceAt(index) == service) {
+            type = registry.probeTypeAt(index);
+            matcher = registry.bodyMatcherAt(index);
         } else {
-            return false;
+            type = Probes.typeOf(service);
+            matcher = BodyMatcher.forExpectedText(Probes.BANNER.equals(type)
+                    ? service.getExpectedTelnetResponse() : service.getExpectedRequestResponse());
         }
+        Probe probe = probes.get(type);
+        if (probe == null) {
+            return CompletableFuture.completedFuture(new ProbeResult(service.getid(), System.currentTimeMillis(), false,
+                    ProbeResult.NO_HTTP_STATUS, ProbeTimings.NONE));
+        }
+        return probe.probe(service, matcher);
     }
+
     private static void logServiceStatus(Service service) {
-        boolean isServiceUp = checkServiceStatus(service);
-        String serviceStatus = isServiceUp ? "UP" : "DOWN";
-        System.out.println(new Date() + " " + service.getServiceName() + " - Service is " + serviceStatus);
+        ProbeResult result = probeService(service).join();
+        String serviceStatus = result.isApplicationUp() ? "UP" : "DOWN";
+        if (!result.isContentMatched()) {
+            serviceStatus += " (expected text not found)";
+        }
+        System.out.println(new Date() + " " + service.getServiceName() + " - Service is " + serviceStatus
+                + (result.getTimings() != ProbeTimings.NONE ? " (" + result.getTimings() + ")" : ""));
     }
-    private static Service findServiceById(List<Service> services, int id) {
-        for (Service service : services) {
-            if (service.getid() == id) {
-                return service;
-            }
+    private static void exportStoredResults(int id, int days) {
+        if (probeStore == null) {
+            System.out.println("The probe result store is disabled.");
+            return;
         }
-        return null;
+        long to = System.currentTimeMillis();
+        long from = to - TimeUnit.DAYS.toMillis(days);
+        long exported = probeStore.query(id, from, to, (serviceId, epochMillis, statusBits, httpCode, latencyMicros) -> {
+            System.out.println(StatusLogWriter.formatEntry(epochMillis, "server", (statusBits & ProbeStore.STATUS_SERVER_UP) != 0));
+            System.out.println(StatusLogWriter.formatEntry(epochMillis, "application", (statusBits & ProbeStore.STATUS_APPLICATION_UP) != 0));
+        });
+        System.out.println(exported + " stored results for service " + id + ".");
     }
 
-
-    private static void initializeLogging(List<Service> services) {
-        Path loggingDirectory = Paths.get("logging");
+    private static void exportColumnar() {
+        if (columnarExporter == null) {
+            System.out.println("The probe result store is disabled.");
+            return;
+        }
         try {
-            Files.createDirectories(loggingDirectory);
-            for (Service service : services) {
-                if ("Yes".equalsIgnoreCase(service.getEnableFileLogging())) {
-                    Path serviceDirectory = loggingDirectory.resolve(service.getServiceName().replaceAll("\\s+", "_"));
-                    Files.createDirectories(serviceDirectory);
-
-                    Path appStatusDir = serviceDirectory.resolve("application_status");
-                    Path serverStatusDir = serviceDirectory.resolve("server_status");
-                    Files.createDirectories(appStatusDir);
-                    Files.createDirectories(serverStatusDir);
-
-                    scheduleLogging(appStatusDir, serverStatusDir, service);
-                }
-            }
+            long exported = columnarExporter.exportNew();
+            System.out.println(exported + " stored results exported to " + System.getProperty("sky.monitor.export.dir", "export") + ".");
         } catch (IOException e) {
-            e.printStackTrace();
+            System.out.println("Columnar export failed: " + e.getMessage());
         }
     }
 
-    private static void scheduleLogging(Path appStatusDir, Path serverStatusDir, Service service) {
-        long fileCreationInterval = convertToInterval(service.getFileLoggingInterval());
-        long logEntryInterval = convertToIntervalInSeconds(service.getMonitoringInterval(), service.getMonitoringIntervalTimeUnit());
-
-        executor.scheduleAtFixedRate(() -> logStatus(appStatusDir, "application", checkServiceStatus(service), fileCreationInterval),
-                0, logEntryInterval, TimeUnit.SECONDS);
-        executor.scheduleAtFixedRate(() -> logStatus(serverStatusDir, "server", checkServerStatus(service), fileCreationInterval),
-                0, logEntryInterval, TimeUnit.SECONDS);
-    }
-
-
-
-
-    private static final Map<String, Long> lastLogFileCreationTimes = new HashMap<>();
-
-    private static final String LAST_LOG_TIME_DIR = "last_logging_time";
-
-    private static void writeLastLogTimestamp(String serviceName, String type, long timestamp) {
-        Path lastLogTimeDir = Paths.get(LAST_LOG_TIME_DIR);
+    private static void exportColumnarQuietly() {
+        ColumnarExporter exporter = columnarExporter;
+        if (exporter == null) {
+            return;
+        }
         try {
-            Files.createDirectories(lastLogTimeDir);
-            Path timestampFile = lastLogTimeDir.resolve(serviceName + "_" + type + ".timestamp");
-
-            try (BufferedWriter writer = Files.newBufferedWriter(timestampFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-                writer.write(String.valueOf(timestamp));
-            }
+            exporter.exportNew();
         } catch (IOException e) {
-            e.printStackTrace();
+            System.out.println("Columnar export failed: " + e.getMessage());
         }
     }
-    private static long readLastLogTimestamp(String serviceName, String type) {
-        Path timestampFile = Paths.get(LAST_LOG_TIME_DIR, serviceName + "_" + type + ".timestamp");
-        if (Files.exists(timestampFile)) {
-            try {
-                String timestampStr = new String(Files.readAllBytes(timestampFile));
-                return Long.parseLong(timestampStr);
-            } catch (IOException | NumberFormatException e) {
-                e.printStackTrace();
-            }
+
+    private static void printUptime(int id, String window) {
+        if (uptimeAggregator == null) {
+            System.out.println("Uptime rollups are disabled.");
+            return;
+        }
+        long windowMillis = parseWindowMillis(window);
+        if (windowMillis <= 0) {
+            System.out.println("Invalid window " + window + ", expected e.g. 30d, 12h or 45m.");
+            return;
         }
-        return System.currentTimeMillis();
+        long to = System.currentTimeMillis();
+        UptimeAggregator.WindowStats stats = uptimeAggregator.query(id, to - windowMillis, to);
+        if (stats == null || stats.getUp() + stats.getDown() == 0) {
+            System.out.println("No results for service " + id + " in the last " + window + ".");
+            return;
+        }
+        System.out.println(String.format("Service %d over the last %s: availability %.3f%% (%d up, %d down), latency p50 <= %s, p95 <= %s, p99 <= %s",
+                id, window, stats.getAvailability(), stats.getUp(), stats.getDown(),
+                formatLatency(stats.getLatencyPercentileMicros(50)), formatLatency(stats.getLatencyPercentileMicros(95)),
+                formatLatency(stats.getLatencyPercentileMicros(99))));
     }
-    private static void logStatus(Path directory, String type, boolean status, long fileCreationInterval) {
-        String serviceName = directory.getParent().getFileName().toString();
-        String key = serviceName + "_" + type;
-
-        long lastTimestamp = lastLogFileCreationTimes.getOrDefault(key, readLastLogTimestamp(serviceName, type));
-        long currentTime = System.currentTimeMillis();
 
-        if (currentTime - lastTimestamp >= fileCreationInterval) {
-            lastTimestamp = currentTime;
-            lastLogFileCreationTimes.put(key, lastTimestamp);
+    private static void printHistory(int id, String[] options) {
+        Service service = catalog.findById(id);
+        if (service == null) {
+            System.out.println("Service with ID " + id + " not found.");
+            return;
+        }
+        long fromKey = 0;
+        long toKey = Long.MAX_VALUE;
+        int status = LogHistory.STATUS_ANY;
+        String type = "application";
+        for (int i = 0; i < options.length; i += 2) {
+            String value = options[i + 1];
+            switch (options[i].toLowerCase()) {
+                case "--from":
+                    fromKey = parseHistoryTime(value);
+                    break;
+                case "--to":
+                    toKey = parseHistoryTime(value);
+                    break;
+                case "--status":
+                    status = "UP".equalsIgnoreCase(value) ? LogHistory.STATUS_UP
+                            : "DOWN".equalsIgnoreCase(value) ? LogHistory.STATUS_DOWN : -1;
+                    break;
+                case "--type":
+                    type = value.toLowerCase();
+                    break;
+                default:
+                    System.out.println("Unknown option " + options[i] + ".");
+                    return;
+            }
+        }
+        if (fromKey < 0 || toKey < 0 || status < 0 || !("application".equals(type) || "server".equals(type))) {
+            System.out.println("Times are yyyyMMdd_HHmmss, yyyyMMdd_HHmm, yyyyMMdd or a window such as 12h; status is UP or DOWN; type is application or server.");
+            return;
         }
-
-        writeLastLogTimestamp(serviceName, type, lastTimestamp);
-
-        String logFileTimestamp = new SimpleDateFormat("yyyyMMdd_HHmm").format(new Date(lastTimestamp));
-        Path logFile = directory.resolve(logFileTimestamp + "_" + type + ".log");
-        String logEntry = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()) + " - " + type.toUpperCase() + " is " + (status ? "UP" : "DOWN");
-
         try {
-            Files.write(logFile, Collections.singletonList(logEntry), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            long matched = logHistory.query(service.getServiceName(), type, fromKey, toKey, status,
+                    new BufferedOutputStream(System.out, 64 * 1024));
+            System.out.println(matched + " " + type + " log entries for service " + id + ".");
         } catch (IOException e) {
-            e.printStackTrace();
+            System.out.println("Unable to search the logs: " + e.getMessage());
         }
     }
 
-
-
-
-
-    private static long convertToIntervalInSeconds(long interval, String timeUnit) {
-        switch (timeUnit.toLowerCase()) {
-            case "minutes":
-                return TimeUnit.MINUTES.toSeconds(interval);
-            case "seconds":
-                return interval;
-            default:
-                return TimeUnit.MINUTES.toSeconds(10);
+    private static long parseHistoryTime(String value) {
+        long windowMillis = parseWindowMillis(value);
+        if (windowMillis > 0) {
+            return LogHistory.toKey(System.currentTimeMillis() - windowMillis);
         }
+        return LogHistory.parseKey(value);
+    }
+
+    private static String formatLatency(long micros) {
+        return micros < 0 ? "n/a" : TimeUnit.MICROSECONDS.toMillis(micros) + " ms";
     }
 
-    private static long convertToInterval(String interval) {
-        switch (interval.toLowerCase()) {
-            case "hourly":
-                return TimeUnit.HOURS.toMillis(1);
-            case "daily":
-                return TimeUnit.DAYS.toMillis(1);
+    private static long parseWindowMillis(String window) {
+        if (window.length() < 2) {
+            return -1;
+        }
+        long amount;
+        try {
+            amount = Long.parseLong(window.substring(0, window.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        switch (Character.toLowerCase(window.charAt(window.length() - 1))) {
+            case 'd':
+                return TimeUnit.DAYS.toMillis(amount);
+            case 'h':
+                return TimeUnit.HOURS.toMillis(amount);
+            case 'm':
+                return TimeUnit.MINUTES.toMillis(amount);
             default:
-                return TimeUnit.MINUTES.toMillis(10);
+                return -1;
         }
     }
 
-
-
-    private static void initializeArchiving(List<Service> services) {
-
-        File mainLogsDir = new File("logs");
-        if (!mainLogsDir.exists()) {
-            mainLogsDir.mkdirs();
+    private static void importUptimeHistory(List<Service> services) {
+        if (uptimeAggregator == null) {
+            System.out.println("Uptime rollups are disabled.");
+            return;
         }
+        try {
+            long imported = uptimeAggregator.importLogs(Paths.get("logging"), services);
+            System.out.println("Imported " + imported + " application log entries into the uptime rollups.");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-        for (Service service : services) {
-            if ("Yes".equalsIgnoreCase(service.getEnableLogsArchiving())) {
-
-                File logsDir = new File(mainLogsDir, service.getServiceName());
-                if (!logsDir.exists()) {
-                    logsDir.mkdirs();
+    private static void initializeLogging(ServiceRegistry registry) {
+        Path loggingDirectory = Paths.get("logging");
+        try {
+            Files.createDirectories(loggingDirectory);
+            textLogExporter = new TextLogExporter(loggingDirectory, statusLogWriter);
+            probeResultSinks.add(textLogExporter);
+            for (int i = 0; i < registry.size(); i++) {
+                if (ownsService(registry.idAt(i))) {
+                    scheduleService(registry, i);
                 }
-
-                long delay = calculateArchiveInterval(service.getLogArchivingIntervals());
-
-                executor.scheduleWithFixedDelay(() -> {
-                    archiveLogs(service.getServiceName(), logsDir);
-                }, delay, delay, TimeUnit.MILLISECONDS);
             }
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
-
-    private static void archiveLogs(String serviceName, File logsDir) {
-
-        if (logsDir.exists() && logsDir.isDirectory()) {
-            compressToZip(serviceName, logsDir);
+    private static void scheduleService(ServiceRegistry registry, int index) {
+        Service service = registry.serviceAt(index);
+        try {
+            textLogExporter.register(registry, index);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        Probe probe = probes.get(registry.probeTypeAt(index));
+        if (probe == null) {
+            // Validation rejects unknown types, so this only happens when a plugin disappeared since.
+            System.out.println("Skipping service " + service.getServiceName() + ": probeType '" + service.getProbeType() + "' is unknown.");
+            return;
         }
+        MonitorMetrics.ServiceMetrics serviceMetrics = metrics.register(service.getid(), service.getServiceName());
+        List<Runnable> cancellers = new ArrayList<>(2);
+        long intervalMillis = registry.monitoringIntervalMillisAt(index);
+        long initialDelayMillis = shardScheduler.firstProbeDelayMillis(service.getid(), intervalMillis,
+                isFixedSchedule() ? 0 : adaptiveSchedule.initialDelayMillis(service.getid(), intervalMillis));
+        cancellers.add(scheduleProbe(service, probe, intervalMillis, initialDelayMillis,
+                registry.bodyMatcherAt(index), serviceMetrics));
+        if (registry.isArchivingEnabledAt(index)) {
+            cancellers.add(scheduleArchiving(service, registry.archiveIntervalMillisAt(index)));
+        }
+        scheduledTasks.put(service.getid(), cancellers);
     }
 
-    private static void compressToZip(String serviceName, File directory) {
-        String zipFileName = serviceName + "_logs_" + System.currentTimeMillis() + ".zip";
-        File zipFile = new File(directory.getParent(), zipFileName);
-
-        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zipFile))) {
-            for (File file : directory.listFiles()) {
-                if (file.isFile()) {
-                    ZipEntry zipEntry = new ZipEntry(file.getName());
-                    zos.putNextEntry(zipEntry);
-                    byte[] bytes = Files.readAllBytes(file.toPath());
-                    zos.write(bytes, 0, bytes.length);
-                    zos.closeEntry();
-                    file.delete();
-                }
+    private static void cancelService(int id) {
+        List<Runnable> cancellers = scheduledTasks.remove(id);
+        if (cancellers != null) {
+            for (Runnable canceller : cancellers) {
+                canceller.run();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
+        TextLogExporter exporter = textLogExporter;
+        if (exporter != null) {
+            exporter.unregister(id);
+        }
+        metrics.unregister(id);
+    }
+
+    private static boolean isFixedSchedule() {
+        return "fixed".equalsIgnoreCase(System.getProperty("sky.monitor.schedule", "adaptive"));
     }
 
-    private static long calculateArchiveInterval(String interval) {
-        if ("Weekly".equalsIgnoreCase(interval)) {
-            return TimeUnit.DAYS.toMillis(7);
-        } else if ("Seconds".equalsIgnoreCase(interval)) {
-            return TimeUnit.SECONDS.toMillis(1);
+    private static Runnable scheduleProbe(Service service, Probe probe, long intervalMillis, long initialDelayMillis,
+                                          BodyMatcher matcher, MonitorMetrics.ServiceMetrics serviceMetrics) {
+        if (isFixedSchedule()) {
+            ScheduledFuture<?> future = probeEngine.scheduleAtFixedRate(() -> runScheduledProbe(service, probe, matcher, serviceMetrics),
+                    initialDelayMillis, intervalMillis, TimeUnit.MILLISECONDS);
+            return () -> future.cancel(false);
         }
+        ProbeEngine.ProbeTask task = probeEngine.scheduleAdaptive(intervalMillis, initialDelayMillis, adaptiveSchedule,
+                () -> runScheduledProbe(service, probe, matcher, serviceMetrics));
+        return task::cancel;
+    }
 
+    private static CompletableFuture<ProbeResult> runScheduledProbe(Service service, Probe probe, BodyMatcher matcher,
+                                                                    MonitorMetrics.ServiceMetrics serviceMetrics) {
+        return shardScheduler.runProbe(service.getid(), () -> {
+            long start = System.nanoTime();
+            // The probe completes on the event loop; the sinks may block on disk, so they run on a probe thread.
+            return probe.probe(service, matcher).thenApplyAsync(result -> {
+                serviceMetrics.record(System.nanoTime() - start, result);
+                publish(service, result);
+                return result;
+            }, probeEngine::execute);
+        });
+    }
 
-        return 0;
+    private static void publish(Service service, ProbeResult result) {
+        for (ProbeResultSink sink : probeResultSinks) {
+            sink.accept(service, result);
+        }
+    }
+
+    private static Runnable scheduleArchiving(Service service, long delay) {
+        ScheduledFuture<?> future = probeEngine.scheduleWithFixedDelay(() -> logArchiver.submit(service.getServiceName()),
+                delay, delay, TimeUnit.MILLISECONDS);
+        return () -> future.cancel(false);
     }
 
 
@@ -585,6 +790,8 @@ public class ServiceMonitorApplication {
         @XmlElement(name = "logArchivingIntervals")
         private String logArchivingIntervals;
 
+        @XmlElement(name = "probeType")
+        private String probeType;
 
         public Service() {
         }
@@ -593,6 +800,16 @@ public class ServiceMonitorApplication {
                        String serviceMethod, String expectedTelnetResponse, String expectedRequestResponse,
                        int monitoringInterval, String monitoringIntervalTimeUnit, String enableFileLogging,
                        String fileLoggingInterval, String enableLogsArchiving, String logArchivingIntervals) {
+            this(id, serviceName, serviceHost, servicePort, serviceResourceURI, serviceMethod, expectedTelnetResponse,
+                    expectedRequestResponse, monitoringInterval, monitoringIntervalTimeUnit, enableFileLogging,
+                    fileLoggingInterval, enableLogsArchiving, logArchivingIntervals, null);
+        }
+
+        public Service(int id, String serviceName, String serviceHost, int servicePort, String serviceResourceURI,
+                       String serviceMethod, String expectedTelnetResponse, String expectedRequestResponse,
+                       int monitoringInterval, String monitoringIntervalTimeUnit, String enableFileLogging,
+                       String fileLoggingInterval, String enableLogsArchiving, String logArchivingIntervals,
+                       String probeType) {
             this.id = id;
             this.serviceName = serviceName;
             this.serviceHost = serviceHost;
@@ -607,6 +824,7 @@ public class ServiceMonitorApplication {
             this.fileLoggingInterval = fileLoggingInterval;
             this.enableLogsArchiving = enableLogsArchiving;
             this.logArchivingIntervals = logArchivingIntervals;
+            this.probeType = probeType;
         }
 
         // Getters
@@ -722,22 +940,47 @@ public class ServiceMonitorApplication {
         public void setLogArchivingIntervals(String logArchivingIntervals) {
             this.logArchivingIntervals = logArchivingIntervals;
         }
-    }
-
-    @XmlRootElement(name = "services")
-    @XmlAccessorType(XmlAccessType.FIELD)
-    public static class ServiceList {
-        @XmlElement(name = "service")
-        private List<Service> services;
 
+        public String getProbeType() {
+            return probeType;
+        }
 
-        public List<Service> getServices() {
-            return services;
+        public void setProbeType(String probeType) {
+            this.probeType = probeType;
         }
 
-        public void setServices(List<Service> services) {
-            this.services = services;
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Service)) {
+                return false;
+            }
+            Service other = (Service) o;
+            return id == other.id
+                    && servicePort == other.servicePort
+                    && monitoringInterval == other.monitoringInterval
+                    && Objects.equals(serviceName, other.serviceName)
+                    && Objects.equals(serviceHost, other.serviceHost)
+                    && Objects.equals(serviceResourceURI, other.serviceResourceURI)
+                    && Objects.equals(serviceMethod, other.serviceMethod)
+                    && Objects.equals(expectedTelnetResponse, other.expectedTelnetResponse)
+                    && Objects.equals(expectedRequestResponse, other.expectedRequestResponse)
+                    && Objects.equals(monitoringIntervalTimeUnit, other.monitoringIntervalTimeUnit)
+                    && Objects.equals(enableFileLogging, other.enableFileLogging)
+                    && Objects.equals(fileLoggingInterval, other.fileLoggingInterval)
+                    && Objects.equals(enableLogsArchiving, other.enableLogsArchiving)
+                    && Objects.equals(logArchivingIntervals, other.logArchivingIntervals)
+                    && Objects.equals(probeType, other.probeType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, serviceName, serviceHost, servicePort, serviceResourceURI, serviceMethod,
+                    expectedTelnetResponse, expectedRequestResponse, monitoringInterval, monitoringIntervalTimeUnit,
+                    enableFileLogging, fileLoggingInterval, enableLogsArchiving, logArchivingIntervals, probeType);
         }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,195 @@
+package org.example;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable, compiled view of a service list. Ids are looked up in an open-addressing int map, and the
+ * values the schedulers and sinks need on every tick are resolved once at compile time and kept in
+ * parallel arrays instead of being reparsed from the configuration strings.
+ */
+public final class ServiceRegistry {
+    public static final ServiceRegistry EMPTY = compile(List.of());
+
+    private static final int FLAG_FILE_LOGGING = 1;
+    private static final int FLAG_ARCHIVING = 2;
+
+    private final ServiceMonitorApplication.Service[] services;
+    private final int[] ids;
+    private final long[] monitoringIntervalMillis;
+    private final long[] fileLoggingIntervalMillis;
+    private final long[] archiveIntervalMillis;
+    private final byte[] flags;
+    private final BodyMatcher[] bodyMatchers;
+    private final String[] probeTypes;
+    private final int[] slotIds;
+    private final int[] slotIndexes;
+    private final int mask;
+
+    private ServiceRegistry(ServiceMonitorApplication.Service[] services, int[] slotIds, int[] slotIndexes) {
+        int size = services.length;
+        this.services = services;
+        this.ids = new int[size];
+        this.monitoringIntervalMillis = new long[size];
+        this.fileLoggingIntervalMillis = new long[size];
+        this.archiveIntervalMillis = new long[size];
+        this.flags = new byte[size];
+        this.bodyMatchers = new BodyMatcher[size];
+        this.probeTypes = new String[size];
+        Map<String, BodyMatcher> sharedMatchers = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            ServiceMonitorApplication.Service service = services[i];
+            ids[i] = service.getid();
+            monitoringIntervalMillis[i] = monitoringIntervalMillis(service.getMonitoringInterval(), service.getMonitoringIntervalTimeUnit());
+            fileLoggingIntervalMillis[i] = fileLoggingIntervalMillis(service.getFileLoggingInterval());
+            archiveIntervalMillis[i] = LogArchiver.calculateArchiveInterval(service.getLogArchivingIntervals());
+            flags[i] = (byte) (("Yes".equalsIgnoreCase(service.getEnableFileLogging()) ? FLAG_FILE_LOGGING : 0)
+                    | ("Yes".equalsIgnoreCase(service.getEnableLogsArchiving()) ? FLAG_ARCHIVING : 0));
+            probeTypes[i] = Probes.typeOf(service);
+            // A banner is matched against what the server sends first, which is what expectedTelnetResponse describes.
+            String expected = Probes.BANNER.equals(probeTypes[i])
+                    ? service.getExpectedTelnetResponse() : service.getExpectedRequestResponse();
+            if (expected != null && !expected.isBlank()) {
+                bodyMatchers[i] = sharedMatchers.computeIfAbsent(expected, BodyMatcher::forExpectedText);
+            }
+        }
+        this.slotIds = slotIds;
+        this.slotIndexes = slotIndexes;
+        this.mask = slotIds.length - 1;
+    }
+
+    /**
+     * Compiles the services in their given order. When an id occurs more than once the last entry
+     * replaces the earlier one in place.
+     */
+    public static ServiceRegistry compile(List<ServiceMonitorApplication.Service> services) {
+        // At most half full, so probe chains stay short.
+        int capacity = Integer.highestOneBit(Math.max(1, services.size()) * 2 - 1) * 2;
+        int mask = capacity - 1;
+        int[] slotIds = new int[capacity];
+        int[] slotIndexes = new int[capacity];
+        Arrays.fill(slotIndexes, -1);
+        ServiceMonitorApplication.Service[] unique = new ServiceMonitorApplication.Service[services.size()];
+        int size = 0;
+        for (ServiceMonitorApplication.Service service : services) {
+            int slot = slot(slotIds, slotIndexes, mask, service.getid());
+            if (slotIndexes[slot] >= 0) {
+                unique[slotIndexes[slot]] = service;
+            } else {
+                slotIds[slot] = service.getid();
+                slotIndexes[slot] = size;
+                unique[size++] = service;
+            }
+        }
+        return new ServiceRegistry(Arrays.copyOf(unique, size), slotIds, slotIndexes);
+    }
+
+    private static int slot(int[] slotIds, int[] slotIndexes, int mask, int id) {
+        int h = id * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (slotIndexes[slot] >= 0 && slotIds[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    public int size() {
+        return services.length;
+    }
+
+    /**
+     * Returns the position of the service with this id, or -1 when there is none.
+     */
+    public int indexOf(int id) {
+        return slotIndexes[slot(slotIds, slotIndexes, mask, id)];
+    }
+
+    public ServiceMonitorApplication.Service get(int id) {
+        int index = indexOf(id);
+        return index < 0 ? null : services[index];
+    }
+
+    public ServiceMonitorApplication.Service serviceAt(int index) {
+        return services[index];
+    }
+
+    public int idAt(int index) {
+        return ids[index];
+    }
+
+    public long monitoringIntervalMillisAt(int index) {
+        return monitoringIntervalMillis[index];
+    }
+
+    public long fileLoggingIntervalMillisAt(int index) {
+        return fileLoggingIntervalMillis[index];
+    }
+
+    public long archiveIntervalMillisAt(int index) {
+        return archiveIntervalMillis[index];
+    }
+
+    public boolean isFileLoggingEnabledAt(int index) {
+        return (flags[index] & FLAG_FILE_LOGGING) != 0;
+    }
+
+    public boolean isArchivingEnabledAt(int index) {
+        return (flags[index] & FLAG_ARCHIVING) != 0;
+    }
+
+    /**
+     * Matcher for the text the service's probe expects, or null when it has none.
+     */
+    public BodyMatcher bodyMatcherAt(int index) {
+        return bodyMatchers[index];
+    }
+
+    /**
+     * The service's probeType, upper case and never blank.
+     */
+    public String probeTypeAt(int index) {
+        return probeTypes[index];
+    }
+
+    public List<ServiceMonitorApplication.Service> asList() {
+        return new AbstractList<>() {
+            @Override
+            public ServiceMonitorApplication.Service get(int index) {
+                return services[index];
+            }
+
+            @Override
+            public int size() {
+                return services.length;
+            }
+        };
+    }
+
+    static long monitoringIntervalMillis(int interval, String timeUnit) {
+        if (timeUnit != null) {
+            switch (timeUnit.toLowerCase()) {
+                case "minutes":
+                    return TimeUnit.MINUTES.toMillis(interval);
+                case "seconds":
+                    return TimeUnit.SECONDS.toMillis(interval);
+            }
+        }
+        return TimeUnit.MINUTES.toMillis(10);
+    }
+
+    static long fileLoggingIntervalMillis(String interval) {
+        if (interval != null) {
+            switch (interval.toLowerCase()) {
+                case "hourly":
+                    return TimeUnit.HOURS.toMillis(1);
+                case "daily":
+                    return TimeUnit.DAYS.toMillis(1);
+            }
+        }
+        return TimeUnit.MINUTES.toMillis(10);
+    }
+}
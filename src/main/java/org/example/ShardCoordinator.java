@@ -0,0 +1,91 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Splits the catalog between the instances of a cluster. Ownership of a service id follows a consistent
+ * hash ring over the live members; the ring is rebuilt the first time it is needed after the membership
+ * changed.
+ */
+public class ShardCoordinator implements Closeable {
+    private final ClusterMembership membership;
+    private final int virtualNodes;
+    private volatile RingView view;
+
+    public ShardCoordinator(ClusterMembership membership, int virtualNodes) {
+        this.membership = membership;
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * Builds the coordinator selected by sky.monitor.cluster, or returns null when the instance runs alone.
+     */
+    public static ShardCoordinator fromSystemProperties() {
+        String backend = System.getProperty("sky.monitor.cluster", "none");
+        int virtualNodes = Integer.getInteger("sky.monitor.cluster.virtualNodes", ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        switch (backend.toLowerCase()) {
+            case "none":
+                return null;
+            case "file":
+                return new ShardCoordinator(FileSystemMembership.fromSystemProperties(), virtualNodes);
+            default:
+                throw new IllegalArgumentException("Unknown cluster backend: " + backend);
+        }
+    }
+
+    /**
+     * Joins the cluster. The listener runs after every membership change, by which time {@link #owns(int)}
+     * already answers from the new ring.
+     */
+    public void start(Runnable onRebalance) throws IOException {
+        membership.join(members -> onRebalance.run());
+    }
+
+    public boolean owns(int serviceId) {
+        return membership.getLocalNodeId().equals(ring().ownerOf(serviceId));
+    }
+
+    public int getMemberCount() {
+        return ring().getMemberCount();
+    }
+
+    private ConsistentHashRing ring() {
+        Set<String> members = membership.getMembers();
+        RingView current = view;
+        if (current == null || current.members != members) {
+            current = new RingView(members, ConsistentHashRing.of(members, virtualNodes));
+            view = current;
+        }
+        return current.ring;
+    }
+
+    public String getLocalNodeId() {
+        return membership.getLocalNodeId();
+    }
+
+    public void publishStatus(Collection<ProbeResult> results) throws IOException {
+        membership.publishStatus(results);
+    }
+
+    public Collection<ProbeResult> readPeerStatus() throws IOException {
+        return membership.readPeerStatus();
+    }
+
+    @Override
+    public void close() {
+        membership.close();
+    }
+
+    private static class RingView {
+        private final Set<String> members;
+        private final ConsistentHashRing ring;
+
+        RingView(Set<String> members, ConsistentHashRing ring) {
+            this.members = members;
+            this.ring = ring;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.example;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * The scheduling rules of a sharded instance: which services it probes, when it first probes a service
+ * taken over from another member, and which scheduled probes it skips because the service has moved on.
+ * Without a coordinator every service is owned and nothing is handed over.
+ */
+public class ShardScheduler {
+    private final ShardCoordinator coordinator;
+    private final LatestStatusCache latestStatus;
+    private final LongSupplier clock;
+
+    /**
+     * @param coordinator  the cluster this instance belongs to, or null when it runs alone
+     * @param latestStatus the latest results, including those shared by the other members
+     * @param clock        the current time in epoch milliseconds
+     */
+    public ShardScheduler(ShardCoordinator coordinator, LatestStatusCache latestStatus, LongSupplier clock) {
+        this.coordinator = coordinator;
+        this.latestStatus = latestStatus;
+        this.clock = clock;
+    }
+
+    public boolean owns(int serviceId) {
+        return coordinator == null || coordinator.owns(serviceId);
+    }
+
+    /**
+     * Delay before the first probe of a service. A service taken over from another member continues one
+     * interval after that member's last result instead of being probed again straight away; any other
+     * service starts after the given default.
+     */
+    public long firstProbeDelayMillis(int serviceId, long intervalMillis, long defaultDelayMillis) {
+        if (coordinator != null) {
+            ProbeResult last = latestStatus.get(serviceId);
+            if (last != null) {
+                return Math.max(0, last.getTimestamp() + intervalMillis - clock.getAsLong());
+            }
+        }
+        return defaultDelayMillis;
+    }
+
+    /**
+     * Brings the scheduled services in line with the ring: services this instance gained are scheduled,
+     * services it lost are cancelled. Returns how many services it owns.
+     */
+    public int rebalance(ServiceRegistry registry, Tasks tasks) {
+        int owned = 0;
+        for (int i = 0; i < registry.size(); i++) {
+            int id = registry.idAt(i);
+            boolean scheduled = tasks.isScheduled(id);
+            if (owns(id)) {
+                owned++;
+                if (!scheduled) {
+                    tasks.schedule(i);
+                }
+            } else if (scheduled) {
+                tasks.cancel(id);
+            }
+        }
+        return owned;
+    }
+
+    /**
+     * Runs a scheduled probe, unless it fired just before its service moved to another member: that
+     * probe is left to the new owner and completes with null.
+     */
+    public CompletableFuture<ProbeResult> runProbe(int serviceId, Supplier<CompletableFuture<ProbeResult>> probe) {
+        if (!owns(serviceId)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return probe.get();
+    }
+
+    /**
+     * The probes an instance has scheduled, keyed by service id.
+     */
+    public interface Tasks {
+        boolean isScheduled(int serviceId);
+
+        /**
+         * Schedules the service at the given registry index.
+         */
+        void schedule(int index);
+
+        void cancel(int serviceId);
+    }
+}
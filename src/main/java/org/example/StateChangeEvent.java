@@ -0,0 +1,79 @@
+package org.example;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.List;
+
+/**
+ * A confirmed change of a service's application status, as emitted by {@link TransitionDetector}.
+ */
+public class StateChangeEvent {
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    private final int serviceId;
+    private final String serviceName;
+    private final String previousStatus;
+    private final String status;
+    private final long timestamp;
+    private final boolean serverUp;
+    private final int httpStatus;
+    private final int consecutiveResults;
+
+    public StateChangeEvent(int serviceId, String serviceName, String previousStatus, String status, long timestamp,
+                            boolean serverUp, int httpStatus, int consecutiveResults) {
+        this.serviceId = serviceId;
+        this.serviceName = serviceName;
+        this.previousStatus = previousStatus;
+        this.status = status;
+        this.timestamp = timestamp;
+        this.serverUp = serverUp;
+        this.httpStatus = httpStatus;
+        this.consecutiveResults = consecutiveResults;
+    }
+
+    public int getServiceId() {
+        return serviceId;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public String getPreviousStatus() {
+        return previousStatus;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public boolean isServerUp() {
+        return serverUp;
+    }
+
+    public int getHttpStatus() {
+        return httpStatus;
+    }
+
+    public int getConsecutiveResults() {
+        return consecutiveResults;
+    }
+
+    public String toJson() throws JsonProcessingException {
+        return JSON_MAPPER.writeValueAsString(this);
+    }
+
+    public static byte[] toJson(List<StateChangeEvent> events) throws JsonProcessingException {
+        return JSON_MAPPER.writeValueAsBytes(events);
+    }
+
+    @Override
+    public String toString() {
+        return serviceName + " (" + serviceId + ") is " + status + ", was " + previousStatus;
+    }
+}
@@ -0,0 +1,261 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single writer stage for the status logs. Probe threads hand entries over through a bounded queue; the
+ * writer keeps one open channel per active log file, appends entries in batches and rotates files when
+ * the service's file logging interval elapses. A log that has had no entry for a whole interval, because
+ * its service was removed, renamed or stopped logging to files, is closed and its rotation retired, so the
+ * archiver can take its last file.
+ */
+public class StatusLogWriter implements Closeable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 65536;
+    private static final int MAX_BATCH = 4096;
+    private static final long IDLE_CHECK_MILLIS = 1000;
+    private static final DateTimeFormatter FILE_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmm").withZone(ZoneId.systemDefault());
+    private static final DateTimeFormatter ENTRY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss").withZone(ZoneId.systemDefault());
+
+    private final BlockingQueue<LogEntry> queue;
+    private final boolean fsync;
+    private final RotationState rotationState;
+    private final Map<String, LogStream> streams = new HashMap<>();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    private final LatencyHistogram batchWriteLatency = new LatencyHistogram();
+    private final LongAdder entriesWritten = new LongAdder();
+
+    public StatusLogWriter(RotationState rotationState, int queueCapacity, boolean fsync) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.fsync = fsync;
+        this.rotationState = rotationState;
+        this.writerThread = new Thread(this::runLoop, "status-log-writer");
+        this.writerThread.start();
+    }
+
+    public static StatusLogWriter fromSystemProperties(RotationState rotationState) {
+        int queueCapacity = Integer.getInteger("sky.monitor.log.queueCapacity", DEFAULT_QUEUE_CAPACITY);
+        boolean fsync = Boolean.parseBoolean(System.getProperty("sky.monitor.log.fsync", "false"));
+        return new StatusLogWriter(rotationState, queueCapacity, fsync);
+    }
+
+    public void submit(Path directory, String type, boolean status, long fileCreationInterval, long timestamp) {
+        if (!running) {
+            return;
+        }
+        try {
+            queue.put(new LogEntry(directory, type, status, fileCreationInterval, timestamp));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runLoop() {
+        List<LogEntry> batch = new ArrayList<>(MAX_BATCH);
+        Set<LogStream> dirty = new HashSet<>();
+        long nextIdleCheck = System.currentTimeMillis() + IDLE_CHECK_MILLIS;
+        while (running || !queue.isEmpty()) {
+            try {
+                long now = System.currentTimeMillis();
+                if (now >= nextIdleCheck) {
+                    closeIdleStreams(now);
+                    nextIdleCheck = now + IDLE_CHECK_MILLIS;
+                }
+                LogEntry first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                long start = System.nanoTime();
+                for (LogEntry entry : batch) {
+                    append(entry, dirty);
+                }
+                flush(dirty);
+                batchWriteLatency.recordNanos(System.nanoTime() - start);
+                entriesWritten.add(batch.size());
+            } catch (InterruptedException e) {
+                running = false;
+            } finally {
+                batch.clear();
+                dirty.clear();
+            }
+        }
+        closeStreams();
+    }
+
+    private void append(LogEntry entry, Set<LogStream> dirty) {
+        String key = entry.directory.toString() + "|" + entry.type;
+        LogStream stream = streams.get(key);
+        if (stream == null) {
+            String serviceName = entry.directory.getParent().getFileName().toString();
+            stream = new LogStream(entry.directory, entry.type, serviceName + "_" + entry.type);
+            streams.put(key, stream);
+        }
+        long rotationStart = rotationState.resolve(stream.rotationKey, entry.timestamp, entry.fileCreationInterval);
+        stream.rotationStart = rotationStart;
+        stream.lastTimestamp = Math.max(stream.lastTimestamp, entry.timestamp);
+        stream.fileCreationInterval = entry.fileCreationInterval;
+        try {
+            stream.ensureOpen(rotationStart);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        stream.pending.append(formatEntry(entry.timestamp, entry.type, entry.status)).append(System.lineSeparator());
+        dirty.add(stream);
+    }
+
+    private void flush(Set<LogStream> dirty) {
+        for (LogStream stream : dirty) {
+            try {
+                stream.writePending();
+                if (fsync && stream.channel != null) {
+                    stream.channel.force(false);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                stream.closeQuietly();
+            }
+        }
+    }
+
+    /**
+     * The next entry of a stream idle for a whole interval would start a new file anyway, so its current
+     * file is finished.
+     */
+    private void closeIdleStreams(long now) {
+        Iterator<LogStream> iterator = streams.values().iterator();
+        while (iterator.hasNext()) {
+            LogStream stream = iterator.next();
+            if (now - stream.lastTimestamp >= stream.fileCreationInterval) {
+                iterator.remove();
+                stream.closeQuietly();
+                rotationState.retire(stream.rotationKey, stream.rotationStart);
+            }
+        }
+    }
+
+    private void closeStreams() {
+        for (LogStream stream : streams.values()) {
+            stream.closeQuietly();
+        }
+        streams.clear();
+    }
+
+    public static String formatEntry(long timestamp, String type, boolean status) {
+        return ENTRY_FORMAT.format(Instant.ofEpochMilli(timestamp)) + " - " + type.toUpperCase() + " is " + (status ? "UP" : "DOWN");
+    }
+
+    public static String logFileName(long rotationStart, String type) {
+        return FILE_NAME_FORMAT.format(Instant.ofEpochMilli(rotationStart)) + "_" + type + ".log";
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public LatencyHistogram getBatchWriteLatency() {
+        return batchWriteLatency;
+    }
+
+    public long getEntriesWritten() {
+        return entriesWritten.sum();
+    }
+
+    public long getRotationCheckpointFailures() {
+        return rotationState.getCheckpointFailures();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class LogEntry {
+        private final Path directory;
+        private final String type;
+        private final boolean status;
+        private final long fileCreationInterval;
+        private final long timestamp;
+
+        LogEntry(Path directory, String type, boolean status, long fileCreationInterval, long timestamp) {
+            this.directory = directory;
+            this.type = type;
+            this.status = status;
+            this.fileCreationInterval = fileCreationInterval;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static class LogStream {
+        private final Path directory;
+        private final String type;
+        private final String rotationKey;
+        private final StringBuilder pending = new StringBuilder();
+        private Path currentFile;
+        private FileChannel channel;
+        private long rotationStart;
+        private long lastTimestamp;
+        private long fileCreationInterval;
+
+        LogStream(Path directory, String type, String rotationKey) {
+            this.directory = directory;
+            this.type = type;
+            this.rotationKey = rotationKey;
+        }
+
+        void ensureOpen(long rotationStart) throws IOException {
+            Path logFile = directory.resolve(logFileName(rotationStart, type));
+            if (channel != null && channel.isOpen() && logFile.equals(currentFile)) {
+                return;
+            }
+            // Entries batched for the previous file must land there before it is rotated out.
+            writePending();
+            closeQuietly();
+            channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            currentFile = logFile;
+        }
+
+        void writePending() throws IOException {
+            if (pending.length() == 0 || channel == null) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(pending.toString().getBytes(StandardCharsets.UTF_8));
+            pending.setLength(0);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        void closeQuietly() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                channel = null;
+            }
+        }
+    }
+}
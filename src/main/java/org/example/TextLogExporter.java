@@ -0,0 +1,62 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes probe results in the original text format (logging/&lt;Service_Name&gt;/*_status/*.log) for the
+ * services that have enableFileLogging set.
+ */
+public class TextLogExporter implements ProbeResultSink {
+    private final Path loggingDirectory;
+    private final StatusLogWriter writer;
+    private final Map<Integer, Target> targets = new ConcurrentHashMap<>();
+
+    public TextLogExporter(Path loggingDirectory, StatusLogWriter writer) {
+        this.loggingDirectory = loggingDirectory;
+        this.writer = writer;
+    }
+
+    public void register(ServiceRegistry registry, int index) throws IOException {
+        ServiceMonitorApplication.Service service = registry.serviceAt(index);
+        if (!registry.isFileLoggingEnabledAt(index)) {
+            targets.remove(service.getid());
+            return;
+        }
+        Path serviceDirectory = loggingDirectory.resolve(service.getServiceName().replaceAll("\\s+", "_"));
+        Path appStatusDir = serviceDirectory.resolve("application_status");
+        Path serverStatusDir = serviceDirectory.resolve("server_status");
+        Files.createDirectories(appStatusDir);
+        Files.createDirectories(serverStatusDir);
+        targets.put(service.getid(), new Target(appStatusDir, serverStatusDir, registry.fileLoggingIntervalMillisAt(index)));
+    }
+
+    public void unregister(int serviceId) {
+        targets.remove(serviceId);
+    }
+
+    @Override
+    public void accept(ServiceMonitorApplication.Service service, ProbeResult result) {
+        Target target = targets.get(service.getid());
+        if (target == null) {
+            return;
+        }
+        writer.submit(target.serverStatusDir, "server", result.isServerUp(), target.fileCreationInterval, result.getTimestamp());
+        writer.submit(target.appStatusDir, "application", result.isApplicationUp(), target.fileCreationInterval, result.getTimestamp());
+    }
+
+    private static class Target {
+        final Path appStatusDir;
+        final Path serverStatusDir;
+        final long fileCreationInterval;
+
+        Target(Path appStatusDir, Path serverStatusDir, long fileCreationInterval) {
+            this.appStatusDir = appStatusDir;
+            this.serverStatusDir = serverStatusDir;
+            this.fileCreationInterval = fileCreationInterval;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.example;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Certificate expiry check. The probe completes a TLS handshake, sends nothing else, and counts the
+ * service as UP while every certificate the server presents stays valid for at least the configured
+ * number of days. The chain is not verified: an untrusted certificate that is about to expire is still
+ * worth an alert. Sessions are never resumed, so a renewed or replaced certificate is seen on the next check.
+ */
+class TlsCertificateProbe implements Probe {
+    public static final int DEFAULT_MIN_VALID_DAYS = 14;
+
+    private final ProbeContext context;
+    private final long minValidMillis;
+
+    TlsCertificateProbe(ProbeContext context, int minValidDays) {
+        this.context = context;
+        this.minValidMillis = TimeUnit.DAYS.toMillis(minValidDays);
+    }
+
+    @Override
+    public CompletableFuture<ProbeResult> probe(ServiceMonitorApplication.Service service, BodyMatcher matcher) {
+        long timestamp = System.currentTimeMillis();
+        InetSocketAddress address;
+        try {
+            address = context.resolve(service.getServiceHost(), service.getServicePort());
+        } catch (UnknownHostException e) {
+            return CompletableFuture.completedFuture(result(service, timestamp, false, false, ProbeTimings.NONE));
+        }
+        return context.checkServer(address).thenCompose(up -> {
+            if (!up) {
+                return CompletableFuture.completedFuture(result(service, timestamp, false, false, ProbeTimings.NONE));
+            }
+            Handshake handshake = new Handshake(service, address, timestamp);
+            context.getEventLoop().open(handshake);
+            return handshake.future;
+        });
+    }
+
+    private static ProbeResult result(ServiceMonitorApplication.Service service, long timestamp, boolean serverUp,
+                                      boolean valid, ProbeTimings timings) {
+        return new ProbeResult(service.getid(), timestamp, serverUp, valid, ProbeResult.NO_HTTP_STATUS, timings, true);
+    }
+
+    /**
+     * The earliest expiry of the presented certificates, or 0 when there are none.
+     */
+    static long earliestExpiry(Certificate[] chain) {
+        long earliest = 0;
+        for (Certificate certificate : chain) {
+            if (certificate instanceof X509Certificate) {
+                long notAfter = ((X509Certificate) certificate).getNotAfter().getTime();
+                earliest = earliest == 0 ? notAfter : Math.min(earliest, notAfter);
+            }
+        }
+        return earliest;
+    }
+
+    private final class Handshake extends ProbeEventLoop.Handler {
+        private final ServiceMonitorApplication.Service service;
+        private final InetSocketAddress address;
+        private final long timestamp;
+        private final CompletableFuture<ProbeResult> future = new CompletableFuture<>();
+        private SocketChannel channel;
+        private TlsChannel tls;
+        private long startNanos;
+        private long connectNanos;
+
+        Handshake(ServiceMonitorApplication.Service service, InetSocketAddress address, long timestamp) {
+            this.service = service;
+            this.address = address;
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        protected void start() throws IOException {
+            startNanos = System.nanoTime();
+            channel = SocketChannel.open();
+            register(channel, 0);
+            deadline(context.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            if (channel.connect(address)) {
+                connected();
+            } else {
+                interestOps(SelectionKey.OP_CONNECT);
+            }
+        }
+
+        @Override
+        protected void connectable() throws IOException {
+            if (channel.finishConnect()) {
+                connected();
+            }
+        }
+
+        private void connected() throws IOException {
+            connectNanos = System.nanoTime() - startNanos;
+            SSLEngine engine = context.getCertificateSslContext().createSSLEngine(service.getServiceHost(), address.getPort());
+            engine.setUseClientMode(true);
+            tls = new TlsChannel(channel, engine);
+            handshake();
+        }
+
+        @Override
+        protected void readable() throws IOException {
+            handshake();
+        }
+
+        @Override
+        protected void writable() throws IOException {
+            handshake();
+        }
+
+        private void handshake() throws IOException {
+            if (!tls.handshake()) {
+                interestOps(tls.wantsWrite() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+                return;
+            }
+            long totalNanos = System.nanoTime() - startNanos;
+            SSLSession session = tls.getSession();
+            long expiry;
+            try {
+                expiry = earliestExpiry(session.getPeerCertificates());
+            } catch (SSLPeerUnverifiedException e) {
+                expiry = 0;
+            }
+            session.invalidate();
+            tls.closeOutbound();
+            close();
+            ProbeTimings timings = new ProbeTimings(connectNanos, totalNanos - connectNanos, totalNanos, totalNanos, false, false);
+            future.complete(result(service, timestamp, true, expiry - System.currentTimeMillis() >= minValidMillis, timings));
+        }
+
+        @Override
+        protected void failed(Exception cause) {
+            future.complete(result(service, timestamp, true, false, ProbeTimings.NONE));
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package org.example;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * TLS on a non-blocking socket channel with an SSLEngine, for handlers on the {@link ProbeEventLoop}.
+ * Every method does as much as the socket allows and returns instead of waiting; the caller registers for
+ * {@link #wantsWrite() write} or read readiness and calls again. Delegated handshake tasks run inline on
+ * the calling thread.
+ */
+final class TlsChannel {
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final SocketChannel channel;
+    private final SSLEngine engine;
+    // netIn and appIn are kept in write mode, netOut in read mode holding the bytes still to be sent.
+    private ByteBuffer netIn;
+    private ByteBuffer netOut;
+    private ByteBuffer appIn;
+
+    TlsChannel(SocketChannel channel, SSLEngine engine) throws SSLException {
+        this.channel = channel;
+        this.engine = engine;
+        allocate();
+        engine.beginHandshake();
+    }
+
+    SSLSession getSession() {
+        return engine.getSession();
+    }
+
+    /**
+     * Drives the handshake as far as the socket allows. Returns true once it is complete and its last
+     * bytes are sent.
+     */
+    boolean handshake() throws IOException {
+        while (true) {
+            if (!flush()) {
+                return false;
+            }
+            switch (engine.getHandshakeStatus()) {
+                case NEED_WRAP:
+                    wrap(EMPTY);
+                    break;
+                case NEED_UNWRAP:
+                case NEED_UNWRAP_AGAIN:
+                    if (!unwrap()) {
+                        return false;
+                    }
+                    break;
+                case NEED_TASK:
+                    runDelegatedTasks();
+                    break;
+                default:
+                    return true;
+            }
+        }
+    }
+
+    /**
+     * Encrypts and sends as much of src as the socket takes. Returns true when src and everything
+     * buffered before it have been sent.
+     */
+    boolean write(ByteBuffer src) throws IOException {
+        while (true) {
+            if (!flush()) {
+                return false;
+            }
+            if (!src.hasRemaining()) {
+                return true;
+            }
+            if (!wrap(src)) {
+                // Only a peer asking for a new handshake mid-request stops wrap from making progress.
+                throw new SSLException("TLS renegotiation is not supported");
+            }
+        }
+    }
+
+    /**
+     * Decrypts into dst what has arrived. Returns the number of bytes copied, 0 when nothing is available
+     * yet and -1 once the peer has closed the connection.
+     */
+    int read(ByteBuffer dst) throws IOException {
+        while (true) {
+            if (appIn.position() > 0) {
+                appIn.flip();
+                int count = Math.min(appIn.remaining(), dst.remaining());
+                ByteBuffer slice = appIn.duplicate();
+                slice.limit(slice.position() + count);
+                dst.put(slice);
+                appIn.position(appIn.position() + count);
+                appIn.compact();
+                return count;
+            }
+            if (engine.isInboundDone()) {
+                return -1;
+            }
+            if (!unwrap()) {
+                return engine.isInboundDone() ? -1 : 0;
+            }
+            // Post-handshake messages such as session tickets may ask for a reply or a task.
+            SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+            if (status == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                runDelegatedTasks();
+            } else if (status == SSLEngineResult.HandshakeStatus.NEED_WRAP && !netOut.hasRemaining()) {
+                wrap(EMPTY);
+                flush();
+            }
+        }
+    }
+
+    boolean wantsWrite() {
+        return netOut.hasRemaining();
+    }
+
+    boolean flush() throws IOException {
+        while (netOut.hasRemaining()) {
+            if (channel.write(netOut) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drops the buffers of an idle connection; they are allocated again on the next read or write. Returns
+     * false, and keeps them, when they still hold data.
+     */
+    boolean release() {
+        if (netIn.position() > 0 || appIn.position() > 0 || netOut.hasRemaining()) {
+            return false;
+        }
+        netIn = null;
+        appIn = null;
+        netOut = null;
+        return true;
+    }
+
+    void allocate() {
+        if (netIn == null) {
+            SSLSession session = engine.getSession();
+            netIn = ByteBuffer.allocate(session.getPacketBufferSize());
+            appIn = ByteBuffer.allocate(session.getApplicationBufferSize());
+            netOut = ByteBuffer.allocate(session.getPacketBufferSize());
+            netOut.flip();
+        }
+    }
+
+    /**
+     * Sends close_notify if the socket takes it right away. The caller closes the channel.
+     */
+    void closeOutbound() {
+        try {
+            engine.closeOutbound();
+            if (netOut != null && flush()) {
+                wrap(EMPTY);
+                flush();
+            }
+        } catch (IOException e) {
+            // the channel is closed next anyway
+        }
+    }
+
+    /**
+     * Returns whether the engine consumed or produced anything.
+     */
+    private boolean wrap(ByteBuffer src) throws IOException {
+        netOut.clear();
+        while (true) {
+            SSLEngineResult result = engine.wrap(src, netOut);
+            switch (result.getStatus()) {
+                case OK:
+                    netOut.flip();
+                    return result.bytesConsumed() > 0 || result.bytesProduced() > 0;
+                case BUFFER_OVERFLOW:
+                    netOut = ByteBuffer.allocate(Math.max(netOut.capacity() * 2, engine.getSession().getPacketBufferSize()));
+                    break;
+                case CLOSED:
+                    netOut.flip();
+                    if (engine.isOutboundDone() && src == EMPTY) {
+                        return result.bytesProduced() > 0;
+                    }
+                    throw new SSLException("TLS connection closed");
+                default:
+                    throw new SSLException("Unexpected wrap result " + result.getStatus());
+            }
+        }
+    }
+
+    /**
+     * Unwraps one record, reading from the socket when none is complete. Returns false when the socket has
+     * nothing more for now.
+     */
+    private boolean unwrap() throws IOException {
+        while (true) {
+            netIn.flip();
+            SSLEngineResult result;
+            try {
+                result = engine.unwrap(netIn, appIn);
+            } finally {
+                netIn.compact();
+            }
+            switch (result.getStatus()) {
+                case OK:
+                    if (result.bytesConsumed() > 0 || result.bytesProduced() > 0
+                            || result.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NEED_UNWRAP) {
+                        return true;
+                    }
+                    // Nothing happened: more bytes are needed, as with an underflow.
+                    if (!readMore()) {
+                        return false;
+                    }
+                    break;
+                case BUFFER_UNDERFLOW:
+                    if (!readMore()) {
+                        return false;
+                    }
+                    break;
+                case BUFFER_OVERFLOW:
+                    ByteBuffer larger = ByteBuffer.allocate(appIn.position() + engine.getSession().getApplicationBufferSize());
+                    appIn.flip();
+                    larger.put(appIn);
+                    appIn = larger;
+                    break;
+                case CLOSED:
+                    return false;
+                default:
+                    throw new SSLException("Unexpected unwrap result " + result.getStatus());
+            }
+        }
+    }
+
+    /**
+     * Reads more encrypted bytes into netIn, growing it when full. Returns false when the socket has nothing
+     * for now or the peer closed the connection after the handshake.
+     */
+    private boolean readMore() throws IOException {
+        if (!netIn.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(netIn.capacity() * 2, engine.getSession().getPacketBufferSize()));
+            netIn.flip();
+            larger.put(netIn);
+            netIn = larger;
+        }
+        int read = channel.read(netIn);
+        if (read < 0) {
+            if (engine.isInboundDone() || engine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING) {
+                // Some servers close without close_notify; the HTTP framing tells whether that matters.
+                try {
+                    engine.closeInbound();
+                } catch (SSLException e) {
+                    // truncation is reported through the framing instead
+                }
+                return false;
+            }
+            throw new EOFException("Connection closed during the TLS handshake");
+        }
+        return read > 0;
+    }
+
+    private void runDelegatedTasks() {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.example;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns the probe stream into state-change events. A service is only considered DOWN after downAfter
+ * consecutive failed probes and UP again after upAfter successful ones, and an event is only emitted when
+ * the confirmed status actually changes, so flapping probes and repeated results do not produce alerts.
+ */
+public class TransitionDetector implements ProbeResultSink {
+    private static final String UP = "UP";
+    private static final String DOWN = "DOWN";
+    private static final String UNKNOWN = "UNKNOWN";
+
+    private final int downAfter;
+    private final int upAfter;
+    private final AlertDispatcher dispatcher;
+    private final Map<Integer, ServiceState> states = new ConcurrentHashMap<>();
+
+    public TransitionDetector(int downAfter, int upAfter, AlertDispatcher dispatcher) {
+        this.downAfter = Math.max(1, downAfter);
+        this.upAfter = Math.max(1, upAfter);
+        this.dispatcher = dispatcher;
+    }
+
+    @Override
+    public void accept(ServiceMonitorApplication.Service service, ProbeResult result) {
+        ServiceState state = states.computeIfAbsent(service.getid(), id -> new ServiceState());
+        StateChangeEvent event;
+        synchronized (state) {
+            event = state.observe(service, result);
+        }
+        if (event != null) {
+            dispatcher.submit(event);
+        }
+    }
+
+    public void forget(int serviceId) {
+        states.remove(serviceId);
+    }
+
+    private class ServiceState {
+        private String confirmed = UNKNOWN;
+        private boolean candidateUp;
+        private int streak;
+
+        StateChangeEvent observe(ServiceMonitorApplication.Service service, ProbeResult result) {
+            boolean up = result.isApplicationUp();
+            if (streak == 0 || up != candidateUp) {
+                candidateUp = up;
+                streak = 0;
+            }
+            if (streak < Integer.MAX_VALUE) {
+                streak++;
+            }
+            String status = up ? UP : DOWN;
+            if (status.equals(confirmed) || streak < (up ? upAfter : downAfter)) {
+                return null;
+            }
+            String previous = confirmed;
+            confirmed = status;
+            // The first confirmation after startup is only worth an alert when the service is down.
+            if (UNKNOWN.equals(previous) && up) {
+                return null;
+            }
+            return new StateChangeEvent(service.getid(), service.getServiceName(), previous, status,
+                    result.getTimestamp(), result.isServerUp(), result.getHttpStatus(), streak);
+        }
+    }
+}
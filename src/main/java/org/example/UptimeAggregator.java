@@ -0,0 +1,753 @@
+package org.example;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Rolls probe results into 1-minute, 1-hour and 1-day buckets per service. Every bucket carries the
+ * service's cumulative up and down counters as of its end, so the availability of any window is the
+ * difference of two bucket lookups. Latency histograms are kept per bucket, with the cumulative histogram
+ * checkpointed every {@link RollupRing#STRIDE} buckets, so each end of a percentile query adds fewer than
+ * that many small histograms to a checkpoint, however long the window or the retention.
+ * Only buckets that received results take memory, and only services with new results are written out.
+ */
+public class UptimeAggregator implements ProbeResultSink, Closeable {
+    static final int HISTOGRAM_BUCKETS = 32;
+    private static final int FILE_MAGIC = 0x524F4C4C;
+    private static final int FILE_VERSION = 2;
+    private static final DateTimeFormatter ENTRY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    private final Path directory;
+    private final int minuteBuckets;
+    private final int hourBuckets;
+    private final int dayBuckets;
+    private final Map<Integer, ServiceRollup> rollups = new ConcurrentHashMap<>();
+
+    public UptimeAggregator(Path directory, int minuteBuckets, int hourBuckets, int dayBuckets) throws IOException {
+        this.directory = directory;
+        this.minuteBuckets = minuteBuckets;
+        this.hourBuckets = hourBuckets;
+        this.dayBuckets = dayBuckets;
+        Files.createDirectories(directory);
+        load();
+    }
+
+    public static UptimeAggregator fromSystemProperties() throws IOException {
+        Path directory = Paths.get(System.getProperty("sky.monitor.rollups.dir", "rollups"));
+        int minuteBuckets = Integer.getInteger("sky.monitor.rollups.minutes", 24 * 60);
+        int hourBuckets = Integer.getInteger("sky.monitor.rollups.hours", 14 * 24);
+        int dayBuckets = Integer.getInteger("sky.monitor.rollups.days", 400);
+        return new UptimeAggregator(directory, minuteBuckets, hourBuckets, dayBuckets);
+    }
+
+    @Override
+    public void accept(ServiceMonitorApplication.Service service, ProbeResult result) {
+        long totalNanos = result.getTimings().getTotalNanos();
+        int latencyMicros = totalNanos > 0 ? (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMicros(totalNanos)) : -1;
+        record(result.getServiceId(), result.getTimestamp(), result.isApplicationUp(), latencyMicros);
+    }
+
+    public void record(int serviceId, long epochMillis, boolean up, int latencyMicros) {
+        rollup(serviceId).record(epochMillis, up, latencyMicros);
+    }
+
+    private ServiceRollup rollup(int serviceId) {
+        return rollups.computeIfAbsent(serviceId, id -> new ServiceRollup(minuteBuckets, hourBuckets, dayBuckets));
+    }
+
+    public WindowStats query(int serviceId, long fromMillis, long toMillis) {
+        ServiceRollup rollup = rollups.get(serviceId);
+        if (rollup == null) {
+            return null;
+        }
+        return rollup.query(fromMillis, toMillis);
+    }
+
+    public long importLogs(Path loggingDirectory, Collection<ServiceMonitorApplication.Service> services) throws IOException {
+        long imported = 0;
+        for (ServiceMonitorApplication.Service service : services) {
+            Path statusDirectory = loggingDirectory.resolve(service.getServiceName().replaceAll("\\s+", "_")).resolve("application_status");
+            if (!Files.isDirectory(statusDirectory)) {
+                continue;
+            }
+            List<Path> files = new ArrayList<>();
+            try (Stream<Path> list = Files.list(statusDirectory)) {
+                list.filter(file -> file.getFileName().toString().endsWith("_application.log")).sorted().forEach(files::add);
+            }
+            ServiceRollup live = rollups.get(service.getid());
+            long importBefore = live != null ? live.firstTimestamp : Long.MAX_VALUE;
+            ServiceRollup history = new ServiceRollup(minuteBuckets, hourBuckets, dayBuckets);
+            for (Path file : files) {
+                try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        long timestamp = parseEntryTimestamp(line);
+                        if (timestamp < 0 || timestamp >= importBefore) {
+                            continue;
+                        }
+                        history.record(timestamp, line.endsWith(" is UP"), -1);
+                        imported++;
+                    }
+                }
+            }
+            if (history.firstTimestamp == Long.MAX_VALUE) {
+                continue;
+            }
+            rollups.merge(service.getid(), history, (current, older) -> {
+                current.prepend(older);
+                return current;
+            });
+        }
+        persist();
+        return imported;
+    }
+
+    private static long parseEntryTimestamp(String line) {
+        if (line.length() < 15) {
+            return -1;
+        }
+        try {
+            return LocalDateTime.parse(line.substring(0, 15), ENTRY_FORMAT).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Writes the rollups of the services that recorded results since they were last written.
+     */
+    public int persist() {
+        int written = 0;
+        for (Map.Entry<Integer, ServiceRollup> entry : rollups.entrySet()) {
+            ServiceRollup rollup = entry.getValue();
+            if (!rollup.isDirty()) {
+                continue;
+            }
+            Path file = directory.resolve(entry.getKey() + ".rollup");
+            Path temp = directory.resolve(entry.getKey() + ".rollup.tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeInt(FILE_MAGIC);
+                    out.writeInt(FILE_VERSION);
+                    rollup.writeTo(out);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                written++;
+            } catch (IOException e) {
+                rollup.markDirty();
+                e.printStackTrace();
+            }
+        }
+        return written;
+    }
+
+    private void load() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.rollup")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                    if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                        System.out.println("Ignoring " + name + ": written by another version, run 'uptime import' to rebuild it.");
+                        continue;
+                    }
+                    ServiceRollup rollup = new ServiceRollup(minuteBuckets, hourBuckets, dayBuckets);
+                    rollup.readFrom(in);
+                    rollups.put(Integer.parseInt(name.substring(0, name.length() - ".rollup".length())), rollup);
+                } catch (IOException | NumberFormatException e) {
+                    System.out.println("Ignoring unreadable rollup " + name + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        persist();
+    }
+
+    static int histogramIndex(int latencyMicros) {
+        int millis = latencyMicros / 1000;
+        if (millis <= 0) {
+            return 0;
+        }
+        int octave = 31 - Integer.numberOfLeadingZeros(millis);
+        int half = octave > 0 ? (millis >> (octave - 1)) & 1 : 0;
+        return Math.min(HISTOGRAM_BUCKETS - 1, 1 + octave * 2 + half);
+    }
+
+    static long histogramUpperBoundMicros(int index) {
+        if (index == 0) {
+            return 1000;
+        }
+        int octave = (index - 1) / 2;
+        int half = (index - 1) % 2;
+        long base = 1L << octave;
+        long upperMillis = octave == 0 ? 2 : base + (half + 1) * (base >> 1);
+        return upperMillis * 1000;
+    }
+
+    public static class WindowStats {
+        private final long fromMillis;
+        private final long toMillis;
+        private final long up;
+        private final long down;
+        private final int[] histogram;
+
+        WindowStats(long fromMillis, long toMillis, long up, long down, int[] histogram) {
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+            this.up = up;
+            this.down = down;
+            this.histogram = histogram;
+        }
+
+        public long getFromMillis() {
+            return fromMillis;
+        }
+
+        public long getToMillis() {
+            return toMillis;
+        }
+
+        public long getUp() {
+            return up;
+        }
+
+        public long getDown() {
+            return down;
+        }
+
+        public double getAvailability() {
+            long total = up + down;
+            return total == 0 ? Double.NaN : 100.0 * up / total;
+        }
+
+        public long getLatencyPercentileMicros(double percentile) {
+            long samples = 0;
+            for (int count : histogram) {
+                samples += count;
+            }
+            if (samples == 0) {
+                return -1;
+            }
+            long rank = (long) Math.ceil(percentile / 100.0 * samples);
+            long seen = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                seen += histogram[i];
+                if (seen >= rank) {
+                    return histogramUpperBoundMicros(i);
+                }
+            }
+            return histogramUpperBoundMicros(histogram.length - 1);
+        }
+    }
+
+    static class ServiceRollup {
+        private final RollupRing minutes;
+        private final RollupRing hours;
+        private final RollupRing days;
+        // Running totals; int arithmetic wraps, and differences stay exact for windows under 2^32 samples.
+        private int totalUp;
+        private int totalDown;
+        private final int[] totalHistogram = new int[HISTOGRAM_BUCKETS];
+        private long firstTimestamp = Long.MAX_VALUE;
+        private boolean dirty;
+
+        ServiceRollup(int minuteBuckets, int hourBuckets, int dayBuckets) {
+            this.minutes = new RollupRing(TimeUnit.MINUTES.toMillis(1), minuteBuckets);
+            this.hours = new RollupRing(TimeUnit.HOURS.toMillis(1), hourBuckets);
+            this.days = new RollupRing(TimeUnit.DAYS.toMillis(1), dayBuckets);
+        }
+
+        synchronized void record(long epochMillis, boolean up, int latencyMicros) {
+            firstTimestamp = Math.min(firstTimestamp, epochMillis);
+            int histogramIndex = -1;
+            if (up) {
+                totalUp++;
+            } else {
+                totalDown++;
+            }
+            if (latencyMicros >= 0) {
+                histogramIndex = histogramIndex(latencyMicros);
+                totalHistogram[histogramIndex]++;
+            }
+            minutes.add(epochMillis, histogramIndex, totalUp, totalDown);
+            hours.add(epochMillis, histogramIndex, totalUp, totalDown);
+            days.add(epochMillis, histogramIndex, totalUp, totalDown);
+            dirty = true;
+        }
+
+        /**
+         * Counts for the buckets overlapping [fromMillis, toMillis]: the window is widened to whole buckets of
+         * the finest ring that still holds each end, and the bucket still open is always included.
+         */
+        synchronized WindowStats query(long fromMillis, long toMillis) {
+            int[] fromCounts = cumulativeAt(fromMillis, false);
+            int[] toCounts = cumulativeAt(toMillis, true);
+            int[] histogram = new int[HISTOGRAM_BUCKETS];
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                histogram[i] = toCounts[2 + i] - fromCounts[2 + i];
+            }
+            return new WindowStats(fromMillis, toMillis,
+                    Integer.toUnsignedLong(toCounts[0] - fromCounts[0]), Integer.toUnsignedLong(toCounts[1] - fromCounts[1]), histogram);
+        }
+
+        private int[] cumulativeAt(long epochMillis, boolean throughBucket) {
+            for (RollupRing ring : new RollupRing[]{minutes, hours, days}) {
+                int[] cumulative = ring.cumulativeAt(epochMillis, throughBucket, this);
+                if (cumulative != null) {
+                    return cumulative;
+                }
+            }
+            // Older than every retained bucket: clamp to the start of the oldest day still held.
+            return days.oldestCumulative();
+        }
+
+        int[] totals() {
+            int[] totals = new int[2 + HISTOGRAM_BUCKETS];
+            totals[0] = totalUp;
+            totals[1] = totalDown;
+            System.arraycopy(totalHistogram, 0, totals, 2, HISTOGRAM_BUCKETS);
+            return totals;
+        }
+
+        synchronized void prepend(ServiceRollup older) {
+            synchronized (older) {
+                int[] offset = older.totals();
+                minutes.prepend(older.minutes, offset);
+                hours.prepend(older.hours, offset);
+                days.prepend(older.days, offset);
+                totalUp += offset[0];
+                totalDown += offset[1];
+                for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                    totalHistogram[i] += offset[2 + i];
+                }
+                firstTimestamp = Math.min(firstTimestamp, older.firstTimestamp);
+                dirty = true;
+            }
+        }
+
+        synchronized boolean isDirty() {
+            return dirty;
+        }
+
+        synchronized void markDirty() {
+            dirty = true;
+        }
+
+        synchronized void writeTo(DataOutputStream out) throws IOException {
+            dirty = false;
+            out.writeLong(firstTimestamp);
+            int[] totals = totals();
+            for (int value : totals) {
+                out.writeInt(value);
+            }
+            minutes.writeTo(out);
+            hours.writeTo(out);
+            days.writeTo(out);
+        }
+
+        synchronized void readFrom(DataInputStream in) throws IOException {
+            firstTimestamp = in.readLong();
+            totalUp = in.readInt();
+            totalDown = in.readInt();
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                totalHistogram[i] = in.readInt();
+            }
+            minutes.readFrom(in);
+            hours.readFrom(in);
+            days.readFrom(in);
+        }
+    }
+
+    /**
+     * The buckets of one width that received results, oldest first, in a circular buffer that grows on
+     * demand up to the retention. Each bucket keeps the cumulative up and down counters as of its end and
+     * the latency histogram of its own results as packed (index, count) ints; buckets in a gap are not
+     * stored, since they would only repeat the counters of the bucket before them. The cumulative counters
+     * of everything already dropped from the ring are kept as its base. Every STRIDE-th bucket also gets
+     * the cumulative histogram as of its end, counted by the bucket's sequence number since the ring was
+     * filled, so that a lookup only adds up the buckets after the nearest checkpoint.
+     */
+    static class RollupRing {
+        static final int STRIDE = 32;
+        private static final int INITIAL_SIZE = 8;
+        private static final int COUNT_BITS = 27;
+        private static final int COUNT_MASK = (1 << COUNT_BITS) - 1;
+        private static final long NONE = Long.MIN_VALUE;
+        // A bucket with a single result shares one of these instead of allocating its own histogram.
+        private static final int[][] SINGLE_SAMPLE = new int[HISTOGRAM_BUCKETS][];
+
+        static {
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                SINGLE_SAMPLE[i] = new int[]{pack(i, 1)};
+            }
+        }
+
+        private final long width;
+        private final int capacity;
+        private int[] buckets;
+        private int[] up;
+        private int[] down;
+        private int[][] histograms;
+        private int head;
+        private int size;
+        private long first = NONE;
+        private long last = NONE;
+        private int baseUp;
+        private int baseDown;
+        private int[] baseHistogram;
+        // The base plus the histograms of every bucket but the newest, which may still receive results.
+        private final int[] sealed = new int[HISTOGRAM_BUCKETS];
+        private final int[][] checkpoints;
+        // Buckets pushed since the ring was filled, dropped ones included; the oldest held is number pushed - size.
+        private long pushed;
+
+        RollupRing(long width, int capacity) {
+            this.width = width;
+            this.capacity = Math.max(1, capacity);
+            this.checkpoints = new int[this.capacity / STRIDE + 2][];
+        }
+
+        void add(long epochMillis, int histogramIndex, int totalUp, int totalDown) {
+            long bucket = Math.floorDiv(epochMillis, width);
+            if (size == 0 || bucket > last) {
+                push(bucket, totalUp, totalDown, null);
+            }
+            // Late results are folded into the newest bucket so cumulative counters never go backwards.
+            int slot = slot(size - 1);
+            up[slot] = totalUp;
+            down[slot] = totalDown;
+            if (histogramIndex >= 0) {
+                histograms[slot] = addSample(histograms[slot], histogramIndex);
+            }
+        }
+
+        private void push(long bucket, int cumulativeUp, int cumulativeDown, int[] histogram) {
+            if (first == NONE) {
+                first = bucket;
+            }
+            if (size > 0) {
+                seal(slot(size - 1), pushed - 1);
+            }
+            dropBefore(bucket - capacity + 1);
+            if (buckets == null || size == buckets.length) {
+                grow();
+            }
+            int slot = slot(size++);
+            buckets[slot] = (int) bucket;
+            up[slot] = cumulativeUp;
+            down[slot] = cumulativeDown;
+            histograms[slot] = histogram;
+            last = bucket;
+            pushed++;
+        }
+
+        /**
+         * Adds the newest bucket's histogram to the sealed totals once a younger bucket follows it, and
+         * checkpoints them when the bucket ends a stride.
+         */
+        private void seal(int slot, long sequence) {
+            int[] histogram = histograms[slot];
+            if (histogram != null) {
+                for (int packed : histogram) {
+                    sealed[index(packed)] += count(packed);
+                }
+            }
+            if ((sequence + 1) % STRIDE == 0) {
+                int checkpoint = (int) ((sequence / STRIDE) % checkpoints.length);
+                if (checkpoints[checkpoint] == null) {
+                    checkpoints[checkpoint] = new int[HISTOGRAM_BUCKETS];
+                }
+                System.arraycopy(sealed, 0, checkpoints[checkpoint], 0, HISTOGRAM_BUCKETS);
+            }
+        }
+
+        /**
+         * Starts the sequence over from the current base, before the buckets are pushed again.
+         */
+        private void restart() {
+            pushed = 0;
+            Arrays.fill(sealed, 0);
+            if (baseHistogram != null) {
+                System.arraycopy(baseHistogram, 0, sealed, 0, HISTOGRAM_BUCKETS);
+            }
+        }
+
+        private void grow() {
+            int length = buckets == null ? Math.min(capacity, INITIAL_SIZE) : Math.min(capacity, buckets.length * 2);
+            int[] newBuckets = new int[length];
+            int[] newUp = new int[length];
+            int[] newDown = new int[length];
+            int[][] newHistograms = new int[length][];
+            for (int i = 0; i < size; i++) {
+                int slot = slot(i);
+                newBuckets[i] = buckets[slot];
+                newUp[i] = up[slot];
+                newDown[i] = down[slot];
+                newHistograms[i] = histograms[slot];
+            }
+            buckets = newBuckets;
+            up = newUp;
+            down = newDown;
+            histograms = newHistograms;
+            head = 0;
+        }
+
+        private void dropBefore(long oldestKept) {
+            while (size > 0 && buckets[head] < oldestKept) {
+                baseUp = up[head];
+                baseDown = down[head];
+                int[] histogram = histograms[head];
+                if (histogram != null) {
+                    if (baseHistogram == null) {
+                        baseHistogram = new int[HISTOGRAM_BUCKETS];
+                    }
+                    for (int packed : histogram) {
+                        baseHistogram[index(packed)] += count(packed);
+                    }
+                    histograms[head] = null;
+                }
+                head = (head + 1) % buckets.length;
+                size--;
+            }
+        }
+
+        private int slot(int position) {
+            return (head + position) % buckets.length;
+        }
+
+        /**
+         * The cumulative counters at the start of the bucket holding epochMillis, or at its end when
+         * throughBucket is set; null when that bucket has already left the ring.
+         */
+        int[] cumulativeAt(long epochMillis, boolean throughBucket, ServiceRollup owner) {
+            long bucket = Math.floorDiv(epochMillis, width) - (throughBucket ? 0 : 1);
+            if (first == NONE || bucket < first) {
+                return new int[2 + HISTOGRAM_BUCKETS];
+            }
+            if (bucket >= last) {
+                return owner.totals();
+            }
+            if (bucket <= last - capacity) {
+                return null;
+            }
+            int position = -1;
+            for (int low = 0, high = size - 1; low <= high; ) {
+                int middle = (low + high) >>> 1;
+                if (buckets[slot(middle)] <= bucket) {
+                    position = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return cumulativeThrough(position);
+        }
+
+        int[] oldestCumulative() {
+            return cumulativeThrough(-1);
+        }
+
+        private int[] cumulativeThrough(int position) {
+            int[] result = new int[2 + HISTOGRAM_BUCKETS];
+            result[0] = position < 0 ? baseUp : up[slot(position)];
+            result[1] = position < 0 ? baseDown : down[slot(position)];
+            // Start from the latest checkpoint at or before the position that is still held, else from the base.
+            long oldest = pushed - size;
+            long sequence = oldest + position;
+            long checkpointed = (sequence + 1) / STRIDE * STRIDE - 1;
+            int start;
+            if (position == size - 1 && size > 0) {
+                System.arraycopy(sealed, 0, result, 2, HISTOGRAM_BUCKETS);
+                start = position;
+            } else if (checkpointed >= oldest) {
+                System.arraycopy(checkpoints[(int) ((checkpointed / STRIDE) % checkpoints.length)], 0, result, 2, HISTOGRAM_BUCKETS);
+                start = (int) (checkpointed - oldest) + 1;
+            } else {
+                if (baseHistogram != null) {
+                    System.arraycopy(baseHistogram, 0, result, 2, HISTOGRAM_BUCKETS);
+                }
+                start = 0;
+            }
+            for (int i = start; i <= position; i++) {
+                int[] histogram = histograms[slot(i)];
+                if (histogram != null) {
+                    for (int packed : histogram) {
+                        result[2 + index(packed)] += count(packed);
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Puts the buckets of an older history in front of this ring's, with this ring's counters raised by
+         * the older history's totals. A bucket both hold is merged.
+         */
+        void prepend(RollupRing older, int[] offset) {
+            if (older.first == NONE) {
+                return;
+            }
+            int live = size;
+            int[] liveBuckets = new int[live];
+            int[] liveUp = new int[live];
+            int[] liveDown = new int[live];
+            int[][] liveHistograms = new int[live][];
+            for (int i = 0; i < live; i++) {
+                int slot = slot(i);
+                liveBuckets[i] = buckets[slot];
+                liveUp[i] = up[slot] + offset[0];
+                liveDown[i] = down[slot] + offset[1];
+                liveHistograms[i] = histograms[slot];
+            }
+            boolean liveDropped = first != NONE && (live == 0 || first < liveBuckets[0]);
+            long liveFirst = first;
+            size = 0;
+            head = 0;
+            first = NONE;
+            if (liveDropped) {
+                // The live ring already dropped buckets younger than all of the older history.
+                baseUp += offset[0];
+                baseDown += offset[1];
+                addHistogram(offset);
+                restart();
+            } else {
+                baseUp = older.baseUp;
+                baseDown = older.baseDown;
+                baseHistogram = older.baseHistogram == null ? null : older.baseHistogram.clone();
+                restart();
+                for (int i = 0; i < older.size; i++) {
+                    int slot = older.slot(i);
+                    int[] histogram = older.histograms[slot];
+                    if (live > 0 && older.buckets[slot] >= liveBuckets[0]) {
+                        liveHistograms[0] = mergeHistograms(liveHistograms[0], histogram);
+                        continue;
+                    }
+                    push(older.buckets[slot], older.up[slot], older.down[slot], histogram);
+                }
+            }
+            first = liveFirst == NONE ? older.first : Math.min(liveFirst, older.first);
+            for (int i = 0; i < live; i++) {
+                push(liveBuckets[i], liveUp[i], liveDown[i], liveHistograms[i]);
+            }
+        }
+
+        private void addHistogram(int[] offset) {
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                if (offset[2 + i] != 0) {
+                    if (baseHistogram == null) {
+                        baseHistogram = new int[HISTOGRAM_BUCKETS];
+                    }
+                    baseHistogram[i] += offset[2 + i];
+                }
+            }
+        }
+
+        static int pack(int index, int count) {
+            return index << COUNT_BITS | Math.min(count, COUNT_MASK);
+        }
+
+        static int index(int packed) {
+            return packed >>> COUNT_BITS;
+        }
+
+        static int count(int packed) {
+            return packed & COUNT_MASK;
+        }
+
+        static int[] addSample(int[] histogram, int index) {
+            if (histogram == null) {
+                return SINGLE_SAMPLE[index];
+            }
+            for (int i = 0; i < histogram.length; i++) {
+                if (index(histogram[i]) == index) {
+                    int[] updated = histogram == SINGLE_SAMPLE[index] ? histogram.clone() : histogram;
+                    updated[i] = pack(index, count(histogram[i]) + 1);
+                    return updated;
+                }
+            }
+            int[] updated = Arrays.copyOf(histogram, histogram.length + 1);
+            updated[histogram.length] = pack(index, 1);
+            return updated;
+        }
+
+        private static int[] mergeHistograms(int[] histogram, int[] other) {
+            if (other == null) {
+                return histogram;
+            }
+            for (int packed : other) {
+                for (int n = count(packed); n > 0; n--) {
+                    histogram = addSample(histogram, index(packed));
+                }
+            }
+            return histogram;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(first);
+            out.writeInt(baseUp);
+            out.writeInt(baseDown);
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                out.writeInt(baseHistogram == null ? 0 : baseHistogram[i]);
+            }
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                int slot = slot(i);
+                out.writeInt(buckets[slot]);
+                out.writeInt(up[slot]);
+                out.writeInt(down[slot]);
+                int[] histogram = histograms[slot];
+                out.writeByte(histogram == null ? 0 : histogram.length);
+                if (histogram != null) {
+                    for (int packed : histogram) {
+                        out.writeInt(packed);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Reads a ring written with any retention; buckets beyond this ring's retention are dropped into its base.
+         */
+        void readFrom(DataInputStream in) throws IOException {
+            long storedFirst = in.readLong();
+            baseUp = in.readInt();
+            baseDown = in.readInt();
+            int[] offset = new int[2 + HISTOGRAM_BUCKETS];
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                offset[2 + i] = in.readInt();
+            }
+            addHistogram(offset);
+            restart();
+            int stored = in.readInt();
+            for (int i = 0; i < stored; i++) {
+                int bucket = in.readInt();
+                int cumulativeUp = in.readInt();
+                int cumulativeDown = in.readInt();
+                int length = in.readUnsignedByte();
+                int[] histogram = null;
+                if (length > 0) {
+                    histogram = new int[length];
+                    for (int j = 0; j < length; j++) {
+                        histogram[j] = in.readInt();
+                    }
+                    if (length == 1 && count(histogram[0]) == 1) {
+                        histogram = SINGLE_SAMPLE[index(histogram[0])];
+                    }
+                }
+                push(bucket, cumulativeUp, cumulativeDown, histogram);
+            }
+            first = storedFirst;
+        }
+    }
+}
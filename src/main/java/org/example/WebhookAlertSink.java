@@ -0,0 +1,48 @@
+package org.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Posts every batch of events as a JSON array to a webhook URL.
+ */
+public class WebhookAlertSink implements AlertSink {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final URI uri;
+    private final HttpClient client;
+
+    public WebhookAlertSink(URI uri) {
+        this.uri = uri;
+        this.client = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+    }
+
+    @Override
+    public void send(List<StateChangeEvent> events) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(StateChangeEvent.toJson(events)))
+                .build();
+        HttpResponse<Void> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while posting alerts", e);
+        }
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            throw new IOException("Webhook answered HTTP " + response.statusCode());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "webhook " + uri;
+    }
+}
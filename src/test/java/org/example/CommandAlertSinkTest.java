@@ -0,0 +1,55 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisabledOnOs(OS.WINDOWS)
+class CommandAlertSinkTest {
+    private static final long TIMEOUT_MILLIS = 1000;
+
+    @Test
+    void commandThatNeverReadsALargeBatchIsKilledAtTheTimeout() {
+        // Far more than a pipe buffer holds, so writing it all blocks until someone reads.
+        List<StateChangeEvent> events = new ArrayList<>();
+        String name = String.join("", Collections.nCopies(400, "x"));
+        for (int id = 0; id < 500; id++) {
+            events.add(new StateChangeEvent(id, name, "UP", "DOWN", 1000 + id, false, -1, 3));
+        }
+        CommandAlertSink sink = new CommandAlertSink("sleep 60", TIMEOUT_MILLIS);
+
+        long started = System.nanoTime();
+        IOException failure = assertThrows(IOException.class, () -> sink.send(events));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        assertTrue(failure.getMessage().contains("did not finish"), failure.getMessage());
+        assertTrue(elapsedMillis < TIMEOUT_MILLIS + 5000, "took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void commandReceivesTheBatchOnItsInput(@TempDir Path directory) throws Exception {
+        Path output = directory.resolve("alerts.json");
+        new CommandAlertSink("tee " + output, TIMEOUT_MILLIS).send(
+                Collections.singletonList(new StateChangeEvent(1, "Web Shop", "UP", "DOWN", 1000, true, 503, 3)));
+        String written = new String(Files.readAllBytes(output), StandardCharsets.UTF_8);
+        assertTrue(written.startsWith("[{") && written.contains("\"serviceName\":\"Web Shop\""), written);
+    }
+
+    @Test
+    void commandThatExitsWithoutReadingReportsItsExitCode() {
+        IOException failure = assertThrows(IOException.class, () -> new CommandAlertSink("false", TIMEOUT_MILLIS).send(
+                Collections.singletonList(new StateChangeEvent(1, "Web Shop", "UP", "DOWN", 1000, true, 503, 3))));
+        assertTrue(failure.getMessage().contains("exited with 1"), failure.getMessage());
+    }
+}
@@ -0,0 +1,93 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProbeStoreTest {
+    private static final int SERVICES = 50;
+    private static final int SEGMENT_RECORDS = 3 * ProbeStore.BLOCK_RECORDS + 100;
+
+    private final List<long[]> appended = new ArrayList<>();
+
+    @Test
+    void segmentNameClashKeepsTheProbedTimestamp(@TempDir Path directory) throws IOException {
+        long timestamp = 1_700_000_000_000L;
+        try (ProbeStore store = new ProbeStore(directory, 4)) {
+            for (int i = 0; i < 12; i++) {
+                store.append(1, timestamp, ProbeStore.STATUS_SERVER_UP, 200, i);
+            }
+            List<Long> stored = new ArrayList<>();
+            assertEquals(12, store.query(1, Long.MIN_VALUE, Long.MAX_VALUE,
+                    (serviceId, epochMillis, statusBits, httpCode, latencyMicros) -> stored.add(epochMillis)));
+            assertEquals(Collections.nCopies(12, timestamp), stored);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(3, files.filter(file -> file.toString().endsWith(".dat")).count());
+        }
+    }
+
+    @Test
+    void queriesReturnExactlyTheServicesRecordsInTheRange(@TempDir Path directory) throws IOException {
+        Random random = new Random(7);
+        long timestamp = 1_700_000_000_000L;
+        try (ProbeStore store = new ProbeStore(directory, SEGMENT_RECORDS)) {
+            // Two full segments and part of a third, so indexed blocks, an open block and several segments are queried.
+            for (int i = 0; i < 2 * SEGMENT_RECORDS + ProbeStore.BLOCK_RECORDS / 2; i++) {
+                // Services probed mostly round-robin, with timestamps that are not strictly ordered.
+                int serviceId = random.nextInt(10) == 0 ? random.nextInt(SERVICES) : i % SERVICES;
+                timestamp += random.nextInt(1000);
+                long epochMillis = timestamp - random.nextInt(500);
+                store.append(serviceId, epochMillis, random.nextInt(4), 200 + random.nextInt(3), i);
+                appended.add(new long[]{serviceId, epochMillis, i});
+            }
+            assertQueries(store, random);
+        }
+        try (ProbeStore reopened = new ProbeStore(directory, SEGMENT_RECORDS)) {
+            assertQueries(reopened, random);
+        }
+
+        // A lost index and one in an older layout are rebuilt from the records.
+        List<Path> indexes = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.toString().endsWith(".idx")).sorted().forEach(indexes::add);
+        }
+        assertEquals(3, indexes.size());
+        Files.delete(indexes.get(0));
+        Files.write(indexes.get(1), new byte[24 * 3]);
+        try (ProbeStore rebuilt = new ProbeStore(directory, SEGMENT_RECORDS)) {
+            assertQueries(rebuilt, random);
+        }
+    }
+
+    private void assertQueries(ProbeStore store, Random random) {
+        long first = appended.get(0)[1];
+        long last = appended.get(appended.size() - 1)[1];
+        for (int i = 0; i < 40; i++) {
+            int serviceId = random.nextInt(SERVICES + 1);
+            long from = first + (long) (random.nextDouble() * (last - first));
+            long to = i % 4 == 0 ? Long.MAX_VALUE : from + random.nextInt(5_000_000);
+            List<Long> expected = new ArrayList<>();
+            for (long[] record : appended) {
+                if (record[0] == serviceId && record[1] >= from && record[1] <= to) {
+                    expected.add(record[2]);
+                }
+            }
+            List<Long> actual = new ArrayList<>();
+            long matched = store.query(serviceId, from, to, (id, epochMillis, statusBits, httpCode, latencyMicros) -> {
+                assertEquals(serviceId, id);
+                assertTrue(epochMillis >= from && epochMillis <= to);
+                actual.add((long) latencyMicros);
+            });
+            assertEquals(expected.size(), matched);
+            assertEquals(expected, actual, "records of service " + serviceId);
+        }
+    }
+}
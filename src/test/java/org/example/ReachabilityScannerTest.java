@@ -0,0 +1,76 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReachabilityScannerTest {
+    private static final long TIMEOUT_MILLIS = 500;
+
+    private ProbeEventLoop eventLoop;
+    private ReachabilityScanner scanner;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        eventLoop = new ProbeEventLoop(ProbeEventLoop.DEFAULT_MAX_CONNECTIONS);
+        scanner = new ReachabilityScanner(eventLoop, TIMEOUT_MILLIS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventLoop.close();
+    }
+
+    @Test
+    void listeningPortIsReachable() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            CompletableFuture<Long> check = scanner.check(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort()));
+            long connectNanos = check.get(5, TimeUnit.SECONDS);
+            assertTrue(connectNanos >= 0);
+            assertTrue(ReachabilityScanner.isReachable(check));
+        }
+        assertEquals(0, scanner.getInFlight());
+    }
+
+    @Test
+    void closedPortIsRefused() throws Exception {
+        int port;
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            port = server.getLocalPort();
+        }
+        CompletableFuture<Long> check = scanner.check(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        CompletionException failure = assertThrows(CompletionException.class, check::join);
+        assertInstanceOf(ConnectException.class, failure.getCause());
+        assertFalse(ReachabilityScanner.isReachable(check));
+        assertEquals(0, scanner.getInFlight());
+    }
+
+    @Test
+    void blackholedAddressFailsWithinTheTimeout() {
+        // 192.0.2.0/24 is reserved for documentation and never routed: the connect either hangs until the
+        // deadline or is rejected at once by the local stack, and must not wait past the timeout either way.
+        long started = System.nanoTime();
+        CompletableFuture<Long> check = scanner.check("192.0.2.1", 9);
+        assertFalse(ReachabilityScanner.isReachable(check));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        assertTrue(elapsedMillis < TIMEOUT_MILLIS + 2000, "took " + elapsedMillis + " ms");
+        assertEquals(0, scanner.getInFlight());
+    }
+
+    @Test
+    void unknownHostFailsWithoutConnecting() {
+        CompletableFuture<Long> check = scanner.check("no-such-host.invalid", 80);
+        assertFalse(ReachabilityScanner.isReachable(check));
+        assertEquals(0, scanner.getInFlight());
+    }
+}
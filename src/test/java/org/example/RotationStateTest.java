@@ -0,0 +1,128 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RotationStateTest {
+    private static final int KEYS = 8;
+    private static final int THREADS = 8;
+    private static final int CALLS_PER_THREAD = 20000;
+    private static final long INTERVAL = 5;
+
+    @Test
+    void concurrentRotationsAreNeitherLostNorDuplicated(@TempDir Path directory) throws Exception {
+        RotationState state = new RotationState(directory);
+        AtomicLong[] clocks = new AtomicLong[KEYS];
+        List<Set<Long>> rotated = new ArrayList<>();
+        List<Set<Long>> returned = new ArrayList<>();
+        for (int k = 0; k < KEYS; k++) {
+            clocks[k] = new AtomicLong();
+            rotated.add(ConcurrentHashMap.newKeySet());
+            returned.add(ConcurrentHashMap.newKeySet());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                    int k = random.nextInt(KEYS);
+                    // Every timestamp is handed out once, so a rotation to it can only be caused by this call.
+                    long timestamp = clocks[k].incrementAndGet();
+                    long rotation = state.resolve(key(k), timestamp, INTERVAL);
+                    if (rotation == timestamp) {
+                        rotated.get(k).add(timestamp);
+                    }
+                    returned.get(k).add(rotation);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        long[] latest = new long[KEYS];
+        int totalRotations = 0;
+        for (int k = 0; k < KEYS; k++) {
+            List<Long> rotations = new ArrayList<>(rotated.get(k));
+            Collections.sort(rotations);
+            for (int i = 1; i < rotations.size(); i++) {
+                assertTrue(rotations.get(i) - rotations.get(i - 1) >= INTERVAL,
+                        "rotations " + rotations.get(i - 1) + " and " + rotations.get(i) + " of " + key(k) + " are within one interval");
+            }
+            assertTrue(rotated.get(k).containsAll(returned.get(k)), "a caller was handed a rotation nobody made");
+            latest[k] = rotations.get(rotations.size() - 1);
+            assertEquals(latest[k], state.get(key(k)));
+            totalRotations += rotations.size();
+        }
+        state.close();
+
+        // Compaction keeps the checkpoint far below one record per rotation, and the records left for a key
+        // never go back in time, whatever order the rotations reached the file in.
+        ByteBuffer checkpoint = ByteBuffer.wrap(Files.readAllBytes(directory.resolve("rotations.checkpoint")));
+        assertTrue(checkpoint.remaining() < (long) totalRotations * (16 + key(0).length()));
+        Map<String, Long> written = new HashMap<>();
+        while (checkpoint.hasRemaining()) {
+            byte[] key = new byte[checkpoint.getInt()];
+            checkpoint.get(key);
+            long timestamp = checkpoint.getLong();
+            checkpoint.getInt();
+            Long previous = written.put(new String(key, StandardCharsets.UTF_8), timestamp);
+            assertTrue(previous == null || previous <= timestamp, "checkpoint went back from " + previous + " to " + timestamp);
+        }
+
+        RotationState reloaded = new RotationState(directory);
+        try {
+            for (int k = 0; k < KEYS; k++) {
+                assertEquals(latest[k], reloaded.get(key(k)));
+                assertEquals(latest[k], reloaded.resolve(key(k), latest[k] + INTERVAL - 1, INTERVAL));
+            }
+            assertEquals(0, reloaded.getCheckpointFailures());
+        } finally {
+            reloaded.close();
+        }
+    }
+
+    @Test
+    void tornRecordIsDroppedOnRecovery(@TempDir Path directory) throws Exception {
+        RotationState state = new RotationState(directory);
+        state.resolve("a_status", 1000, INTERVAL);
+        state.resolve("b_status", 2000, INTERVAL);
+        state.resolve("a_status", 1500, INTERVAL);
+        state.close();
+        Path checkpoint = directory.resolve("rotations.checkpoint");
+        long validLength = Files.size(checkpoint);
+        Files.write(checkpoint, new byte[]{0, 0, 0, 8, 'a', '_', 's'}, StandardOpenOption.APPEND);
+
+        RotationState reloaded = new RotationState(directory);
+        try {
+            assertEquals(1500L, reloaded.get("a_status"));
+            assertEquals(2000L, reloaded.get("b_status"));
+            assertNull(reloaded.get("c_status"));
+            assertEquals(validLength, Files.size(checkpoint));
+        } finally {
+            reloaded.close();
+        }
+    }
+
+    private static String key(int k) {
+        return "service" + k + "_status";
+    }
+}
@@ -0,0 +1,326 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs several members over an {@link InProcessMembership.Group}, each scheduling with a
+ * {@link ShardScheduler} as the application does, on a simulated clock: probes, heartbeats, joins and
+ * leaves are events in one queue, so the run is the same every time and takes no wall-clock time.
+ */
+class ShardCoordinatorTest {
+    private static final int SERVICES = 60;
+    private static final long INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    // Every probe runs in the first third of its interval; members join and leave in the middle of one.
+    private static final long PHASE_SPREAD_MILLIS = INTERVAL_MILLIS / 3;
+    private static final long CHANGE_OFFSET_MILLIS = 2 * INTERVAL_MILLIS / 3;
+    private static final int INTERVALS = 9;
+    // A result reaches the other members within two heartbeats, well before the next change.
+    private static final long HEARTBEAT_MILLIS = 1000;
+    private static final long START_MILLIS = 1_700_000_000_000L;
+
+    private final InProcessMembership.Group group = new InProcessMembership.Group();
+    private final SimulatedTime time = new SimulatedTime(START_MILLIS - 500);
+    private final ServiceRegistry registry = registry();
+    private final List<Probed> probes = new ArrayList<>();
+
+    @Test
+    void everyServiceIsProbedOncePerIntervalAcrossAJoinAndALeave() {
+        Member a = new Member("a");
+        Member b = new Member("b");
+        Member c = new Member("c");
+        Member d = new Member("d");
+        a.start();
+        b.start();
+        c.start();
+        Set<Integer> ownedByB = b.ownedServices();
+
+        time.runUntil(START_MILLIS + 3 * INTERVAL_MILLIS + CHANGE_OFFSET_MILLIS);
+        d.start();
+        Set<Integer> ownedByD = d.ownedServices();
+        assertScheduledAsOwned(a, b, c, d);
+
+        time.runUntil(START_MILLIS + 6 * INTERVAL_MILLIS + CHANGE_OFFSET_MILLIS);
+        b.stop();
+        assertScheduledAsOwned(a, c, d);
+
+        time.runUntil(START_MILLIS + INTERVALS * INTERVAL_MILLIS + CHANGE_OFFSET_MILLIS);
+        assertFalse(ownedByB.isEmpty(), "b owned no services");
+        assertFalse(ownedByD.isEmpty(), "d took over no services");
+        assertTrue(b.ownedServices().isEmpty(), "the member that left kept its services");
+
+        Map<Integer, List<Probed>> byService = new TreeMap<>();
+        for (Probed probe : probes) {
+            byService.computeIfAbsent(probe.serviceId, id -> new ArrayList<>()).add(probe);
+        }
+        assertEquals(SERVICES, byService.size(), "services never probed");
+        for (Map.Entry<Integer, List<Probed>> entry : byService.entrySet()) {
+            int serviceId = entry.getKey();
+            // The run ends in the middle of interval INTERVALS, after its probes.
+            int[] perInterval = new int[INTERVALS + 1];
+            for (Probed probe : entry.getValue()) {
+                long sinceStart = probe.timestamp - START_MILLIS;
+                int interval = (int) Math.floorDiv(sinceStart, INTERVAL_MILLIS);
+                assertTrue(interval >= 0 && interval <= INTERVALS, "service " + serviceId + " probed outside the run");
+                // A new owner probing straight away instead of continuing the schedule shows up here.
+                assertEquals(phase(serviceId), sinceStart - interval * INTERVAL_MILLIS,
+                        "service " + serviceId + " probed off its schedule by " + probe.member);
+                perInterval[interval]++;
+            }
+            for (int i = 0; i <= INTERVALS; i++) {
+                assertEquals(1, perInterval[i], "probes of service " + serviceId + " in interval " + i + ": " + entry.getValue());
+            }
+        }
+        assertTrue(probes.stream().anyMatch(probe -> probe.member.equals("d")), "the joining member never probed");
+        assertTrue(probes.stream().noneMatch(probe -> probe.member.equals("b") && probe.timestamp > START_MILLIS + 7 * INTERVAL_MILLIS),
+                "the member that left kept probing");
+    }
+
+    @Test
+    void probeThatFiresAfterItsServiceMovedIsSkipped() throws Exception {
+        Member a = new Member("a");
+        a.start();
+        ShardScheduler scheduler = a.scheduler;
+        assertEquals(SERVICES, a.ownedServices().size());
+
+        new Member("b").start();
+        int moved = -1;
+        int kept = -1;
+        for (int id = 0; id < SERVICES; id++) {
+            if (scheduler.owns(id)) {
+                kept = id;
+            } else {
+                moved = id;
+            }
+        }
+        assertTrue(moved >= 0, "b took over no services");
+        assertNull(scheduler.runProbe(moved, () -> fail("probed a service owned by another member")).get());
+        ProbeResult result = result(kept, time.now);
+        assertSame(result, scheduler.runProbe(kept, () -> CompletableFuture.completedFuture(result)).get());
+    }
+
+    @Test
+    void takenOverServiceContinuesOneIntervalAfterTheLastResult() {
+        LatestStatusCache latest = new LatestStatusCache();
+        latest.update(result(7, time.now - 20_000));
+        ShardCoordinator coordinator = new ShardCoordinator(new InProcessMembership(group, "a"), ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        ShardScheduler sharded = new ShardScheduler(coordinator, latest, () -> time.now);
+        assertEquals(40_000, sharded.firstProbeDelayMillis(7, INTERVAL_MILLIS, 5));
+        assertEquals(0, sharded.firstProbeDelayMillis(7, 10_000, 5), "an overdue service is probed straight away");
+        assertEquals(5, sharded.firstProbeDelayMillis(8, INTERVAL_MILLIS, 5), "a service nobody probed yet starts after the default");
+
+        ShardScheduler alone = new ShardScheduler(null, latest, () -> time.now);
+        assertEquals(5, alone.firstProbeDelayMillis(7, INTERVAL_MILLIS, 5));
+        assertTrue(alone.owns(7));
+    }
+
+    private static void assertScheduledAsOwned(Member... members) {
+        for (Member member : members) {
+            Set<Integer> owned = new TreeSet<>();
+            for (int id = 0; id < SERVICES; id++) {
+                if (member.scheduler.owns(id)) {
+                    owned.add(id);
+                }
+            }
+            assertEquals(owned, member.ownedServices(), "services scheduled by " + member.nodeId);
+        }
+    }
+
+    private static long phase(int serviceId) {
+        return serviceId * PHASE_SPREAD_MILLIS / SERVICES;
+    }
+
+    private static ServiceRegistry registry() {
+        List<ServiceMonitorApplication.Service> services = new ArrayList<>();
+        for (int id = 0; id < SERVICES; id++) {
+            services.add(new ServiceMonitorApplication.Service(id, "service" + id, "localhost", 80, "/", "GET",
+                    null, null, 1, "MINUTES", "No", null, "No", null, Probes.HTTP));
+        }
+        return ServiceRegistry.compile(services);
+    }
+
+    private static ProbeResult result(int serviceId, long timestamp) {
+        return new ProbeResult(serviceId, timestamp, true, true, ProbeResult.NO_HTTP_STATUS, ProbeTimings.NONE, true);
+    }
+
+    private static final class Probed {
+        final int serviceId;
+        final long timestamp;
+        final String member;
+
+        Probed(int serviceId, long timestamp, String member) {
+            this.serviceId = serviceId;
+            this.timestamp = timestamp;
+            this.member = member;
+        }
+
+        @Override
+        public String toString() {
+            return member + "@" + timestamp;
+        }
+    }
+
+    /**
+     * Events ordered by due time, then by the order they were scheduled in; running one moves the clock
+     * to its due time.
+     */
+    private static final class SimulatedTime {
+        private final PriorityQueue<Event> events = new PriorityQueue<>();
+        private long now;
+        private long sequence;
+
+        SimulatedTime(long now) {
+            this.now = now;
+        }
+
+        Event schedule(long delayMillis, Runnable action) {
+            Event event = new Event(now + delayMillis, sequence++, action);
+            events.add(event);
+            return event;
+        }
+
+        void runUntil(long epochMillis) {
+            while (!events.isEmpty() && events.peek().dueMillis <= epochMillis) {
+                Event event = events.poll();
+                now = event.dueMillis;
+                if (!event.cancelled) {
+                    event.action.run();
+                }
+            }
+            now = epochMillis;
+        }
+    }
+
+    private static final class Event implements Comparable<Event> {
+        final long dueMillis;
+        final long sequence;
+        final Runnable action;
+        boolean cancelled;
+
+        Event(long dueMillis, long sequence, Runnable action) {
+            this.dueMillis = dueMillis;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(dueMillis, other.dueMillis);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * One instance, doing what the application does with a coordinator: it exchanges results on every
+     * heartbeat, schedules its share only after the first exchange, and rebalances on membership changes.
+     */
+    private final class Member implements ShardScheduler.Tasks {
+        private final String nodeId;
+        private final ShardCoordinator coordinator;
+        private final LatestStatusCache latest = new LatestStatusCache();
+        private final ShardScheduler scheduler;
+        // The event of each scheduled service's next probe.
+        private final Map<Integer, Event> scheduled = new HashMap<>();
+        private Event heartbeat;
+        private boolean started;
+
+        Member(String nodeId) {
+            this.nodeId = nodeId;
+            this.coordinator = new ShardCoordinator(new InProcessMembership(group, nodeId), ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+            this.scheduler = new ShardScheduler(coordinator, latest, () -> time.now);
+        }
+
+        void start() {
+            syncStatus();
+            try {
+                coordinator.start(this::rebalance);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            syncStatus();
+            started = true;
+            rebalance();
+            scheduleHeartbeat();
+        }
+
+        Set<Integer> ownedServices() {
+            return new TreeSet<>(scheduled.keySet());
+        }
+
+        private void scheduleHeartbeat() {
+            heartbeat = time.schedule(HEARTBEAT_MILLIS, () -> {
+                syncStatus();
+                scheduleHeartbeat();
+            });
+        }
+
+        private void syncStatus() {
+            List<ProbeResult> owned = new ArrayList<>();
+            for (ProbeResult result : latest.values()) {
+                if (coordinator.owns(result.getServiceId())) {
+                    owned.add(result);
+                }
+            }
+            try {
+                coordinator.publishStatus(owned);
+                for (ProbeResult result : coordinator.readPeerStatus()) {
+                    latest.update(result);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void rebalance() {
+            if (started) {
+                scheduler.rebalance(registry, this);
+            }
+        }
+
+        @Override
+        public boolean isScheduled(int serviceId) {
+            return scheduled.containsKey(serviceId);
+        }
+
+        @Override
+        public void schedule(int index) {
+            int serviceId = registry.idAt(index);
+            long intervalMillis = registry.monitoringIntervalMillisAt(index);
+            long delay = scheduler.firstProbeDelayMillis(serviceId, intervalMillis, Math.max(0, START_MILLIS + phase(serviceId) - time.now));
+            scheduleProbe(serviceId, intervalMillis, delay);
+        }
+
+        private void scheduleProbe(int serviceId, long intervalMillis, long delayMillis) {
+            scheduled.put(serviceId, time.schedule(delayMillis, () -> {
+                scheduler.runProbe(serviceId, () -> {
+                    ProbeResult result = result(serviceId, time.now);
+                    probes.add(new Probed(serviceId, result.getTimestamp(), nodeId));
+                    latest.update(result);
+                    return CompletableFuture.completedFuture(result);
+                });
+                scheduleProbe(serviceId, intervalMillis, intervalMillis);
+            }));
+        }
+
+        @Override
+        public void cancel(int serviceId) {
+            scheduled.remove(serviceId).cancelled = true;
+        }
+
+        void stop() {
+            coordinator.close();
+            heartbeat.cancelled = true;
+            for (Event event : scheduled.values()) {
+                event.cancelled = true;
+            }
+            scheduled.clear();
+        }
+    }
+}
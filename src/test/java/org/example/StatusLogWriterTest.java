@@ -0,0 +1,56 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatusLogWriterTest {
+    private static final long INTERVAL = TimeUnit.SECONDS.toMillis(1);
+
+    @Test
+    void idleLogIsClosedAndItsRotationRetired(@TempDir Path directory) throws Exception {
+        Path stopped = Files.createDirectories(directory.resolve("logging").resolve("Old_Shop").resolve("application_status"));
+        Path live = Files.createDirectories(directory.resolve("logging").resolve("Web_Shop").resolve("application_status"));
+        RotationState rotationState = new RotationState(directory.resolve("state"));
+        StatusLogWriter writer = new StatusLogWriter(rotationState, 100, false);
+        long now = System.currentTimeMillis();
+        long stoppedAt = now - 5 * INTERVAL;
+        try {
+            writer.submit(stopped, "application", false, INTERVAL, stoppedAt);
+            writer.submit(live, "application", true, TimeUnit.HOURS.toMillis(1), now);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            // Both entries are written once the second one is.
+            while (rotationState.get("Web_Shop_application") == null && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(stoppedAt, rotationState.get("Old_Shop_application"));
+            while (rotationState.get("Old_Shop_application") != null && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertNull(rotationState.get("Old_Shop_application"), "the idle log is still active");
+            assertEquals(now, rotationState.get("Web_Shop_application"));
+        } finally {
+            writer.close();
+            rotationState.close();
+        }
+
+        List<String> lines = Files.readAllLines(stopped.resolve(StatusLogWriter.logFileName(stoppedAt, "application")), StandardCharsets.UTF_8);
+        assertEquals(List.of(StatusLogWriter.formatEntry(stoppedAt, "application", false)), lines);
+
+        // The retirement is checkpointed, so the file does not become active again after a restart.
+        RotationState reloaded = new RotationState(directory.resolve("state"));
+        try {
+            assertNull(reloaded.get("Old_Shop_application"));
+            assertEquals(now, reloaded.get("Web_Shop_application"));
+        } finally {
+            reloaded.close();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.X509ExtendedKeyManager;
+import javax.net.ssl.X509KeyManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Probes a TLS stub on the loopback interface whose certificate is replaced between checks.
+ */
+class TlsCertificateProbeTest {
+    private static final char[] PASSWORD = "changeit".toCharArray();
+    private static final int MIN_VALID_DAYS = 14;
+
+    private final SwitchingKeyManager keyManager = new SwitchingKeyManager();
+    private ProbeContext context;
+    private SSLServerSocket server;
+    private Thread acceptor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        context = new ProbeContext(new ProbeEventLoop(ProbeEventLoop.DEFAULT_MAX_CONNECTIONS),
+                new HostResolver(30, 10), new ReachabilityCoalescer(1000), null, ProbeContext.createTrustAllSslContext(),
+                5000, ProbeContext.DEFAULT_MAX_BODY_BYTES);
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(new X509KeyManager[]{keyManager}, null, null);
+        server = (SSLServerSocket) serverContext.getServerSocketFactory().createServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        // A TLS 1.2 session is cached by the client as soon as the handshake ends, so it is the one a check could resume.
+        server.setEnabledProtocols(new String[]{"TLSv1.2"});
+        acceptor = new Thread(this::accept, "tls-stub");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.close();
+        acceptor.join(5000);
+        context.getEventLoop().close();
+    }
+
+    @Test
+    void replacedCertificateIsSeenOnTheNextCheck(@TempDir Path directory) throws Exception {
+        keyManager.current = generate(directory.resolve("renewed.p12"), 400);
+        X509KeyManager expiring = generate(directory.resolve("expiring.p12"), 2);
+        TlsCertificateProbe probe = new TlsCertificateProbe(context, MIN_VALID_DAYS);
+        ServiceMonitorApplication.Service service = new ServiceMonitorApplication.Service(1, "Web Shop", "127.0.0.1",
+                server.getLocalPort(), "/", "GET", null, null, 1, "MINUTES", "No", null, "No", null, Probes.TLS_CERT);
+
+        ProbeResult first = probe.probe(service, null).get(10, TimeUnit.SECONDS);
+        assertTrue(first.isServerUp());
+        assertTrue(first.isApplicationUp());
+
+        keyManager.current = expiring;
+        ProbeResult second = probe.probe(service, null).get(10, TimeUnit.SECONDS);
+        assertTrue(second.isServerUp());
+        assertFalse(second.isApplicationUp(), "the second check saw the certificate of the first handshake");
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try (Socket socket = server.accept()) {
+                // The reachability check connects without TLS; its handshake fails and is ignored.
+                ((SSLSocket) socket).startHandshake();
+                socket.getInputStream().read();
+            } catch (IOException e) {
+                // The next connection gets a fresh try; a closed server socket ends the loop.
+            }
+        }
+    }
+
+    private static X509KeyManager generate(Path keyStoreFile, int validityDays) throws Exception {
+        String keytool = Paths.get(System.getProperty("java.home"), "bin", "keytool").toString();
+        Process process = new ProcessBuilder(keytool, "-genkeypair", "-alias", "stub", "-keyalg", "EC",
+                "-dname", "CN=localhost", "-validity", Integer.toString(validityDays), "-storetype", "PKCS12",
+                "-keystore", keyStoreFile.toString(), "-storepass", new String(PASSWORD))
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(process.waitFor(60, TimeUnit.SECONDS) && process.exitValue() == 0, "keytool failed: " + output);
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keyStoreFile)) {
+            keyStore.load(in, PASSWORD);
+        }
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, PASSWORD);
+        return (X509KeyManager) keyManagers.getKeyManagers()[0];
+    }
+
+    /**
+     * Presents whichever certificate is current, so the server keeps one SSLContext and one session cache.
+     */
+    private static final class SwitchingKeyManager extends X509ExtendedKeyManager {
+        volatile X509KeyManager current;
+
+        @Override
+        public String[] getClientAliases(String keyType, Principal[] issuers) {
+            return current.getClientAliases(keyType, issuers);
+        }
+
+        @Override
+        public String chooseClientAlias(String[] keyType, Principal[] issuers, Socket socket) {
+            return current.chooseClientAlias(keyType, issuers, socket);
+        }
+
+        @Override
+        public String[] getServerAliases(String keyType, Principal[] issuers) {
+            return current.getServerAliases(keyType, issuers);
+        }
+
+        @Override
+        public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+            return current.chooseServerAlias(keyType, issuers, socket);
+        }
+
+        @Override
+        public X509Certificate[] getCertificateChain(String alias) {
+            return current.getCertificateChain(alias);
+        }
+
+        @Override
+        public PrivateKey getPrivateKey(String alias) {
+            return current.getPrivateKey(alias);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UptimeAggregatorTest {
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final int MINUTES = 120;
+    private static final int HOURS = 48;
+    private static final int DAYS = 10;
+    private static final double[] PERCENTILES = {1, 50, 90, 99, 100};
+
+    private final List<long[]> samples = new ArrayList<>();
+    private long[][] rings = {{MINUTE, MINUTES}, {HOUR, HOURS}, {DAY, DAYS}};
+
+    @Test
+    void windowsMatchTheRecordedResults(@TempDir Path directory) throws Exception {
+        assertWindows(new UptimeAggregator(directory, MINUTES, HOURS, DAYS));
+    }
+
+    @Test
+    void windowsMatchWithRetentionsAroundTheCheckpointStride(@TempDir Path directory) throws Exception {
+        int stride = UptimeAggregator.RollupRing.STRIDE;
+        rings = new long[][]{{MINUTE, stride + 1}, {HOUR, stride - 1}, {DAY, 2}};
+        assertWindows(new UptimeAggregator(directory, stride + 1, stride - 1, 2));
+    }
+
+    private void assertWindows(UptimeAggregator aggregator) {
+        long end = recordHistory(aggregator, 1, 15 * DAY);
+
+        long[] windows = {MINUTE / 2, 5 * MINUTE, 45 * MINUTE, 90 * MINUTE, 3 * HOUR, 30 * HOUR, 3 * DAY, 12 * DAY, 30 * DAY};
+        for (long window : windows) {
+            assertWindow(aggregator, end - window, end);
+        }
+        // A window ending inside the minutes still held, and one ending in the hours.
+        assertWindow(aggregator, end - 50 * MINUTE, end - 20 * MINUTE - 1234);
+        assertWindow(aggregator, end - 20 * HOUR, end - 10 * HOUR - 1234);
+        // Ends on either side of every checkpoint in the finer rings.
+        for (int k = 1; k < 3 * UptimeAggregator.RollupRing.STRIDE; k += 5) {
+            assertWindow(aggregator, end - 2 * k * MINUTE - 1234, end - k * MINUTE);
+            assertWindow(aggregator, end - 2 * k * HOUR - 1234, end - k * HOUR);
+        }
+    }
+
+    @Test
+    void shortWindowsHavePercentilesAndIncludeTheOpenBucket(@TempDir Path directory) throws Exception {
+        UptimeAggregator aggregator = new UptimeAggregator(directory, MINUTES, HOURS, DAYS);
+        long now = System.currentTimeMillis();
+        aggregator.record(1, now - 5 * MINUTE, true, 20_000);
+        aggregator.record(1, now - MINUTE, false, 80_000);
+        aggregator.record(1, now, true, 30_000);
+
+        UptimeAggregator.WindowStats stats = aggregator.query(1, now - 10 * MINUTE, now);
+        assertEquals(2, stats.getUp());
+        assertEquals(1, stats.getDown());
+        assertEquals(32_000, stats.getLatencyPercentileMicros(50));
+        assertEquals(96_000, stats.getLatencyPercentileMicros(99));
+    }
+
+    @Test
+    void persistWritesOnlyChangedServicesAndReloads(@TempDir Path directory) throws Exception {
+        UptimeAggregator aggregator = new UptimeAggregator(directory, MINUTES, HOURS, DAYS);
+        long end = recordHistory(aggregator, 1, 3 * DAY);
+        aggregator.record(2, end, true, 5_000);
+        assertEquals(2, aggregator.persist());
+        assertEquals(0, aggregator.persist());
+        aggregator.record(2, end + MINUTE, false, -1);
+        assertEquals(1, aggregator.persist());
+
+        UptimeAggregator reloaded = new UptimeAggregator(directory, MINUTES, HOURS, DAYS);
+        for (long window : new long[]{10 * MINUTE, 5 * HOUR, 2 * DAY, 10 * DAY}) {
+            assertSameStats(aggregator.query(1, end - window, end), reloaded.query(1, end - window, end));
+        }
+        assertEquals(1, reloaded.query(2, end, end + MINUTE).getUp());
+        assertEquals(1, reloaded.query(2, end, end + MINUTE).getDown());
+
+        // A shorter retention keeps what still fits and folds the rest into the older counters.
+        UptimeAggregator shorter = new UptimeAggregator(directory, MINUTES / 2, HOURS / 2, DAYS);
+        assertSameStats(aggregator.query(1, end - 20 * MINUTE, end), shorter.query(1, end - 20 * MINUTE, end));
+        assertSameStats(aggregator.query(1, end - 10 * DAY, end), shorter.query(1, end - 10 * DAY, end));
+    }
+
+    @Test
+    void importedLogsGoInFrontOfLiveResults(@TempDir Path directory) throws Exception {
+        Path logging = directory.resolve("logging");
+        Path statusDirectory = logging.resolve("Web_Shop").resolve("application_status");
+        Files.createDirectories(statusDirectory);
+        long live = System.currentTimeMillis() / MINUTE * MINUTE;
+        List<String> lines = new ArrayList<>();
+        for (int i = 1; i <= 6 * 60; i++) {
+            lines.add(StatusLogWriter.formatEntry(live - i * MINUTE, "application", i % 10 != 0));
+        }
+        Collections.reverse(lines);
+        Files.write(statusDirectory.resolve(StatusLogWriter.logFileName(live - 6 * HOUR, "application")), lines, StandardCharsets.UTF_8);
+
+        UptimeAggregator aggregator = new UptimeAggregator(directory.resolve("rollups"), MINUTES, HOURS, DAYS);
+        for (int i = 0; i < 30; i++) {
+            aggregator.record(7, live + i * MINUTE, true, 10_000);
+        }
+        ServiceMonitorApplication.Service service = new ServiceMonitorApplication.Service();
+        service.setId(7);
+        service.setServiceName("Web Shop");
+        assertEquals(6 * 60, aggregator.importLogs(logging, Collections.singletonList(service)));
+
+        long end = live + 30 * MINUTE;
+        UptimeAggregator.WindowStats all = aggregator.query(7, live - DAY, end);
+        assertEquals(30 + 6 * 60 - 36, all.getUp());
+        assertEquals(36, all.getDown());
+        UptimeAggregator.WindowStats liveOnly = aggregator.query(7, live, end);
+        assertEquals(30, liveOnly.getUp());
+        assertEquals(0, liveOnly.getDown());
+        assertEquals(12_000, liveOnly.getLatencyPercentileMicros(50));
+        UptimeAggregator.WindowStats lastImportedHour = aggregator.query(7, live - HOUR, live - 1);
+        assertEquals(54, lastImportedHour.getUp());
+        assertEquals(6, lastImportedHour.getDown());
+    }
+
+    /**
+     * Records about one result a minute with gaps of up to a few hours, and returns the last timestamp.
+     */
+    private long recordHistory(UptimeAggregator aggregator, int serviceId, long span) {
+        Random random = new Random(42);
+        long end = System.currentTimeMillis();
+        for (long timestamp = end - span; timestamp < end; timestamp += MINUTE / 2 + random.nextInt((int) MINUTE)) {
+            if (random.nextInt(2000) == 0) {
+                timestamp += random.nextInt((int) (4 * HOUR));
+            }
+            boolean up = random.nextInt(50) != 0;
+            int latencyMicros = random.nextInt(20) == 0 ? -1 : 1000 + (int) Math.abs(random.nextGaussian() * 60_000);
+            aggregator.record(serviceId, timestamp, up, latencyMicros);
+            samples.add(new long[]{timestamp, up ? 1 : 0, latencyMicros});
+        }
+        return samples.get(samples.size() - 1)[0];
+    }
+
+    private void assertWindow(UptimeAggregator aggregator, long from, long to) {
+        long last = samples.get(samples.size() - 1)[0];
+        long start = widenedStart(from, last);
+        long stop = widenedEnd(to, last);
+        long up = 0;
+        long down = 0;
+        int[] histogram = new int[UptimeAggregator.HISTOGRAM_BUCKETS];
+        for (long[] sample : samples) {
+            if (sample[0] < start || sample[0] >= stop) {
+                continue;
+            }
+            if (sample[1] == 1) {
+                up++;
+            } else {
+                down++;
+            }
+            if (sample[2] >= 0) {
+                histogram[UptimeAggregator.histogramIndex((int) sample[2])]++;
+            }
+        }
+        assertSameStats(new UptimeAggregator.WindowStats(from, to, up, down, histogram), aggregator.query(1, from, to));
+    }
+
+    /**
+     * Where a window starting at from really starts: the start of its bucket in the finest ring still holding
+     * the bucket before it, or the oldest day held. A window starting before the first result covers them all.
+     */
+    private long widenedStart(long from, long last) {
+        if (Math.floorDiv(from, MINUTE) <= Math.floorDiv(samples.get(0)[0], MINUTE)) {
+            return Long.MIN_VALUE;
+        }
+        for (long[] ring : rings) {
+            long bucket = Math.floorDiv(from, ring[0]) - 1;
+            if (bucket > Math.floorDiv(last, ring[0]) - ring[1]) {
+                return (bucket + 1) * ring[0];
+            }
+        }
+        return (Math.floorDiv(last, DAY) - rings[2][1] + 1) * DAY;
+    }
+
+    private long widenedEnd(long to, long last) {
+        for (long[] ring : rings) {
+            long bucket = Math.floorDiv(to, ring[0]);
+            if (bucket > Math.floorDiv(last, ring[0]) - ring[1]) {
+                return (bucket + 1) * ring[0];
+            }
+        }
+        return (Math.floorDiv(last, DAY) - rings[2][1] + 1) * DAY;
+    }
+
+    private static void assertSameStats(UptimeAggregator.WindowStats expected, UptimeAggregator.WindowStats actual) {
+        String window = "window of " + (expected.getToMillis() - expected.getFromMillis()) + " ms";
+        assertEquals(expected.getUp(), actual.getUp(), window);
+        assertEquals(expected.getDown(), actual.getDown(), window);
+        for (double percentile : PERCENTILES) {
+            assertEquals(expected.getLatencyPercentileMicros(percentile), actual.getLatencyPercentileMicros(percentile),
+                    "p" + percentile + " over the " + window);
+        }
+    }
+}
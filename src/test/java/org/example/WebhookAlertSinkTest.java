@@ -0,0 +1,114 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Points the webhook sink at a stub HTTP server on the loopback interface and checks what it posts.
+ */
+class WebhookAlertSinkTest {
+    private final BlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+    private volatile int responseStatus = 204;
+    private HttpServer server;
+    private URI uri;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/hook", exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                requests.add(new Request(exchange.getRequestMethod(),
+                        exchange.getRequestHeaders().getFirst("Content-Type"), body.readAllBytes()));
+            }
+            exchange.sendResponseHeaders(responseStatus, -1);
+            exchange.close();
+        });
+        server.start();
+        uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/hook");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void postsTheBatchAsAJsonArray() throws Exception {
+        new WebhookAlertSink(uri).send(Arrays.asList(
+                new StateChangeEvent(1, "Web Shop", "UP", "DOWN", 1000, true, 503, 3),
+                new StateChangeEvent(2, "Mail", "UNKNOWN", "UP", 2000, true, -1, 2)));
+
+        Request request = requests.poll(5, TimeUnit.SECONDS);
+        assertNotNull(request, "the webhook was never called");
+        assertEquals("POST", request.method);
+        assertEquals("application/json", request.contentType);
+        JsonNode events = new ObjectMapper().readTree(request.body);
+        assertTrue(events.isArray());
+        assertEquals(2, events.size());
+        assertEquals(1, events.get(0).get("serviceId").asInt());
+        assertEquals("Web Shop", events.get(0).get("serviceName").asText());
+        assertEquals("UP", events.get(0).get("previousStatus").asText());
+        assertEquals("DOWN", events.get(0).get("status").asText());
+        assertEquals(1000, events.get(0).get("timestamp").asLong());
+        assertEquals(503, events.get(0).get("httpStatus").asInt());
+        assertEquals(3, events.get(0).get("consecutiveResults").asInt());
+        assertEquals("Mail", events.get(1).get("serviceName").asText());
+    }
+
+    @Test
+    void errorStatusFailsTheDelivery() {
+        responseStatus = 500;
+        IOException failure = assertThrows(IOException.class, () -> new WebhookAlertSink(uri).send(
+                Collections.singletonList(new StateChangeEvent(1, "Web Shop", "UP", "DOWN", 1000, false, -1, 3))));
+        assertTrue(failure.getMessage().contains("500"), failure.getMessage());
+    }
+
+    @Test
+    void dispatcherDeliversABurstAsOneBatch() throws Exception {
+        AlertDispatcher dispatcher = new AlertDispatcher(
+                Collections.singletonList(new WebhookAlertSink(uri)), 100, 500, 300);
+        try {
+            for (int id = 1; id <= 5; id++) {
+                dispatcher.submit(new StateChangeEvent(id, "service" + id, "UP", "DOWN", 1000 + id, false, -1, 3));
+            }
+            Request request = requests.poll(5, TimeUnit.SECONDS);
+            assertNotNull(request, "the webhook was never called");
+            assertEquals(5, new ObjectMapper().readTree(request.body).size());
+        } finally {
+            dispatcher.close();
+        }
+        assertEquals(5, dispatcher.getDelivered());
+        assertEquals(0, dispatcher.getFailures());
+        assertEquals(0, dispatcher.getDropped());
+        assertTrue(requests.isEmpty());
+    }
+
+    private static final class Request {
+        final String method;
+        final String contentType;
+        final byte[] body;
+
+        Request(String method, String contentType, byte[] body) {
+            this.method = method;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+}